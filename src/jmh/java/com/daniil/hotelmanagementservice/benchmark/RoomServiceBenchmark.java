@@ -0,0 +1,270 @@
+package com.daniil.hotelmanagementservice.benchmark;
+
+import com.daniil.hotelmanagementservice.HotelManagementServiceApplication;
+import com.daniil.hotelmanagementservice.dto.OccupancyStats;
+import com.daniil.hotelmanagementservice.dto.RoomSearchPage;
+import com.daniil.hotelmanagementservice.entity.Room;
+import com.daniil.hotelmanagementservice.service.OccupancyCounters;
+import com.daniil.hotelmanagementservice.service.RoomAllocationEngine;
+import com.daniil.hotelmanagementservice.service.RoomCalendar;
+import com.daniil.hotelmanagementservice.service.RoomNumberIndex;
+import com.daniil.hotelmanagementservice.service.RoomService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Горячие пути RoomService на H2 с rooms номерами (по 100 на отель, 10% заняты).
+ * findFreeRooms — первые 100 свободных номеров случайного отеля (как /free по умолчанию) на 1–7 ночей в пределах года
+ * (по интервалу на каждый второй номер).
+ * findRoomsByNumber — номера отеля с подстрокой из трёх-четырёх цифр по триграммному индексу,
+ * findRoomsByNumberScan — то же фильтром contains по всем номерам в памяти, searchRoomsByNumber — через searchRooms.
+ * Каждая операция измеряется в одном потоке и под конкуренцией CONTENDED_THREADS потоков,
+ * allocate — ещё и HIGHLY_CONTENDED_THREADS, чтобы сравнить режимы pessimistic и optimistic при росте конфликтов.
+ * allocate и confirm возвращают номер в пул внутри операции, поэтому пул не истощается за итерацию;
+ * если свободного номера всё же нет, прогон падает, а не меряет путь «номеров нет»;
+ * скорость аллокаций памяти — профайлер gc (-prof gc, включён по умолчанию в профиле jmh).
+ *
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="RoomServiceBenchmark -p rooms=1000,100000 -p mode=in-memory,skip-locked -prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class RoomServiceBenchmark {
+
+    private static final int CONTENDED_THREADS = 8;
+    private static final int HIGHLY_CONTENDED_THREADS = 32;
+    private static final int ROOMS_PER_HOTEL = 100;
+    private static final int FREE_ROOMS_SIZE = 100;
+
+    @Param({"1000", "100000", "1000000"})
+    private int rooms;
+
+    @Param({"in-memory"})
+    private String mode;
+
+    private ConfigurableApplicationContext context;
+    private RoomService roomService;
+    private JdbcTemplate jdbcTemplate;
+    private RoomNumberIndex numberIndex;
+    private List<Room> allRooms;
+    private long firstHotelId;
+    private int hotels;
+
+    @Setup(Level.Trial)
+    public void startContext() {
+        context = new SpringApplicationBuilder(HotelManagementServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                // аргументы командной строки перекрывают application.yaml (в отличие от .properties())
+                .run("--eureka.client.enabled=false",
+                        "--spring.jpa.show-sql=false",
+                        "--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                        "--logging.level.root=WARN",
+                        "--logging.level.org.springframework.security=WARN",
+                        "--hotel.allocation.mode=" + mode);
+        roomService = context.getBean(RoomService.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+        jdbcTemplate.update("DELETE FROM room_stay");
+        jdbcTemplate.update("DELETE FROM room");
+        jdbcTemplate.update("DELETE FROM hotel");
+        hotels = Math.max(1, rooms / ROOMS_PER_HOTEL);
+        jdbcTemplate.update("INSERT INTO hotel (id, name, address) SELECT NEXT VALUE FOR hotel_seq, 'Hotel ' || X, 'City' FROM SYSTEM_RANGE(1, ?)", hotels);
+        firstHotelId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM hotel", Long.class);
+        jdbcTemplate.update("INSERT INTO room (id, hotel_id, number, available, temp_locked, times_booked)"
+                        + " SELECT NEXT VALUE FOR room_seq, ? + MOD(X, ?), CAST(X AS VARCHAR), MOD(X, 10) <> 0, FALSE, MOD(X, 50)"
+                        + " FROM SYSTEM_RANGE(1, ?)",
+                firstHotelId, hotels, rooms);
+        // по интервалу на каждый второй номер, заезды разбросаны по году
+        jdbcTemplate.update("INSERT INTO room_stay (id, room_id, hotel_id, check_in, check_out, owner, confirmed)"
+                + " SELECT NEXT VALUE FOR room_stay_seq, id, hotel_id, DATEADD(DAY, MOD(id * 7, 360), CURRENT_DATE), DATEADD(DAY, MOD(id * 7, 360) + 3, CURRENT_DATE),"
+                + " 'seed', TRUE FROM room WHERE MOD(id, 2) = 0");
+        jdbcTemplate.execute("ANALYZE");
+
+        context.getBean(OccupancyCounters.class).rebuild();
+        context.getBean(RoomAllocationEngine.class).rebuild();
+        context.getBean(RoomCalendar.class).rebuild();
+        numberIndex = context.getBean(RoomNumberIndex.class);
+        numberIndex.rebuild();
+        allRooms = jdbcTemplate.query("SELECT id, hotel_id, number FROM room", (row, i) -> Room.builder()
+                .id(row.getLong("id"))
+                .hotelId(row.getLong("hotel_id"))
+                .number(row.getString("number"))
+                .build());
+    }
+
+    @TearDown(Level.Trial)
+    public void stopContext() {
+        context.close();
+    }
+
+    @Benchmark
+    public long allocateRoom() {
+        return allocateAndRelease();
+    }
+
+    @Benchmark
+    @Threads(CONTENDED_THREADS)
+    public long allocateRoomContended() {
+        return allocateAndRelease();
+    }
+
+    @Benchmark
+    @Threads(HIGHLY_CONTENDED_THREADS)
+    public long allocateRoomHighlyContended() {
+        return allocateAndRelease();
+    }
+
+    @Benchmark
+    public long confirmBooking() {
+        return confirm();
+    }
+
+    @Benchmark
+    @Threads(CONTENDED_THREADS)
+    public long confirmBookingContended() {
+        return confirm();
+    }
+
+    @Benchmark
+    public RoomSearchPage searchRooms() {
+        return search();
+    }
+
+    @Benchmark
+    @Threads(CONTENDED_THREADS)
+    public RoomSearchPage searchRoomsContended() {
+        return search();
+    }
+
+    @Benchmark
+    public List<Long> findFreeRooms() {
+        return freeRooms();
+    }
+
+    @Benchmark
+    @Threads(CONTENDED_THREADS)
+    public List<Long> findFreeRoomsContended() {
+        return freeRooms();
+    }
+
+    @Benchmark
+    public List<Long> findRoomsByNumber() {
+        NumberQuery query = numberQuery();
+        return numberIndex.find(query.hotelId(), query.pattern());
+    }
+
+    // Прежний способ: contains по каждому номеру, время растёт с числом номеров, а не совпадений
+    @Benchmark
+    public List<Long> findRoomsByNumberScan() {
+        NumberQuery query = numberQuery();
+        return allRooms.stream()
+                .filter(room -> room.getHotelId().equals(query.hotelId()) && room.getNumber().contains(query.pattern()))
+                .map(Room::getId)
+                .toList();
+    }
+
+    @Benchmark
+    public RoomSearchPage searchRoomsByNumber() {
+        NumberQuery query = numberQuery();
+        return roomService.searchRooms(query.hotelId(), null, query.pattern(), 0, 1000, "number", 0, 50, null);
+    }
+
+    @Benchmark
+    public OccupancyStats getOccupancyStats() {
+        return roomService.getOccupancyStats();
+    }
+
+    @Benchmark
+    @Threads(CONTENDED_THREADS)
+    public OccupancyStats getOccupancyStatsContended() {
+        return roomService.getOccupancyStats();
+    }
+
+    // В режиме optimistic исчерпанные попытки (409 в API) считаются промахом, а не ошибкой прогона.
+    // Пустой ответ значит, что пул истощён и замер потерял смысл
+    private Optional<Room> allocate() {
+        Optional<Room> room;
+        try {
+            room = roomService.allocateRoom(null, null);
+        } catch (OptimisticLockingFailureException e) {
+            return Optional.empty();
+        }
+        if (room.isEmpty()) {
+            throw new IllegalStateException("No free room to allocate: the benchmark would measure the miss path");
+        }
+        return room;
+    }
+
+    // Аренда снимается в той же операции: меряется пара allocate + release, пул остаётся полным
+    private long allocateAndRelease() {
+        return allocate()
+                .map(room -> {
+                    roomService.releaseRoom(room.getId(), null);
+                    return room.getId();
+                })
+                .orElse(-1L);
+    }
+
+    // confirm меняет только временно заблокированный номер и возвращает его в пул, поэтому меряется пара allocate + confirm
+    private long confirm() {
+        return allocate()
+                .map(room -> {
+                    roomService.confirmBooking(room.getId(), null);
+                    return room.getId();
+                })
+                .orElse(-1L);
+    }
+
+    // Случайный отель и 1–7 ночей в пределах года: ответ из календаря в памяти
+    private List<Long> freeRooms() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        LocalDate checkIn = LocalDate.now().plusDays(random.nextInt(358));
+        return roomService.findFreeRooms(firstHotelId + random.nextInt(hotels), checkIn, checkIn.plusDays(1 + random.nextInt(7)), FREE_ROOMS_SIZE);
+    }
+
+    // Подстрока случайного номера: номера — числа 1..rooms, отель номера X — firstHotelId + X mod hotels
+    private NumberQuery numberQuery() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        // от 100, чтобы в номере была хотя бы одна триграмма
+        int number = 100 + random.nextInt(rooms - 99);
+        String digits = String.valueOf(number);
+        int length = Math.min(digits.length(), 3 + random.nextInt(2));
+        int from = random.nextInt(digits.length() - length + 1);
+        return new NumberQuery(firstHotelId + number % hotels, digits.substring(from, from + length));
+    }
+
+    private record NumberQuery(Long hotelId, String pattern) {
+    }
+
+    private RoomSearchPage search() {
+        return roomService.searchRooms(null, true, null, 0, 1000, "timesBooked_desc", 0, 50, null);
+    }
+}
@@ -0,0 +1,55 @@
+package com.daniil.hotelmanagementservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Настройки алгоритма планирования номеров (hotel.allocation.*)
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "hotel.allocation")
+public class AllocationProperties {
+
+    public enum Mode {
+        /** Очередь кандидатов в памяти, в БД пишется только выбранная строка */
+        IN_MEMORY,
+        /** Одна строка через FOR UPDATE SKIP LOCKED, без очереди в памяти */
+        SKIP_LOCKED,
+        /** Исходный вариант: PESSIMISTIC_WRITE на все свободные номера */
+        PESSIMISTIC,
+        /** Случайный из top-K кандидатов без блокировки, проверка @Version при записи и повтор с паузой */
+        OPTIMISTIC
+    }
+
+    private Mode mode = Mode.IN_MEMORY;
+
+    /** Как часто очередь в памяти сверяется с БД (изменения от других инстансов) */
+    private Duration resyncInterval = Duration.ofMinutes(5);
+
+    private final Optimistic optimistic = new Optimistic();
+
+    /**
+     * Режим OPTIMISTIC (hotel.allocation.optimistic.*)
+     */
+    @Getter
+    @Setter
+    public static class Optimistic {
+
+        /** Из скольких наименее забронированных свободных номеров выбирается случайный */
+        private int topK = 16;
+
+        /** Попыток до ответа 409 */
+        private int maxAttempts = 10;
+
+        /** Пауза перед повтором — случайная в [0, min(backoffMax, backoffBase * 2^попытка)) */
+        private Duration backoffBase = Duration.ofMillis(5);
+
+        private Duration backoffMax = Duration.ofMillis(200);
+    }
+}
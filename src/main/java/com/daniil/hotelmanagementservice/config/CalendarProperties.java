@@ -0,0 +1,24 @@
+package com.daniil.hotelmanagementservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Настройки календаря занятости номеров по ночам (hotel.calendar.*)
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "hotel.calendar")
+public class CalendarProperties {
+
+    /** Сколько ночей от сегодняшней держится в памяти; запросы за горизонтом идут в БД */
+    private int horizonDays = 400;
+
+    /** Как часто календарь пересобирается из БД: сдвиг горизонта и изменения от других инстансов */
+    private Duration resyncInterval = Duration.ofMinutes(5);
+}
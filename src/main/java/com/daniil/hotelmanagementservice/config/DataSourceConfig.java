@@ -0,0 +1,26 @@
+package com.daniil.hotelmanagementservice.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * JDBC-пул для JPA в профиле reactive. Автоконфигурация DataSource отключается, когда в контексте есть
+ * R2DBC ConnectionFactory, поэтому пул объявлен явно — с теми же свойствами spring.datasource.*.
+ * Без профиля R2DBC не настраивается, и DataSource создаёт штатная автоконфигурация.
+ */
+@Configuration
+@Profile("reactive")
+@EnableConfigurationProperties(DataSourceProperties.class)
+public class DataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+}
@@ -0,0 +1,24 @@
+package com.daniil.hotelmanagementservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Настройки аренды временной блокировки номера (hotel.lease.*)
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "hotel.lease")
+public class LeaseProperties {
+
+    /** Сколько держится tempLocked без confirm/release */
+    private Duration duration = Duration.ofMinutes(10);
+
+    /** Сколько истёкших аренд освобождается одним UPDATE */
+    private int reaperBatchSize = 500;
+}
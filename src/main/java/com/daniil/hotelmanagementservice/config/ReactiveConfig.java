@@ -0,0 +1,32 @@
+package com.daniil.hotelmanagementservice.config;
+
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
+
+@Configuration
+@Profile("reactive")
+public class ReactiveConfig {
+
+    /**
+     * Tomcat из spring-boot-starter-web тоже на classpath и выбирается по умолчанию;
+     * Netty обслуживает соединения фиксированным числом потоков event loop (по числу ядер).
+     */
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    /**
+     * R2dbcTransactionManager не регистрируется бином (его автоконфигурация отключена в application-reactive.yaml):
+     * единственным TransactionManager в контексте остаётся JPA, и @Transactional сервисов не становится неоднозначным.
+     */
+    @Bean
+    public TransactionalOperator reactiveTransactionalOperator(ConnectionFactory connectionFactory) {
+        return TransactionalOperator.create(new R2dbcTransactionManager(connectionFactory));
+    }
+}
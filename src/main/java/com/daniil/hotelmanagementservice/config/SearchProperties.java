@@ -0,0 +1,38 @@
+package com.daniil.hotelmanagementservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Настройки фасетного поиска номеров (hotel.search.*)
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "hotel.search")
+public class SearchProperties {
+
+    /** Границы ценовых диапазонов по возрастанию: 100,200,400 — диапазоны 0-100, 100-200, 200-400, 400+ */
+    private List<BigDecimal> priceBands = List.of(new BigDecimal("100"), new BigDecimal("200"), new BigDecimal("400"));
+
+    /**
+     * Сколько совпадений индекса номеров searchRooms передаёт в БД списком id;
+     * при большем числе образец слишком общий и фильтруется в БД через LIKE
+     */
+    private int numberIndexMaxIds = 1000;
+
+    /** Как часто фасетный индекс и индекс номеров пересобираются из БД, чтобы подхватить изменения от других инстансов */
+    private Duration resyncInterval = Duration.ofMinutes(5);
+
+    /**
+     * Как часто число номеров в БД сверяется с индексом номеров; если в БД больше (номера другого инстанса),
+     * фильтр number уходит в БД до ближайшей пересборки
+     */
+    private Duration countCheckInterval = Duration.ofSeconds(30);
+}
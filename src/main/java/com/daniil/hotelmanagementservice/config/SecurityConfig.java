@@ -2,6 +2,7 @@ package com.daniil.hotelmanagementservice.config;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
@@ -11,18 +12,24 @@ import org.springframework.security.oauth2.server.resource.authentication.JwtAut
 import org.springframework.security.oauth2.server.resource.authentication.JwtGrantedAuthoritiesConverter;
 import org.springframework.security.web.SecurityFilterChain;
 
+import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
 
 @Configuration
+@Profile("!reactive")
 @EnableWebSecurity
 public class SecurityConfig {
 
+    static final String JWT_SECRET = "superSecretKeyForJwtThatShouldBeStoredInEnv";
+
     @Bean
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
         return http
                 .csrf()
                 .disable()
                 .authorizeHttpRequests(auth -> auth
+                        // сбор метрик Prometheus и проверки живости идут без токена
+                        .requestMatchers("/actuator/health", "/actuator/prometheus").permitAll()
                         .requestMatchers("/api/hotels/**").hasAnyRole("USER", "ADMIN")
                         .requestMatchers("/api/rooms/**").hasAnyRole("USER", "ADMIN")
                         .anyRequest().authenticated())
@@ -32,13 +39,19 @@ public class SecurityConfig {
 
     @Bean
     public JwtDecoder jwtDecoder() {
-        return NimbusJwtDecoder.withSecretKey(
-                new SecretKeySpec("superSecretKeyForJwtThatShouldBeStoredInEnv".getBytes(), "HmacSHA256")
-        ).build();
+        return NimbusJwtDecoder.withSecretKey(jwtKey()).build();
+    }
+
+    static SecretKey jwtKey() {
+        return new SecretKeySpec(JWT_SECRET.getBytes(), "HmacSHA256");
     }
 
     @Bean
     public JwtAuthenticationConverter jwtAuthenticationConverter() {
+        return roleConverter();
+    }
+
+    static JwtAuthenticationConverter roleConverter() {
         JwtGrantedAuthoritiesConverter grantedAuthoritiesConverter = new JwtGrantedAuthoritiesConverter();
         // ⚙️ Важно: укажи правильное имя claim, где хранятся роли в твоём токене
         grantedAuthoritiesConverter.setAuthoritiesClaimName("role");
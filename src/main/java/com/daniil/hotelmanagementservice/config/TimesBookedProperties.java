@@ -0,0 +1,33 @@
+package com.daniil.hotelmanagementservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Настройки записи счётчика timesBooked (hotel.times-booked.*)
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "hotel.times-booked")
+public class TimesBookedProperties {
+
+    public enum Mode {
+        /** timesBooked увеличивается в той же транзакции, что подтверждает бронирование */
+        DIRECT,
+        /** Приращения копятся в памяти и выгружаются в БД групповыми UPDATE раз в flushInterval */
+        WRITE_BEHIND
+    }
+
+    private Mode mode = Mode.DIRECT;
+
+    /** Как часто накопленные приращения выгружаются в БД; при падении процесса теряются приращения за этот интервал */
+    private Duration flushInterval = Duration.ofSeconds(5);
+
+    /** Сколько номеров обновляется одним UPDATE */
+    private int flushBatchSize = 500;
+}
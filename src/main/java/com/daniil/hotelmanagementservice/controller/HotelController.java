@@ -4,30 +4,70 @@ package com.daniil.hotelmanagementservice.controller;
 
 import com.daniil.hotelmanagementservice.entity.Hotel;
 import com.daniil.hotelmanagementservice.repository.HotelRepository;
+import com.daniil.hotelmanagementservice.service.CollectionVersions;
 import com.daniil.hotelmanagementservice.service.HotelService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.InputStream;
 import java.util.List;
+import java.util.stream.Stream;
 
 @RestController
+@Profile("!reactive")
 @RequestMapping("/api/hotels")
 @RequiredArgsConstructor
 public class HotelController {
 
     private final HotelService hotelService;
+    private final CollectionVersions collectionVersions;
+    private final ObjectMapper objectMapper;
 
+    /**
+     * ETag берётся до чтения списка: при совпадении с If-None-Match отдаётся 304 без обращения к сервису.
+     */
     @GetMapping
     @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
-    public List<Hotel> getAllHotels() {
+    public List<Hotel> getAllHotels(WebRequest request) {
+        if (request.checkNotModified(collectionVersions.hotelsETag())) {
+            return null;
+        }
         return hotelService.getAllHotels();
     }
 
+    @GetMapping("/{id}")
+    @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    public ResponseEntity<Hotel> getHotel(@PathVariable Long id, WebRequest request) {
+        if (request.checkNotModified(collectionVersions.hotelsETag())) {
+            return null;
+        }
+        return ResponseEntity.of(hotelService.getHotel(id));
+    }
+
     @PostMapping
     @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
     public Hotel createHotel(@RequestBody Hotel hotel) {
         return hotelService.createHotel(hotel);
     }
+
+    /**
+     * Массовый импорт отелей (только админ): NDJSON или CSV с заголовком name[,address].
+     * Возвращает созданные отели с id в порядке строк входа.
+     */
+    @PostMapping(value = "/import", consumes = {MediaType.APPLICATION_NDJSON_VALUE, "text/csv"})
+    @PreAuthorize("hasRole('ADMIN')")
+    public List<Hotel> importHotels(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                    InputStream body) {
+        try (Stream<Hotel> hotels = ImportReader.hotels(body, contentType, objectMapper)) {
+            return hotelService.importHotels(hotels);
+        }
+    }
 }
 
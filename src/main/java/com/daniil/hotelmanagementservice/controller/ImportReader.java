@@ -0,0 +1,166 @@
+package com.daniil.hotelmanagementservice.controller;
+
+import com.daniil.hotelmanagementservice.entity.Hotel;
+import com.daniil.hotelmanagementservice.entity.Room;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Построчное чтение тела импорта: NDJSON (объект на строку) или CSV с заголовком.
+ * Строки разбираются по мере чтения потока, тело целиком в память не загружается.
+ * Ошибка формата — IllegalArgumentException с номером строки (ответ 400).
+ */
+final class ImportReader {
+
+    static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+
+    private ImportReader() {
+    }
+
+    /**
+     * CSV: hotelId,number[,available][,timesBooked][,roomType][,capacity][,price]
+     */
+    static Stream<Room> rooms(InputStream body, MediaType contentType, ObjectMapper objectMapper) {
+        return read(body, contentType, objectMapper, Room.class, columns -> Room.builder()
+                .hotelId(Long.valueOf(columns.required("hotelId")))
+                .number(columns.required("number"))
+                .available(columns.optional("available").map(Boolean::parseBoolean).orElse(true))
+                .timesBooked(columns.optional("timesBooked").map(Integer::parseInt).orElse(0))
+                .roomType(columns.optional("roomType").orElse(null))
+                .capacity(columns.optional("capacity").map(Integer::valueOf).orElse(null))
+                .price(columns.optional("price").map(BigDecimal::new).orElse(null))
+                .build());
+    }
+
+    /**
+     * CSV: name[,address]
+     */
+    static Stream<Hotel> hotels(InputStream body, MediaType contentType, ObjectMapper objectMapper) {
+        return read(body, contentType, objectMapper, Hotel.class, columns -> Hotel.builder()
+                .name(columns.required("name"))
+                .address(columns.optional("address").orElse(null))
+                .build());
+    }
+
+    private static <T> Stream<T> read(InputStream body, MediaType contentType, ObjectMapper objectMapper,
+                                      Class<T> type, Function<Columns, T> fromCsv) {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        int[] lineNumber = {0};
+        Function<String, T> parse;
+        if (TEXT_CSV.isCompatibleWith(contentType)) {
+            Map<String, Integer> header = header(readLine(reader));
+            lineNumber[0]++;
+            parse = line -> fromCsv.apply(new Columns(header, split(line)));
+        } else if (MediaType.APPLICATION_NDJSON.isCompatibleWith(contentType)) {
+            parse = line -> {
+                try {
+                    return objectMapper.readValue(line, type);
+                } catch (JsonProcessingException e) {
+                    throw new IllegalArgumentException(e.getOriginalMessage());
+                }
+            };
+        } else {
+            throw new IllegalArgumentException("unsupported import format " + contentType);
+        }
+        return reader.lines()
+                .peek(line -> lineNumber[0]++)
+                .filter(line -> !line.isBlank())
+                .map(line -> {
+                    try {
+                        return parse.apply(line);
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException("line " + lineNumber[0] + ": " + e.getMessage(), e);
+                    }
+                })
+                .onClose(() -> {
+                    try {
+                        reader.close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    private static String readLine(BufferedReader reader) {
+        try {
+            String line = reader.readLine();
+            return line == null ? "" : line;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Map<String, Integer> header(String line) {
+        List<String> names = split(line);
+        Map<String, Integer> header = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            header.put(names.get(i).trim(), i);
+        }
+        return header;
+    }
+
+    /**
+     * Поля через запятую; поле в кавычках может содержать запятые, "" внутри — одна кавычка
+     */
+    static List<String> split(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private record Columns(Map<String, Integer> header, List<String> values) {
+
+        String required(String name) {
+            return optional(name).orElseThrow(() -> new IllegalArgumentException("missing " + name));
+        }
+
+        Optional<String> optional(String name) {
+            Integer index = header.get(name);
+            if (index == null || index >= values.size() || values.get(index).isBlank()) {
+                return Optional.empty();
+            }
+            return Optional.of(values.get(index).trim());
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.daniil.hotelmanagementservice.controller;
+
+import com.daniil.hotelmanagementservice.entity.Hotel;
+import com.daniil.hotelmanagementservice.service.CollectionVersions;
+import com.daniil.hotelmanagementservice.service.ReactiveHotelService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * HotelController на WebFlux (профиль reactive).
+ */
+@RestController
+@Profile("reactive")
+@RequestMapping("/api/hotels")
+@RequiredArgsConstructor
+public class ReactiveHotelController {
+
+    private final ReactiveHotelService hotelService;
+    private final CollectionVersions collectionVersions;
+
+    @GetMapping
+    @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    public Mono<List<Hotel>> getAllHotels(ServerWebExchange exchange) {
+        if (exchange.checkNotModified(collectionVersions.hotelsETag())) {
+            return Mono.empty();
+        }
+        return hotelService.getAllHotels().collectList();
+    }
+
+    @GetMapping("/{id}")
+    @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    public Mono<ResponseEntity<Hotel>> getHotel(@PathVariable Long id, ServerWebExchange exchange) {
+        if (exchange.checkNotModified(collectionVersions.hotelsETag())) {
+            return Mono.empty();
+        }
+        return hotelService.getHotel(id)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping
+    @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    public Mono<Hotel> createHotel(@RequestBody Hotel hotel) {
+        return hotelService.createHotel(hotel);
+    }
+}
@@ -0,0 +1,155 @@
+package com.daniil.hotelmanagementservice.controller;
+
+import com.daniil.hotelmanagementservice.dto.OccupancyStats;
+import com.daniil.hotelmanagementservice.dto.RoomFacets;
+import com.daniil.hotelmanagementservice.dto.RoomSearchPage;
+import com.daniil.hotelmanagementservice.entity.Room;
+import com.daniil.hotelmanagementservice.service.CollectionVersions;
+import com.daniil.hotelmanagementservice.service.ReactiveRoomService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * RoomController на WebFlux (профиль reactive): те же пути, параметры и ответы.
+ * Удержания по датам (RoomStay, календарь ночей) здесь не реализованы: allocate, confirm и release с checkIn/checkOut
+ * отвечают 400, а не превращаются в аренду всего номера; /free в этом профиле нет.
+ */
+@RestController
+@Profile("reactive")
+@RequestMapping("/api/rooms")
+@RequiredArgsConstructor
+public class ReactiveRoomController {
+
+    private final ReactiveRoomService roomService;
+    private final CollectionVersions collectionVersions;
+
+    @GetMapping
+    @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    public Mono<ResponseEntity<List<Room>>> getAvailableRooms(@RequestParam(defaultValue = "100") int size,
+                                                              @RequestParam(required = false) String cursor,
+                                                              ServerWebExchange exchange) {
+        if (exchange.checkNotModified(collectionVersions.roomsETag())) {
+            return Mono.empty();
+        }
+        return roomService.getAvailableRooms(size, cursor).map(ReactiveRoomController::withNextCursor);
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    public Flux<Room> streamAvailableRooms(ServerWebExchange exchange) {
+        if (exchange.checkNotModified(collectionVersions.roomsETag())) {
+            return Flux.empty();
+        }
+        return roomService.streamAvailableRooms();
+    }
+
+    @GetMapping("/allocate")
+    @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    public Mono<Long> allocateRoom(@RequestParam(required = false) Long hotelId,
+                                   @RequestParam(required = false) String owner,
+                                   @RequestParam(required = false) String checkIn,
+                                   @RequestParam(required = false) String checkOut) {
+        return withoutRange(checkIn, checkOut, () -> roomService.allocateRoom(hotelId, owner).map(Room::getId));
+    }
+
+    @GetMapping("/facets")
+    @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    public Mono<RoomFacets> facetSearch(@RequestParam(required = false) Long hotelId,
+                                        @RequestParam(required = false) String type,
+                                        @RequestParam(required = false) Integer minCapacity,
+                                        @RequestParam(required = false) String priceBand,
+                                        @RequestParam(defaultValue = "false") boolean free,
+                                        @RequestParam(defaultValue = "100") int size) {
+        return roomService.facetSearch(hotelId, type, minCapacity, priceBand, free, size);
+    }
+
+    @PostMapping("/allocate/batch")
+    @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    public Mono<List<Long>> allocateRooms(@RequestParam int count,
+                                          @RequestParam(required = false) Long hotelId,
+                                          @RequestParam(required = false) String owner) {
+        return roomService.allocateRooms(count, hotelId, owner);
+    }
+
+    @PostMapping("/confirm/batch")
+    @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    public Mono<Void> confirmBookings(@RequestParam List<Long> ids, @RequestParam(required = false) String owner) {
+        return roomService.confirmBookings(ids, owner);
+    }
+
+    @PostMapping("/release/batch")
+    @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    public Mono<Void> releaseRooms(@RequestParam List<Long> ids, @RequestParam(required = false) String owner) {
+        return roomService.releaseRooms(ids, owner);
+    }
+
+    @PostMapping("/{id}/confirm")
+    @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    public Mono<Void> confirmBooking(@PathVariable Long id, @RequestParam(required = false) String owner,
+                                     @RequestParam(required = false) String checkIn,
+                                     @RequestParam(required = false) String checkOut) {
+        return withoutRange(checkIn, checkOut, () -> roomService.confirmBooking(id, owner));
+    }
+
+    @PostMapping("/{id}/release")
+    @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    public Mono<Void> releaseRoom(@PathVariable Long id, @RequestParam(required = false) String owner,
+                                  @RequestParam(required = false) String checkIn,
+                                  @RequestParam(required = false) String checkOut) {
+        return withoutRange(checkIn, checkOut, () -> roomService.releaseRoom(id, owner));
+    }
+
+    @PostMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public Mono<Room> createRoom(@RequestBody Room room) {
+        return roomService.createRoom(room);
+    }
+
+    @GetMapping("/stats/searchRooms")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Mono<ResponseEntity<List<Room>>> searchRooms(
+            @RequestParam(required = false) Long hotelId,
+            @RequestParam(required = false) Boolean available,
+            @RequestParam(required = false) String number,
+            @RequestParam(defaultValue = "0") int minBooked,
+            @RequestParam(defaultValue = "1000") int maxBooked,
+            @RequestParam(defaultValue = "id") String sort,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "100") int size,
+            @RequestParam(required = false) String cursor) {
+
+        return roomService.searchRooms(hotelId, available, number, minBooked, maxBooked, sort, page, size, cursor)
+                .map(ReactiveRoomController::withNextCursor);
+    }
+
+    @GetMapping("/stats/all")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Mono<OccupancyStats> getStats() {
+        return roomService.getOccupancyStats();
+    }
+
+    private static <T> Mono<T> withoutRange(String checkIn, String checkOut, Supplier<Mono<T>> action) {
+        if (checkIn != null || checkOut != null) {
+            return Mono.error(new IllegalArgumentException("checkIn/checkOut are not supported in the reactive profile"));
+        }
+        return action.get();
+    }
+
+    private static ResponseEntity<List<Room>> withNextCursor(RoomSearchPage page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            response.header(RoomController.NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return response.body(page.rooms());
+    }
+}
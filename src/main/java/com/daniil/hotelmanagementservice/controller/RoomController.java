@@ -1,59 +1,186 @@
 package com.daniil.hotelmanagementservice.controller;
+import com.daniil.hotelmanagementservice.dto.ImportResult;
+import com.daniil.hotelmanagementservice.dto.OccupancyStats;
+import com.daniil.hotelmanagementservice.dto.RoomFacets;
+import com.daniil.hotelmanagementservice.dto.RoomSearchPage;
 import com.daniil.hotelmanagementservice.entity.Room;
 import com.daniil.hotelmanagementservice.repository.RoomRepository;
+import com.daniil.hotelmanagementservice.service.CollectionVersions;
 import com.daniil.hotelmanagementservice.service.RoomService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
 import java.util.List;
-import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @RestController
+@Profile("!reactive")
 @RequestMapping("/api/rooms")
 @RequiredArgsConstructor
 public class RoomController {
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final RoomService roomService;
+    private final CollectionVersions collectionVersions;
+    private final ObjectMapper objectMapper;
 
     /**
-     * Получить все доступные комнаты (информационный endpoint)
+     * Получить доступные комнаты (информационный endpoint), постранично по id.
+     * Курсор следующей страницы — в заголовке X-Next-Cursor; при совпадении If-None-Match с версией
+     * списка номеров отдаётся 304 без запроса к БД.
      */
     @GetMapping
     @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
-    public List<Room> getAvailableRooms() {
-        return roomService.getAllAvailableRooms();
+    public ResponseEntity<List<Room>> getAvailableRooms(@RequestParam(defaultValue = "100") int size,
+                                                        @RequestParam(required = false) String cursor,
+                                                        WebRequest request) {
+        if (request.checkNotModified(collectionVersions.roomsETag())) {
+            return null;
+        }
+        return withNextCursor(roomService.getAvailableRooms(size, cursor));
+    }
+
+    /**
+     * Все доступные комнаты одним ответом в формате NDJSON (по комнате на строку):
+     * строки пишутся по мере чтения из БД, весь список в памяти не собирается.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    public ResponseEntity<StreamingResponseBody> streamAvailableRooms(WebRequest request) {
+        if (request.checkNotModified(collectionVersions.roomsETag())) {
+            return null;
+        }
+        StreamingResponseBody body = out -> roomService.forEachAvailableRoom(room -> {
+            try {
+                out.write(objectMapper.writeValueAsBytes(room));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
     }
 
     /**
      * Алгоритм планирования: выбирает оптимальный номер (с наименьшим timesBooked)
-     * и временно блокирует его.
+     * и временно блокирует его. Если передан hotelId — только среди номеров этого отеля.
+     * Блокировка истекает через hotel.lease.duration, если не пришёл confirm/release.
+     * С checkIn/checkOut (ISO-даты, выезд не включается) удерживаются только ночи этого диапазона;
+     * confirm и release тогда вызываются с теми же датами.
      */
     @GetMapping("/allocate")
     @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
-    public Long allocateRoom() {
-        return roomService.allocateRoom()
-                .map(Room::getId)
-                .orElse(null);
+    public Long allocateRoom(@RequestParam(required = false) Long hotelId,
+                             @RequestParam(required = false) String owner,
+                             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate checkIn,
+                             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate checkOut) {
+        Optional<Room> room = isRange(checkIn, checkOut)
+                ? roomService.allocateRoom(hotelId, owner, checkIn, checkOut)
+                : roomService.allocateRoom(hotelId, owner);
+        return room.map(Room::getId).orElse(null);
+    }
+
+    /**
+     * Первые size номеров, свободных во все ночи [checkIn, checkOut), в порядке планирования.
+     */
+    @GetMapping("/free")
+    @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    public List<Long> findFreeRooms(@RequestParam(required = false) Long hotelId,
+                                    @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate checkIn,
+                                    @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate checkOut,
+                                    @RequestParam(defaultValue = "100") int size) {
+        return roomService.findFreeRooms(hotelId, checkIn, checkOut, size);
+    }
+
+    /**
+     * Фасетный поиск: id первых size совпавших номеров, их общее число и счётчики по типу, вместимости,
+     * ценовому диапазону и отелю. free=true — только свободные номера (например, свободные по типам в отеле).
+     */
+    @GetMapping("/facets")
+    @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    public RoomFacets facetSearch(@RequestParam(required = false) Long hotelId,
+                                  @RequestParam(required = false) String type,
+                                  @RequestParam(required = false) Integer minCapacity,
+                                  @RequestParam(required = false) String priceBand,
+                                  @RequestParam(defaultValue = "false") boolean free,
+                                  @RequestParam(defaultValue = "100") int size) {
+        return roomService.facetSearch(hotelId, type, minCapacity, priceBand, free, size);
+    }
+
+    /**
+     * Групповое бронирование: count номеров за один запрос и одну транзакцию.
+     * Возвращает пустой список, если свободных номеров меньше count.
+     */
+    @PostMapping("/allocate/batch")
+    @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    public List<Long> allocateRooms(@RequestParam int count,
+                                    @RequestParam(required = false) Long hotelId,
+                                    @RequestParam(required = false) String owner) {
+        return roomService.allocateRooms(count, hotelId, owner);
+    }
+
+    @PostMapping("/confirm/batch")
+    @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    public void confirmBookings(@RequestParam List<Long> ids, @RequestParam(required = false) String owner) {
+        roomService.confirmBookings(ids, owner);
+    }
+
+    @PostMapping("/release/batch")
+    @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    public void releaseRooms(@RequestParam List<Long> ids, @RequestParam(required = false) String owner) {
+        roomService.releaseRooms(ids, owner);
     }
 
     /**
      * Подтверждение бронирования — увеличивает счётчик timesBooked
-     * и снимает временную блокировку.
+     * и снимает временную блокировку (с checkIn/checkOut — удержание этих ночей).
      */
     @PostMapping("/{id}/confirm")
     @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
-    public void confirmBooking(@PathVariable Long id) {
-        roomService.confirmBooking(id);
+    public void confirmBooking(@PathVariable Long id, @RequestParam(required = false) String owner,
+                               @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate checkIn,
+                               @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate checkOut) {
+        if (isRange(checkIn, checkOut)) {
+            roomService.confirmBooking(id, owner, checkIn, checkOut);
+        } else {
+            roomService.confirmBooking(id, owner);
+        }
     }
 
     /**
-     * Освободить комнату (при отмене бронирования или неудаче)
+     * Освободить комнату (при отмене бронирования или неудаче);
+     * с checkIn/checkOut освобождаются ночи этого диапазона, в том числе подтверждённые.
      */
     @PostMapping("/{id}/release")
     @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
-    public void releaseRoom(@PathVariable Long id) {
-        roomService.releaseRoom(id);
+    public void releaseRoom(@PathVariable Long id, @RequestParam(required = false) String owner,
+                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate checkIn,
+                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate checkOut) {
+        if (isRange(checkIn, checkOut)) {
+            roomService.releaseRoom(id, owner, checkIn, checkOut);
+        } else {
+            roomService.releaseRoom(id, owner);
+        }
+    }
+
+    // Передана хотя бы одна дата — запрос по диапазону; без второй RoomService ответит 400
+    private static boolean isRange(LocalDate checkIn, LocalDate checkOut) {
+        return checkIn != null || checkOut != null;
     }
 
     /**
@@ -65,22 +192,51 @@ public class RoomController {
         return roomService.createRoom(room);
     }
 
+    /**
+     * Массовый импорт номеров (только админ): NDJSON или CSV с заголовком
+     * hotelId,number[,available][,timesBooked][,roomType][,capacity][,price].
+     * Тело читается потоком; импорт атомарен — при ошибке в любой строке не сохраняется ничего.
+     */
+    @PostMapping(value = "/import", consumes = {MediaType.APPLICATION_NDJSON_VALUE, "text/csv"})
+    @PreAuthorize("hasRole('ADMIN')")
+    public ImportResult importRooms(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                    InputStream body) {
+        try (Stream<Room> rooms = ImportReader.rooms(body, contentType, objectMapper)) {
+            return new ImportResult(roomService.importRooms(rooms));
+        }
+    }
+
+    /**
+     * Поиск номеров постранично. Курсор следующей страницы возвращается в заголовке X-Next-Cursor;
+     * с параметром cursor страница читается по ключам сортировки и не зависит от page.
+     */
     @GetMapping("/stats/searchRooms")
     @PreAuthorize("hasRole('ADMIN')")
-    public List<Room> searchRooms(
+    public ResponseEntity<List<Room>> searchRooms(
             @RequestParam(required = false) Long hotelId,
             @RequestParam(required = false) Boolean available,
             @RequestParam(required = false) String number,
             @RequestParam(defaultValue = "0") int minBooked,
             @RequestParam(defaultValue = "1000") int maxBooked,
-            @RequestParam(defaultValue = "id") String sort) {
+            @RequestParam(defaultValue = "id") String sort,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "100") int size,
+            @RequestParam(required = false) String cursor) {
+
+        return withNextCursor(roomService.searchRooms(hotelId, available, number, minBooked, maxBooked, sort, page, size, cursor));
+    }
 
-        return roomService.searchRooms(hotelId, available, number, minBooked, maxBooked, sort);
+    private static ResponseEntity<List<Room>> withNextCursor(RoomSearchPage page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return response.body(page.rooms());
     }
 
     @GetMapping("/stats/all")
     @PreAuthorize("hasRole('ADMIN')")
-    public Map<String, Object> getStats() {
+    public OccupancyStats getStats() {
         return roomService.getOccupancyStats();
     }
 }
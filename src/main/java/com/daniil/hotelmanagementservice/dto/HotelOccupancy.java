@@ -0,0 +1,17 @@
+package com.daniil.hotelmanagementservice.dto;
+
+/**
+ * Загрузка одного отеля; occupancyRate — в процентах
+ */
+public record HotelOccupancy(Long hotelId,
+                             String hotelName,
+                             long total,
+                             long occupied,
+                             long tempLocked,
+                             double occupancyRate) {
+
+    // используется конструктор-выражением в RoomRepository.countOccupancyByHotel()
+    public HotelOccupancy(Long hotelId, String hotelName, Long total, Long occupied, Long tempLocked) {
+        this(hotelId, hotelName, total, occupied, tempLocked, OccupancyStats.rate(occupied, total));
+    }
+}
@@ -0,0 +1,7 @@
+package com.daniil.hotelmanagementservice.dto;
+
+/**
+ * Итог массового импорта номеров
+ */
+public record ImportResult(long imported) {
+}
@@ -0,0 +1,25 @@
+package com.daniil.hotelmanagementservice.dto;
+
+import java.util.List;
+
+/**
+ * Ответ /api/rooms/stats/all; occupancyRate — в процентах
+ */
+public record OccupancyStats(long totalRooms,
+                             long availableRooms,
+                             long occupiedRooms,
+                             long tempLockedRooms,
+                             double occupancyRate,
+                             List<HotelOccupancy> byHotel) {
+
+    public static OccupancyStats of(List<HotelOccupancy> byHotel) {
+        long total = byHotel.stream().mapToLong(HotelOccupancy::total).sum();
+        long occupied = byHotel.stream().mapToLong(HotelOccupancy::occupied).sum();
+        long tempLocked = byHotel.stream().mapToLong(HotelOccupancy::tempLocked).sum();
+        return new OccupancyStats(total, total - occupied, occupied, tempLocked, rate(occupied, total), byHotel);
+    }
+
+    static double rate(long occupied, long total) {
+        return total == 0 ? 0 : ((double) occupied / total) * 100;
+    }
+}
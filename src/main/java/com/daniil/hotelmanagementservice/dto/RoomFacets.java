@@ -0,0 +1,16 @@
+package com.daniil.hotelmanagementservice.dto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Результат фасетного поиска: total совпадений, первые из них по id и число совпадений по значениям атрибутов.
+ * Счётчик измерения учитывает все фильтры, кроме фильтра по самому этому измерению.
+ */
+public record RoomFacets(long total,
+                         List<Long> roomIds,
+                         Map<String, Long> byType,
+                         Map<Integer, Long> byCapacity,
+                         Map<String, Long> byPriceBand,
+                         Map<Long, Long> byHotel) {
+}
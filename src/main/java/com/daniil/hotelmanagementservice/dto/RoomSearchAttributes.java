@@ -0,0 +1,23 @@
+package com.daniil.hotelmanagementservice.dto;
+
+import com.daniil.hotelmanagementservice.entity.Room;
+
+import java.math.BigDecimal;
+
+/**
+ * Атрибуты номера, по которым строятся индексы поиска в памяти (RoomFacetIndex, RoomNumberIndex)
+ */
+public record RoomSearchAttributes(Long id,
+                                   Long hotelId,
+                                   String number,
+                                   String roomType,
+                                   Integer capacity,
+                                   BigDecimal price,
+                                   boolean available,
+                                   boolean tempLocked) {
+
+    public static RoomSearchAttributes of(Room room) {
+        return new RoomSearchAttributes(room.getId(), room.getHotelId(), room.getNumber(), room.getRoomType(),
+                room.getCapacity(), room.getPrice(), room.isAvailable(), room.isTempLocked());
+    }
+}
@@ -0,0 +1,11 @@
+package com.daniil.hotelmanagementservice.dto;
+
+import com.daniil.hotelmanagementservice.entity.Room;
+
+import java.util.List;
+
+/**
+ * Страница поиска номеров; nextCursor — null, если это последняя страница
+ */
+public record RoomSearchPage(List<Room> rooms, String nextCursor) {
+}
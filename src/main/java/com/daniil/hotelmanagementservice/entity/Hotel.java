@@ -10,8 +10,10 @@ import lombok.*;
 @AllArgsConstructor
 @Builder
 public class Hotel {
+    // См. Room.id
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "hotel_seq")
+    @SequenceGenerator(name = "hotel_seq", sequenceName = "hotel_seq", allocationSize = 50)
     private Long id;
 
     private String name;
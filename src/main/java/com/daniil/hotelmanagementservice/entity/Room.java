@@ -1,17 +1,35 @@
 package com.daniil.hotelmanagementservice.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
+
+import java.math.BigDecimal;
+import java.time.Instant;
 
 @Entity
+// Индексы повторяют порядок планирования (timesBooked, id), чтобы выборка свободных номеров
+// шла по индексу без сортировки; findByAvailableTrue/countByAvailableFalse используют их префикс
+@Table(indexes = {
+        @Index(name = "idx_room_allocation", columnList = "available, tempLocked, timesBooked, id"),
+        @Index(name = "idx_room_hotel_allocation", columnList = "hotelId, available, tempLocked, timesBooked, id"),
+        // keyset-пагинация GET /api/rooms: available = true AND id > :cursor ORDER BY id
+        @Index(name = "idx_room_available_id", columnList = "available, id"),
+        @Index(name = "idx_room_lease_expires_at", columnList = "leaseExpiresAt")
+})
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
 public class Room {
+    // Последовательность с pooled-оптимизатором: id выдаются блоками без обращения к БД на каждую вставку,
+    // и Hibernate может отправлять INSERT пачками (с IDENTITY batching отключается).
+    // Вставки в обход Hibernate (R2DBC, SQL) берут id из той же последовательности сами, см. ReactiveSequences
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "room_seq")
+    @SequenceGenerator(name = "room_seq", sequenceName = "room_seq", allocationSize = 500)
     private Long id;
 
     private Long hotelId;
@@ -19,6 +37,24 @@ public class Room {
     private boolean available = true;
     private int timesBooked = 0;
 
+    // Атрибуты поиска; у номеров, созданных до их появления, — null и в фасеты они не попадают
+    private String roomType;
+    private Integer capacity;
+    private BigDecimal price;
+
     private boolean tempLocked = false; // для confirm-availability
+
+    // Аренда временной блокировки: по истечении номер освобождается LeaseReaper'ом.
+    // В JSON не попадает: владелец аренды — токен, которым подтверждают и снимают бронь
+    @JsonIgnore
+    private Instant leaseExpiresAt;
+    @JsonIgnore
+    private String leaseOwner;
+
+    // Проверяется при записи сущности (режим OPTIMISTIC); групповые и точечные UPDATE увеличивают его сами
+    @Version
+    @ColumnDefault("0")
+    @JsonIgnore
+    private long version;
 }
 
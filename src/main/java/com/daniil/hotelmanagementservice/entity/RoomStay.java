@@ -0,0 +1,41 @@
+package com.daniil.hotelmanagementservice.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Занятость номера на ночи [checkIn, checkOut): день выезда свободен для следующего заезда.
+ * Пока бронирование не подтверждено, интервал удерживается до holdExpiresAt.
+ */
+@Entity
+@Table(indexes = {
+        // пересечение интервалов: room_id = ? AND check_in < :checkOut AND check_out > :checkIn
+        @Index(name = "idx_room_stay_room", columnList = "roomId, checkIn"),
+        @Index(name = "idx_room_stay_hold_expires_at", columnList = "holdExpiresAt")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RoomStay {
+    // См. Room.id
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "room_stay_seq")
+    @SequenceGenerator(name = "room_stay_seq", sequenceName = "room_stay_seq", allocationSize = 50)
+    private Long id;
+
+    private Long roomId;
+    private Long hotelId;
+    private LocalDate checkIn;
+    private LocalDate checkOut;
+    private String owner;
+
+    private boolean confirmed;
+
+    // Срок удержания неподтверждённого интервала; после подтверждения — null
+    private Instant holdExpiresAt;
+}
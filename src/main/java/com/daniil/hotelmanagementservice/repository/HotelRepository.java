@@ -3,10 +3,14 @@ package com.daniil.hotelmanagementservice.repository;
 
 import com.daniil.hotelmanagementservice.entity.Hotel;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import java.util.List;
 
 public interface HotelRepository extends JpaRepository<Hotel, Long> {
 
+    // Отпечаток содержимого для ETag: отели только добавляются, поэтому хватает количества и последнего id
+    @Query("SELECT CONCAT(CAST(COUNT(h) AS String), '-', CAST(COALESCE(MAX(h.id), 0) AS String)) FROM Hotel h")
+    String contentStamp();
 }
 
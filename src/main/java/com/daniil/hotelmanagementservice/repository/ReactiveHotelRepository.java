@@ -0,0 +1,56 @@
+package com.daniil.hotelmanagementservice.repository;
+
+import com.daniil.hotelmanagementservice.entity.Hotel;
+import io.r2dbc.spi.Readable;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Доступ к hotel через R2DBC для профиля reactive.
+ */
+@Repository
+@Profile("reactive")
+@RequiredArgsConstructor
+public class ReactiveHotelRepository {
+
+    private final DatabaseClient databaseClient;
+    private final ReactiveSequences sequences;
+
+    public Flux<Hotel> findAll() {
+        return databaseClient.sql("SELECT * FROM hotel ORDER BY id ASC")
+                .map(ReactiveHotelRepository::toHotel)
+                .all();
+    }
+
+    public Mono<Hotel> findById(Long id) {
+        return databaseClient.sql("SELECT * FROM hotel WHERE id = :id")
+                .bind("id", id)
+                .map(ReactiveHotelRepository::toHotel)
+                .one();
+    }
+
+    public Mono<Hotel> insert(Hotel hotel) {
+        return sequences.nextValue("hotel_seq").flatMap(id -> {
+            DatabaseClient.GenericExecuteSpec spec = databaseClient.sql("INSERT INTO hotel (id, name, address) VALUES (:id, :name, :address)")
+                    .bind("id", id);
+            spec = hotel.getName() == null ? spec.bindNull("name", String.class) : spec.bind("name", hotel.getName());
+            spec = hotel.getAddress() == null ? spec.bindNull("address", String.class) : spec.bind("address", hotel.getAddress());
+            return spec.fetch().rowsUpdated().map(inserted -> {
+                hotel.setId(id);
+                return hotel;
+            });
+        });
+    }
+
+    private static Hotel toHotel(Readable row) {
+        return Hotel.builder()
+                .id(row.get("id", Long.class))
+                .name(row.get("name", String.class))
+                .address(row.get("address", String.class))
+                .build();
+    }
+}
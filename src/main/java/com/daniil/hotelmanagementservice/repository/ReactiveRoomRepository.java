@@ -0,0 +1,173 @@
+package com.daniil.hotelmanagementservice.repository;
+
+import com.daniil.hotelmanagementservice.entity.Room;
+import io.r2dbc.spi.Readable;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Collection;
+
+/**
+ * Доступ к room через R2DBC для профиля reactive. Таблицу создаёт JPA (ddl-auto), поэтому SQL
+ * пишется по её колонкам; запросы планирования идут по тем же индексам, что и в RoomRepository.
+ */
+@Repository
+@Profile("reactive")
+@RequiredArgsConstructor
+public class ReactiveRoomRepository {
+
+    private static final String AVAILABLE = "available = TRUE AND temp_locked = FALSE";
+    private static final String ALLOCATION_ORDER = " ORDER BY times_booked ASC, id ASC";
+
+    private final DatabaseClient databaseClient;
+    private final ReactiveSequences sequences;
+
+    public Mono<Room> findById(Long id) {
+        return databaseClient.sql("SELECT * FROM room WHERE id = :id")
+                .bind("id", id)
+                .map(ReactiveRoomRepository::toRoom)
+                .one();
+    }
+
+    /**
+     * Keyset-страница свободных номеров по возрастанию id (индекс idx_room_available_id).
+     */
+    public Flux<Room> findAvailableAfter(long afterId, int limit) {
+        return databaseClient.sql("SELECT * FROM room WHERE available = TRUE AND id > :after ORDER BY id ASC LIMIT :limit")
+                .bind("after", afterId)
+                .bind("limit", limit)
+                .map(ReactiveRoomRepository::toRoom)
+                .all();
+    }
+
+    public Flux<Room> streamAvailable() {
+        return databaseClient.sql("SELECT * FROM room WHERE available = TRUE ORDER BY id ASC")
+                .map(ReactiveRoomRepository::toRoom)
+                .all();
+    }
+
+    /**
+     * Первые limit кандидатов в порядке планирования, без блокировки: захват делает {@link #markTempLocked}.
+     */
+    public Flux<Room> findAllocationCandidates(Long hotelId, int limit) {
+        DatabaseClient.GenericExecuteSpec spec = hotelId == null
+                ? databaseClient.sql("SELECT * FROM room WHERE " + AVAILABLE + ALLOCATION_ORDER + " LIMIT :limit")
+                : databaseClient.sql("SELECT * FROM room WHERE hotel_id = :hotelId AND " + AVAILABLE + ALLOCATION_ORDER + " LIMIT :limit")
+                        .bind("hotelId", hotelId);
+        return spec.bind("limit", limit)
+                .map(ReactiveRoomRepository::toRoom)
+                .all();
+    }
+
+    /**
+     * Блокирует строки кандидатов до конца транзакции — как findAndLockAvailableRooms(limit).
+     */
+    public Flux<Room> findAndLockAllocationCandidates(Long hotelId, int limit) {
+        DatabaseClient.GenericExecuteSpec spec = hotelId == null
+                ? databaseClient.sql("SELECT * FROM room WHERE " + AVAILABLE + ALLOCATION_ORDER + " LIMIT :limit FOR UPDATE")
+                : databaseClient.sql("SELECT * FROM room WHERE hotel_id = :hotelId AND " + AVAILABLE + ALLOCATION_ORDER
+                        + " LIMIT :limit FOR UPDATE").bind("hotelId", hotelId);
+        return spec.bind("limit", limit)
+                .map(ReactiveRoomRepository::toRoom)
+                .all();
+    }
+
+    // Порядок по id, как в RoomRepository.findAndLockAllById
+    public Flux<Room> findAndLockAllById(Collection<Long> ids) {
+        return databaseClient.sql("SELECT * FROM room WHERE id IN (:ids) ORDER BY id ASC FOR UPDATE")
+                .bind("ids", ids)
+                .map(ReactiveRoomRepository::toRoom)
+                .all();
+    }
+
+    /**
+     * Условный захват: строка меняется, только если номер всё ещё свободен.
+     *
+     * @return сколько номеров захвачено
+     */
+    public Mono<Long> markTempLocked(Collection<Long> ids, Instant expiresAt, String owner) {
+        return bindOwner(databaseClient.sql("UPDATE room SET version = version + 1, temp_locked = TRUE, lease_expires_at = :expiresAt, lease_owner = :owner"
+                        + " WHERE id IN (:ids) AND " + AVAILABLE)
+                        .bind("ids", ids)
+                        .bind("expiresAt", expiresAt), owner)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    public Mono<Long> confirmAll(Collection<Long> ids) {
+        return databaseClient.sql("UPDATE room SET version = version + 1, times_booked = times_booked + 1, temp_locked = FALSE,"
+                        + " lease_expires_at = NULL, lease_owner = NULL WHERE id IN (:ids) AND temp_locked = TRUE")
+                .bind("ids", ids)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    public Mono<Long> releaseAll(Collection<Long> ids) {
+        return databaseClient.sql("UPDATE room SET version = version + 1, temp_locked = FALSE, lease_expires_at = NULL, lease_owner = NULL"
+                        + " WHERE id IN (:ids) AND temp_locked = TRUE")
+                .bind("ids", ids)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    public Mono<Room> insert(Room room) {
+        return sequences.nextValue("room_seq")
+                .flatMap(id -> insert(id, room))
+                .map(id -> {
+                    room.setId(id);
+                    return room;
+                });
+    }
+
+    private Mono<Long> insert(Long id, Room room) {
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql("INSERT INTO room (id, hotel_id, number, available,"
+                        + " times_booked, temp_locked, lease_expires_at, lease_owner, room_type, capacity, price, version)"
+                        + " VALUES (:id, :hotelId, :number, :available, :timesBooked, :tempLocked, :expiresAt, :owner,"
+                        + " :roomType, :capacity, :price, 0)")
+                .bind("id", id)
+                .bind("available", room.isAvailable())
+                .bind("timesBooked", room.getTimesBooked())
+                .bind("tempLocked", room.isTempLocked());
+        spec = bindNullable(spec, "hotelId", room.getHotelId(), Long.class);
+        spec = bindNullable(spec, "number", room.getNumber(), String.class);
+        spec = bindNullable(spec, "expiresAt", room.getLeaseExpiresAt(), Instant.class);
+        spec = bindNullable(spec, "roomType", room.getRoomType(), String.class);
+        spec = bindNullable(spec, "capacity", room.getCapacity(), Integer.class);
+        spec = bindNullable(spec, "price", room.getPrice(), BigDecimal.class);
+        return bindOwner(spec, room.getLeaseOwner())
+                .fetch()
+                .rowsUpdated()
+                .thenReturn(id);
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bindOwner(DatabaseClient.GenericExecuteSpec spec, String owner) {
+        return bindNullable(spec, "owner", owner, String.class);
+    }
+
+    private static <T> DatabaseClient.GenericExecuteSpec bindNullable(DatabaseClient.GenericExecuteSpec spec,
+                                                                      String name, T value, Class<T> type) {
+        return value == null ? spec.bindNull(name, type) : spec.bind(name, value);
+    }
+
+    static Room toRoom(Readable row) {
+        return Room.builder()
+                .id(row.get("id", Long.class))
+                .hotelId(row.get("hotel_id", Long.class))
+                .number(row.get("number", String.class))
+                .available(Boolean.TRUE.equals(row.get("available", Boolean.class)))
+                .timesBooked(row.get("times_booked", Integer.class))
+                .tempLocked(Boolean.TRUE.equals(row.get("temp_locked", Boolean.class)))
+                .leaseExpiresAt(row.get("lease_expires_at", Instant.class))
+                .leaseOwner(row.get("lease_owner", String.class))
+                .roomType(row.get("room_type", String.class))
+                .capacity(row.get("capacity", Integer.class))
+                .price(row.get("price", BigDecimal.class))
+                .build();
+    }
+}
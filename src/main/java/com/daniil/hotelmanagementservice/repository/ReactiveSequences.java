@@ -0,0 +1,34 @@
+package com.daniil.hotelmanagementservice.repository;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.r2dbc.dialect.DialectResolver;
+import org.springframework.data.relational.core.dialect.IdGeneration;
+import org.springframework.data.relational.core.sql.SqlIdentifier;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Следующие значения последовательностей JPA-сущностей для вставок через R2DBC. Синтаксис зависит от СУБД
+ * (NEXT VALUE FOR в H2, nextval в PostgreSQL), поэтому запрос строит диалект Spring Data R2DBC.
+ * Значение, взятое в обход pooled-оптимизатора Hibernate, с его блоками не пересекается: блок Hibernate
+ * заканчивается на значении, которое он сам получил из последовательности.
+ */
+@Component
+@Profile("reactive")
+public class ReactiveSequences {
+
+    private final DatabaseClient databaseClient;
+    private final IdGeneration idGeneration;
+
+    public ReactiveSequences(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+        this.idGeneration = DialectResolver.getDialect(databaseClient.getConnectionFactory()).getIdGeneration();
+    }
+
+    public Mono<Long> nextValue(String sequence) {
+        return databaseClient.sql(idGeneration.createSequenceQuery(SqlIdentifier.unquoted(sequence)))
+                .map(row -> row.get(0, Long.class))
+                .one();
+    }
+}
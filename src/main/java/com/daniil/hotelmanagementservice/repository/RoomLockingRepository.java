@@ -0,0 +1,47 @@
+package com.daniil.hotelmanagementservice.repository;
+
+import com.daniil.hotelmanagementservice.entity.Room;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+public interface RoomLockingRepository {
+
+    /**
+     * Заблокировать (FOR UPDATE SKIP LOCKED) ровно один свободный номер с наименьшим (timesBooked, id).
+     * Строки, уже заблокированные другими транзакциями, пропускаются без ожидания.
+     *
+     * @param hotelId отель; null — любой отель
+     */
+    Optional<Room> lockNextAvailableRoom(Long hotelId);
+
+    /**
+     * То же, что {@link #lockNextAvailableRoom(Long)}, но до limit номеров за один запрос.
+     */
+    List<Room> lockNextAvailableRooms(Long hotelId, int limit);
+
+    /**
+     * Заблокировать номер по id, если он свободен и не заблокирован другой транзакцией.
+     */
+    Optional<Room> lockIfAvailable(Long roomId);
+
+    /**
+     * Переходы аренды одним условным UPDATE без предварительного SELECT ... FOR UPDATE.
+     * Возвращается строка после UPDATE (на H2 — тем же запросом через FINAL TABLE);
+     * пусто, если условие не выполнилось. Номер не должен быть загружен в текущий контекст.
+     */
+    Optional<Room> leaseIfAvailable(Long roomId, Instant expiresAt, String owner);
+
+    /**
+     * Временно заблокированный номер: снять аренду и увеличить timesBooked.
+     *
+     * @param owner если указан, аренда другого владельца не подтверждается
+     */
+    Optional<Room> confirmLease(Long roomId, String owner);
+
+    /**
+     * Временно заблокированный номер: снять аренду.
+     */
+    Optional<Room> releaseLease(Long roomId, String owner);
+}
@@ -0,0 +1,168 @@
+package com.daniil.hotelmanagementservice.repository;
+
+import com.daniil.hotelmanagementservice.entity.Room;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.LockMode;
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.query.SelectionQuery;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+public class RoomLockingRepositoryImpl implements RoomLockingRepository {
+
+    private static final int CANDIDATE_BATCH = 16;
+
+    private static final String AVAILABLE = "r.available = true AND r.tempLocked = false";
+    private static final String ORDER = " ORDER BY r.timesBooked ASC, r.id ASC";
+
+    private static final String CLEAR_LEASE = "temp_locked = FALSE, lease_expires_at = NULL, lease_owner = NULL";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private Boolean h2;
+
+    @Override
+    public Optional<Room> lockNextAvailableRoom(Long hotelId) {
+        return lockNextAvailableRooms(hotelId, 1).stream().findFirst();
+    }
+
+    @Override
+    public List<Room> lockNextAvailableRooms(Long hotelId, int limit) {
+        if (isH2()) {
+            return lockFirstUnlockedCandidates(hotelId, limit);
+        }
+        return skipLocked(availableRooms("SELECT r", hotelId, Room.class))
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public Optional<Room> lockIfAvailable(Long roomId) {
+        if (isH2()) {
+            @SuppressWarnings("unchecked")
+            List<Room> rooms = entityManager.createNativeQuery(
+                            "SELECT * FROM room WHERE id = :id AND available = TRUE AND temp_locked = FALSE"
+                                    + " FOR UPDATE SKIP LOCKED", Room.class)
+                    .setParameter("id", roomId)
+                    .getResultList();
+            return rooms.stream().findFirst();
+        }
+        return skipLocked(entityManager.createQuery("SELECT r FROM Room r WHERE r.id = :id AND " + AVAILABLE, Room.class))
+                .setParameter("id", roomId)
+                .getResultStream()
+                .findFirst();
+    }
+
+    @Override
+    public Optional<Room> leaseIfAvailable(Long roomId, Instant expiresAt, String owner) {
+        return updateReturning("temp_locked = TRUE, lease_expires_at = :expiresAt, lease_owner = :owner",
+                "available = TRUE AND temp_locked = FALSE", roomId, query -> query
+                        .setParameter("expiresAt", expiresAt)
+                        .setParameter("owner", owner));
+    }
+
+    @Override
+    public Optional<Room> confirmLease(Long roomId, String owner) {
+        return updateReturning("times_booked = times_booked + 1, " + CLEAR_LEASE,
+                leasedBy(owner), roomId, query -> bindOwner(query, owner));
+    }
+
+    @Override
+    public Optional<Room> releaseLease(Long roomId, String owner) {
+        return updateReturning(CLEAR_LEASE, leasedBy(owner), roomId, query -> bindOwner(query, owner));
+    }
+
+    // Без владельца условие не добавляется: ":owner IS NULL" с NULL-параметром H2 не типизирует
+    private static String leasedBy(String owner) {
+        return "temp_locked = TRUE" + (owner == null ? "" : " AND (lease_owner IS NULL OR lease_owner = :owner)");
+    }
+
+    private static void bindOwner(Query query, String owner) {
+        if (owner != null) {
+            query.setParameter("owner", owner);
+        }
+    }
+
+    /**
+     * На H2 — один запрос SELECT * FROM FINAL TABLE (UPDATE ...); на других СУБД — UPDATE
+     * и чтение строки по id, только если UPDATE её изменил.
+     */
+    private Optional<Room> updateReturning(String set, String condition, Long roomId, Consumer<Query> binder) {
+        String update = "UPDATE room SET version = version + 1, " + set + " WHERE id = :id AND " + condition;
+        if (isH2()) {
+            Query query = entityManager.createNativeQuery("SELECT * FROM FINAL TABLE (" + update + ")", Room.class)
+                    .setParameter("id", roomId);
+            binder.accept(query);
+            @SuppressWarnings("unchecked")
+            List<Room> rooms = query.getResultList();
+            return rooms.stream().findFirst();
+        }
+        Query query = entityManager.createNativeQuery(update).setParameter("id", roomId);
+        binder.accept(query);
+        if (query.executeUpdate() == 0) {
+            return Optional.empty();
+        }
+        return Optional.of((Room) entityManager.createNativeQuery("SELECT * FROM room WHERE id = :id", Room.class)
+                .setParameter("id", roomId)
+                .getSingleResult());
+    }
+
+    /**
+     * H2 применяет FETCH FIRST до SKIP LOCKED: если первая строка занята, запрос вернёт пустой результат.
+     * Поэтому кандидаты читаются без блокировки, а SKIP LOCKED берётся построчно.
+     */
+    private List<Room> lockFirstUnlockedCandidates(Long hotelId, int limit) {
+        List<Room> locked = new ArrayList<>(limit);
+        int batch = Math.max(limit, CANDIDATE_BATCH);
+        for (int offset = 0; ; offset += batch) {
+            List<Long> candidates = availableRooms("SELECT r.id", hotelId, Long.class)
+                    .setFirstResult(offset)
+                    .setMaxResults(batch)
+                    .getResultList();
+            for (Long roomId : candidates) {
+                lockIfAvailable(roomId).ifPresent(locked::add);
+                if (locked.size() == limit) {
+                    return locked;
+                }
+            }
+            if (candidates.size() < batch) {
+                return locked;
+            }
+        }
+    }
+
+    // FOR UPDATE SKIP LOCKED: в JPA такого режима блокировки нет, он задаётся через Hibernate
+    private static <T> TypedQuery<T> skipLocked(TypedQuery<T> query) {
+        query.unwrap(SelectionQuery.class).setHibernateLockMode(LockMode.UPGRADE_SKIPLOCKED);
+        return query;
+    }
+
+    private <T> TypedQuery<T> availableRooms(String select, Long hotelId, Class<T> type) {
+        String hotelFilter = hotelId == null ? "" : " AND r.hotelId = :hotelId";
+        TypedQuery<T> query = entityManager.createQuery(
+                select + " FROM Room r WHERE " + AVAILABLE + hotelFilter + ORDER, type);
+        if (hotelId != null) {
+            query.setParameter("hotelId", hotelId);
+        }
+        return query;
+    }
+
+    private boolean isH2() {
+        if (h2 == null) {
+            h2 = entityManager.getEntityManagerFactory()
+                    .unwrap(SessionFactoryImplementor.class)
+                    .getJdbcServices()
+                    .getDialect() instanceof H2Dialect;
+        }
+        return h2;
+    }
+}
@@ -1,36 +1,136 @@
 package com.daniil.hotelmanagementservice.repository;
 
 
+import com.daniil.hotelmanagementservice.dto.HotelOccupancy;
+import com.daniil.hotelmanagementservice.dto.RoomSearchAttributes;
 import com.daniil.hotelmanagementservice.entity.Room;
 import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 
 import com.daniil.hotelmanagementservice.entity.Room;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface RoomRepository extends JpaRepository<Room, Long> {
+public interface RoomRepository extends JpaRepository<Room, Long>, JpaSpecificationExecutor<Room>, RoomLockingRepository {
+
+    int STREAM_FETCH_SIZE = 500;
 
     List<Room> findByAvailableTrue();
 
+    Window<Room> findByAvailableTrue(ScrollPosition position, Sort sort, Limit limit);
+
+    // Курсор БД без загрузки всего результата; сущности не отслеживаются на изменения
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT r FROM Room r WHERE r.available = true ORDER BY r.id ASC")
+    Stream<Room> streamAvailableRooms();
+
+    // Пересборка индексов поиска: курсор по узкой проекции, сущности в контекст не попадают
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE))
+    @Query("SELECT new com.daniil.hotelmanagementservice.dto.RoomSearchAttributes(r.id, r.hotelId, r.number,"
+            + " r.roomType, r.capacity, r.price, r.available, r.tempLocked) FROM Room r ORDER BY r.id ASC")
+    Stream<RoomSearchAttributes> streamSearchAttributes();
+
     List<Room> findByHotelId(Long hotelId);
 
+    List<Room> findByAvailableTrueAndTempLockedFalse();
+
+    // Блокируются только первые limit строк в порядке планирования, а не все свободные номера
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     @Query("SELECT r FROM Room r WHERE r.available = true AND r.tempLocked = false ORDER BY r.timesBooked ASC, r.id ASC")
-    List<Room> findAndLockAvailableRooms();
+    List<Room> findAndLockAvailableRooms(Limit limit);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM Room r WHERE r.hotelId = :hotelId AND r.available = true AND r.tempLocked = false ORDER BY r.timesBooked ASC, r.id ASC")
+    List<Room> findAndLockAvailableRoomsByHotelId(Long hotelId, Limit limit);
+
+    // Кандидаты без блокировки для режима OPTIMISTIC: первые limit в порядке планирования
+    @Query("SELECT r FROM Room r WHERE r.available = true AND r.tempLocked = false ORDER BY r.timesBooked ASC, r.id ASC")
+    List<Room> findAllocationCandidates(Limit limit);
+
+    @Query("SELECT r FROM Room r WHERE r.hotelId = :hotelId AND r.available = true AND r.tempLocked = false ORDER BY r.timesBooked ASC, r.id ASC")
+    List<Room> findAllocationCandidatesByHotelId(Long hotelId, Limit limit);
 
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     Optional<Room> findById(Long id);
 
     long countByAvailableFalse();
+
+    /**
+     * Загрузка по отелям одним GROUP BY. Номера без существующего отеля не учитываются.
+     */
+    @Query("SELECT new com.daniil.hotelmanagementservice.dto.HotelOccupancy(h.id, h.name, COUNT(r.id),"
+            + " COALESCE(SUM(CASE WHEN r.available = false THEN 1 ELSE 0 END), 0),"
+            + " COALESCE(SUM(CASE WHEN r.tempLocked = true THEN 1 ELSE 0 END), 0))"
+            + " FROM Hotel h LEFT JOIN Room r ON r.hotelId = h.id"
+            + " GROUP BY h.id, h.name ORDER BY h.id")
+    List<HotelOccupancy> countOccupancyByHotel();
+
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Room r SET r.version = r.version + 1, r.tempLocked = true, r.leaseExpiresAt = :expiresAt, r.leaseOwner = :owner"
+            + " WHERE r.id IN :ids AND r.available = true AND r.tempLocked = false")
+    int markTempLocked(Collection<Long> ids, Instant expiresAt, String owner);
+
+    // Порядок по id: две групповые операции над пересекающимися номерами не заблокируют друг друга
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM Room r WHERE r.id IN :ids ORDER BY r.id ASC")
+    List<Room> findAndLockAllById(Collection<Long> ids);
+
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Room r SET r.version = r.version + 1, r.timesBooked = r.timesBooked + 1, r.tempLocked = false, r.leaseExpiresAt = null, r.leaseOwner = null"
+            + " WHERE r.id IN :ids AND r.tempLocked = true AND (:owner IS NULL OR r.leaseOwner IS NULL OR r.leaseOwner = :owner)")
+    int confirmAll(Collection<Long> ids, String owner);
+
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Room r SET r.version = r.version + 1, r.tempLocked = false, r.leaseExpiresAt = null, r.leaseOwner = null"
+            + " WHERE r.id IN :ids AND r.tempLocked = true AND (:owner IS NULL OR r.leaseOwner IS NULL OR r.leaseOwner = :owner)")
+    int releaseAll(Collection<Long> ids, String owner);
+
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Room r SET r.version = r.version + 1, r.timesBooked = r.timesBooked + 1 WHERE r.id = :id")
+    int incrementTimesBooked(Long id);
+
+    // Выгрузка накопленных в памяти приращений (hotel.times-booked.mode: write-behind)
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Room r SET r.version = r.version + 1, r.timesBooked = r.timesBooked + :delta WHERE r.id IN :ids")
+    int addTimesBooked(Collection<Long> ids, int delta);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM Room r WHERE r.leaseExpiresAt < :now ORDER BY r.leaseExpiresAt ASC")
+    List<Room> findAndLockExpiredLeases(Instant now, Pageable page);
+
+    // Повторная проверка срока: номер могли подтвердить между поиском и UPDATE
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Room r SET r.version = r.version + 1, r.tempLocked = false, r.leaseExpiresAt = null, r.leaseOwner = null"
+            + " WHERE r.id IN :ids AND r.leaseExpiresAt < :now")
+    int releaseExpired(Collection<Long> ids, Instant now);
+
+    // Отпечаток содержимого для ETag: вставка меняет количество, любой UPDATE номера сдвигает version
+    @Query("SELECT CONCAT(CAST(COUNT(r) AS String), '-', CAST(COALESCE(SUM(r.version), 0) AS String)) FROM Room r")
+    String contentStamp();
 }
 
 
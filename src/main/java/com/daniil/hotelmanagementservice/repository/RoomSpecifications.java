@@ -0,0 +1,53 @@
+package com.daniil.hotelmanagementservice.repository;
+
+import com.daniil.hotelmanagementservice.entity.Room;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Динамические условия поиска номеров; null-фильтры в запрос не попадают.
+ */
+public final class RoomSpecifications {
+
+    private static final char LIKE_ESCAPE = '\\';
+
+    private RoomSpecifications() {
+    }
+
+    public static Specification<Room> search(Long hotelId, Boolean available, String numberPattern,
+                                             int minTimesBooked, int maxTimesBooked) {
+        return search(hotelId, available, numberPattern, null, minTimesBooked, maxTimesBooked);
+    }
+
+    /**
+     * @param roomIds id номеров, уже найденных по numberPattern индексом в памяти; если задан,
+     *                заменяет LIKE по number (который не может использовать индекс БД)
+     */
+    public static Specification<Room> search(Long hotelId, Boolean available, String numberPattern, Collection<Long> roomIds,
+                                             int minTimesBooked, int maxTimesBooked) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (hotelId != null) {
+                predicates.add(cb.equal(root.get("hotelId"), hotelId));
+            }
+            if (available != null) {
+                predicates.add(cb.equal(root.get("available"), available));
+            }
+            if (roomIds != null) {
+                predicates.add(root.get("id").in(roomIds));
+            } else if (numberPattern != null) {
+                predicates.add(cb.like(root.get("number"), "%" + escapeLike(numberPattern) + "%", LIKE_ESCAPE));
+            }
+            predicates.add(cb.between(root.get("timesBooked"), minTimesBooked, maxTimesBooked));
+            return cb.and(predicates.toArray(Predicate[]::new));
+        };
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -0,0 +1,62 @@
+package com.daniil.hotelmanagementservice.repository;
+
+import com.daniil.hotelmanagementservice.entity.RoomStay;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface RoomStayRepository extends JpaRepository<RoomStay, Long> {
+
+    // Интервалы полуоткрытые: выезд в день заезда следующего гостя пересечением не считается
+    @Query("SELECT COUNT(s) > 0 FROM RoomStay s WHERE s.roomId = :roomId AND s.checkIn < :checkOut AND s.checkOut > :checkIn")
+    boolean existsOverlapping(Long roomId, LocalDate checkIn, LocalDate checkOut);
+
+    /**
+     * Свободные в [checkIn, checkOut) номера отеля в порядке планирования — запасной путь,
+     * когда диапазон выходит за горизонт календаря в памяти.
+     */
+    @Query("SELECT r.id FROM Room r WHERE r.hotelId = :hotelId AND r.available = true"
+            + " AND NOT EXISTS (SELECT s.id FROM RoomStay s WHERE s.roomId = r.id AND s.checkIn < :checkOut AND s.checkOut > :checkIn)"
+            + " ORDER BY r.timesBooked ASC, r.id ASC")
+    List<Long> findFreeRoomIds(Long hotelId, LocalDate checkIn, LocalDate checkOut, Limit limit);
+
+    @Query("SELECT r.id FROM Room r WHERE r.available = true"
+            + " AND NOT EXISTS (SELECT s.id FROM RoomStay s WHERE s.roomId = r.id AND s.checkIn < :checkOut AND s.checkOut > :checkIn)"
+            + " ORDER BY r.timesBooked ASC, r.id ASC")
+    List<Long> findFreeRoomIds(LocalDate checkIn, LocalDate checkOut, Limit limit);
+
+    // Интервалы одного номера не пересекаются, поэтому номер и даты однозначно задают интервал
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE RoomStay s SET s.confirmed = true, s.holdExpiresAt = null"
+            + " WHERE s.roomId = :roomId AND s.checkIn = :checkIn AND s.checkOut = :checkOut AND s.confirmed = false"
+            + " AND (:owner IS NULL OR s.owner IS NULL OR s.owner = :owner)")
+    int confirmHold(Long roomId, LocalDate checkIn, LocalDate checkOut, String owner);
+
+    // Снимает и удержание, и подтверждённый интервал (отмена бронирования)
+    @Modifying(clearAutomatically = true)
+    @Query("DELETE FROM RoomStay s WHERE s.roomId = :roomId AND s.checkIn = :checkIn AND s.checkOut = :checkOut"
+            + " AND (:owner IS NULL OR s.owner IS NULL OR s.owner = :owner)")
+    int deleteStay(Long roomId, LocalDate checkIn, LocalDate checkOut, String owner);
+
+    List<RoomStay> findByCheckOutAfter(LocalDate date);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM RoomStay s WHERE s.holdExpiresAt < :now ORDER BY s.holdExpiresAt ASC")
+    List<RoomStay> findAndLockExpiredHolds(Instant now, Pageable page);
+
+    // Повторная проверка срока: интервал могли подтвердить между поиском и DELETE
+    @Modifying(clearAutomatically = true)
+    @Query("DELETE FROM RoomStay s WHERE s.id IN :ids AND s.confirmed = false AND s.holdExpiresAt < :now")
+    int deleteExpiredHolds(Collection<Long> ids, Instant now);
+}
@@ -0,0 +1,86 @@
+package com.daniil.hotelmanagementservice.service;
+
+import com.daniil.hotelmanagementservice.repository.HotelRepository;
+import com.daniil.hotelmanagementservice.repository.RoomRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Версии списков отелей и номеров для ETag. Версия — отпечаток содержимого таблицы в БД
+ * (количество строк и сумма версий номеров / последний id отеля), поэтому у всех инстансов
+ * за балансировщиком она одинакова и меняется только вместе с данными.
+ * Отпечаток перечитывается при первом запросе ETag после изменения через этот инстанс
+ * и в фоне раз в hotel.etag.refresh-interval — так видны изменения через другие инстансы.
+ */
+@Component
+public class CollectionVersions {
+
+    private final Stamp hotels;
+    private final Stamp rooms;
+
+    public CollectionVersions(HotelRepository hotelRepository, RoomRepository roomRepository) {
+        this.hotels = new Stamp("hotels", hotelRepository::contentStamp);
+        this.rooms = new Stamp("rooms", roomRepository::contentStamp);
+    }
+
+    public String hotelsETag() {
+        return hotels.eTag();
+    }
+
+    public String roomsETag() {
+        return rooms.eTag();
+    }
+
+    public void hotelsChanged() {
+        hotels.changed();
+    }
+
+    public void roomsChanged() {
+        rooms.changed();
+    }
+
+    @Scheduled(initialDelayString = "${hotel.etag.refresh-interval:PT1M}",
+            fixedDelayString = "${hotel.etag.refresh-interval:PT1M}")
+    public void refresh() {
+        hotels.reload();
+        rooms.reload();
+    }
+
+    private static final class Stamp {
+
+        private final String collection;
+        private final Supplier<String> loader;
+        // Пока true, следующий запрос ETag перечитает отпечаток; сбрасывается до чтения,
+        // чтобы изменение во время чтения снова его выставило
+        private final AtomicBoolean stale = new AtomicBoolean(true);
+        private volatile String eTag;
+
+        Stamp(String collection, Supplier<String> loader) {
+            this.collection = collection;
+            this.loader = loader;
+        }
+
+        String eTag() {
+            if (stale.getAndSet(false) || eTag == null) {
+                try {
+                    reload();
+                } catch (RuntimeException e) {
+                    stale.set(true);
+                    throw e;
+                }
+            }
+            return eTag;
+        }
+
+        void changed() {
+            stale.set(true);
+        }
+
+        void reload() {
+            eTag = "\"" + collection + "-" + loader.get() + "\"";
+        }
+    }
+}
@@ -3,23 +3,107 @@ package com.daniil.hotelmanagementservice.service;
 
 import com.daniil.hotelmanagementservice.entity.Hotel;
 import com.daniil.hotelmanagementservice.repository.HotelRepository;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class HotelService {
 
+    // Настройки кэшей (размер, TTL) — spring.cache.caffeine.spec
+    public static final String HOTELS_CACHE = "hotels";
+    public static final String HOTEL_CACHE = "hotel";
+
     private final HotelRepository hotelRepository;
+    private final OccupancyCounters occupancyCounters;
+    private final CollectionVersions collectionVersions;
+    private final EntityManager entityManager;
+    private final CacheManager cacheManager;
+
+    static final int IMPORT_CHUNK = 500;
 
+    @Cacheable(HOTELS_CACHE)
     public List<Hotel> getAllHotels() {
         return hotelRepository.findAll();
     }
 
+    @Cacheable(cacheNames = HOTEL_CACHE, unless = "#result == null")
+    public Optional<Hotel> getHotel(Long id) {
+        return hotelRepository.findById(id);
+    }
+
+    /**
+     * Список отелей сбрасывается, новый отель сразу кладётся в кэш по id.
+     */
+    @Caching(evict = @CacheEvict(cacheNames = HOTELS_CACHE, allEntries = true),
+            put = @CachePut(cacheNames = HOTEL_CACHE, key = "#result.id"))
     public Hotel createHotel(Hotel hotel) {
-        return hotelRepository.save(hotel);
+        Hotel saved = hotelRepository.save(hotel);
+        occupancyCounters.hotelCreated(saved);
+        collectionVersions.hotelsChanged();
+        return saved;
+    }
+
+    /**
+     * Импорт отелей одной транзакцией пачками по IMPORT_CHUNK (см. RoomService.importRooms).
+     * Возвращаются созданные отели с id в порядке входа — по ним импортируются номера.
+     * Список отелей сбрасывается после коммита: @CacheEvict сработал бы до него, и чтение между
+     * сбросом и коммитом вернуло бы в кэш список без новых отелей.
+     */
+    @Transactional
+    public List<Hotel> importHotels(Stream<Hotel> hotels) {
+        List<Hotel> imported = new ArrayList<>();
+        hotels.forEach(hotel -> {
+            hotel.setId(null);
+            entityManager.persist(hotel);
+            imported.add(hotel);
+            if (imported.size() % IMPORT_CHUNK == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        });
+        entityManager.flush();
+        entityManager.clear();
+        afterCommit(() -> {
+            imported.forEach(occupancyCounters::hotelCreated);
+            Cache hotelsCache = cacheManager.getCache(HOTELS_CACHE);
+            if (hotelsCache != null) {
+                hotelsCache.clear();
+            }
+            collectionVersions.hotelsChanged();
+        });
+        log.info("Imported {} hotels", imported.size());
+        return imported;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
     }
 
 }
@@ -0,0 +1,48 @@
+package com.daniil.hotelmanagementservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+/**
+ * Счётчики жизненного цикла аренды временной блокировки (hotel.lease{event=...})
+ */
+@Component
+public class LeaseMetrics {
+
+    private final Counter created;
+    private final Counter confirmed;
+    private final Counter expired;
+    private final Counter reclaimed;
+
+    public LeaseMetrics(MeterRegistry registry) {
+        this.created = counter(registry, "created");
+        this.confirmed = counter(registry, "confirmed");
+        this.expired = counter(registry, "expired");
+        this.reclaimed = counter(registry, "reclaimed");
+    }
+
+    private static Counter counter(MeterRegistry registry, String event) {
+        return Counter.builder("hotel.lease")
+                .tag("event", event)
+                .register(registry);
+    }
+
+    public void created(int count) {
+        created.increment(count);
+    }
+
+    public void confirmed(int count) {
+        confirmed.increment(count);
+    }
+
+    /** Найдены reaper'ом с истёкшим сроком */
+    public void expired(int count) {
+        expired.increment(count);
+    }
+
+    /** Фактически освобождены reaper'ом (без тех, что успели подтвердить) */
+    public void reclaimed(int count) {
+        reclaimed.increment(count);
+    }
+}
@@ -0,0 +1,31 @@
+package com.daniil.hotelmanagementservice.service;
+
+import com.daniil.hotelmanagementservice.config.LeaseProperties;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Периодически освобождает номера, по которым не пришёл ни confirm, ни release
+ * (например, Booking Service упал между allocate и confirm), и удержания ночей RoomStay с истёкшим сроком.
+ */
+@Component
+@RequiredArgsConstructor
+public class LeaseReaper {
+
+    private final RoomService roomService;
+    private final LeaseProperties leaseProperties;
+
+    @Scheduled(fixedDelayString = "${hotel.lease.reaper-interval:PT30S}")
+    public void reap() {
+        int batchSize = leaseProperties.getReaperBatchSize();
+        // каждая пачка — отдельная короткая транзакция
+        int found;
+        do {
+            found = roomService.reclaimExpiredLeases(batchSize);
+        } while (found == batchSize);
+        do {
+            found = roomService.reclaimExpiredHolds(batchSize);
+        } while (found == batchSize);
+    }
+}
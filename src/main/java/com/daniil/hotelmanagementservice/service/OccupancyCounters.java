@@ -0,0 +1,118 @@
+package com.daniil.hotelmanagementservice.service;
+
+import com.daniil.hotelmanagementservice.dto.HotelOccupancy;
+import com.daniil.hotelmanagementservice.dto.OccupancyStats;
+import com.daniil.hotelmanagementservice.entity.Hotel;
+import com.daniil.hotelmanagementservice.entity.Room;
+import com.daniil.hotelmanagementservice.repository.RoomRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Счётчики загрузки по отелям в памяти. Обновляются мутаторами RoomService/HotelService
+ * после коммита, строятся из БД при старте и периодически сверяются с ней.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OccupancyCounters {
+
+    private final RoomRepository roomRepository;
+
+    private volatile ConcurrentHashMap<Long, HotelCounters> hotels = new ConcurrentHashMap<>();
+
+    public void hotelCreated(Hotel hotel) {
+        hotels.computeIfAbsent(hotel.getId(), HotelCounters::new).name = hotel.getName();
+    }
+
+    public void roomCreated(Room room) {
+        if (room.getHotelId() == null) {
+            return;
+        }
+        HotelCounters counters = countersOf(room.getHotelId());
+        counters.total.increment();
+        if (!room.isAvailable()) {
+            counters.occupied.increment();
+        }
+        if (room.isTempLocked()) {
+            counters.tempLocked.increment();
+        }
+    }
+
+    /** tempLocked false -> true */
+    public void roomsLocked(Long hotelId, int count) {
+        if (hotelId != null) {
+            countersOf(hotelId).tempLocked.add(count);
+        }
+    }
+
+    /** tempLocked true -> false (confirm, release, истёкшая аренда) */
+    public void roomsUnlocked(Long hotelId, int count) {
+        if (hotelId != null) {
+            countersOf(hotelId).tempLocked.add(-count);
+        }
+    }
+
+    public OccupancyStats snapshot() {
+        List<HotelOccupancy> byHotel = hotels.values().stream()
+                .map(HotelCounters::toOccupancy)
+                .sorted(Comparator.comparing(HotelOccupancy::hotelId))
+                .toList();
+        return OccupancyStats.of(byHotel);
+    }
+
+    public Optional<HotelOccupancy> occupancyOf(Long hotelId) {
+        return Optional.ofNullable(hotels.get(hotelId)).map(HotelCounters::toOccupancy);
+    }
+
+    /**
+     * Пересчёт из БД одним агрегатным запросом. Изменения, закоммиченные во время пересчёта,
+     * могут разойтись со счётчиками до следующей сверки.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${hotel.stats.reconcile-interval:PT1M}",
+            fixedDelayString = "${hotel.stats.reconcile-interval:PT1M}")
+    public void rebuild() {
+        ConcurrentHashMap<Long, HotelCounters> rebuilt = new ConcurrentHashMap<>();
+        for (HotelOccupancy occupancy : roomRepository.countOccupancyByHotel()) {
+            HotelCounters counters = new HotelCounters(occupancy.hotelId());
+            counters.name = occupancy.hotelName();
+            counters.total.add(occupancy.total());
+            counters.occupied.add(occupancy.occupied());
+            counters.tempLocked.add(occupancy.tempLocked());
+            rebuilt.put(occupancy.hotelId(), counters);
+        }
+        hotels = rebuilt;
+        log.debug("Occupancy counters rebuilt for {} hotels", rebuilt.size());
+    }
+
+    private HotelCounters countersOf(Long hotelId) {
+        return hotels.computeIfAbsent(hotelId, HotelCounters::new);
+    }
+
+    private static final class HotelCounters {
+        private final Long hotelId;
+        private volatile String name;
+        private final LongAdder total = new LongAdder();
+        private final LongAdder occupied = new LongAdder();
+        private final LongAdder tempLocked = new LongAdder();
+
+        private HotelCounters(Long hotelId) {
+            this.hotelId = hotelId;
+        }
+
+        private HotelOccupancy toOccupancy() {
+            return new HotelOccupancy(hotelId, name, total.sum(), occupied.sum(), tempLocked.sum());
+        }
+    }
+}
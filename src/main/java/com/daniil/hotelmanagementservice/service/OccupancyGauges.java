@@ -0,0 +1,49 @@
+package com.daniil.hotelmanagementservice.service;
+
+import com.daniil.hotelmanagementservice.dto.HotelOccupancy;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+
+/**
+ * Загрузка по отелям как gauge hotel.rooms{hotel, state=free|temp_locked|occupied}.
+ * Значения читаются из OccupancyCounters в момент сбора метрик; набор отелей перерегистрируется по расписанию.
+ */
+@Slf4j
+@Component
+public class OccupancyGauges {
+
+    private final OccupancyCounters occupancyCounters;
+    private final MultiGauge rooms;
+
+    public OccupancyGauges(OccupancyCounters occupancyCounters, MeterRegistry registry) {
+        this.occupancyCounters = occupancyCounters;
+        this.rooms = MultiGauge.builder("hotel.rooms")
+                .description("rooms per hotel by state")
+                .register(registry);
+    }
+
+    @Scheduled(fixedDelayString = "${hotel.stats.gauge-refresh-interval:PT10S}")
+    public void refresh() {
+        List<MultiGauge.Row<Long>> rows = occupancyCounters.snapshot().byHotel().stream()
+                .flatMap(hotel -> Stream.of(
+                        row(hotel.hotelId(), "free", o -> o.total() - o.occupied() - o.tempLocked()),
+                        row(hotel.hotelId(), "temp_locked", HotelOccupancy::tempLocked),
+                        row(hotel.hotelId(), "occupied", HotelOccupancy::occupied)))
+                .toList();
+        rooms.register(rows, true);
+        log.debug("Occupancy gauges registered for {} hotels", rows.size() / 3);
+    }
+
+    private MultiGauge.Row<Long> row(Long hotelId, String state, ToLongFunction<HotelOccupancy> value) {
+        return MultiGauge.Row.of(Tags.of("hotel", hotelId.toString(), "state", state), hotelId,
+                id -> occupancyCounters.occupancyOf(id).map(value::applyAsLong).orElse(0L));
+    }
+}
@@ -0,0 +1,39 @@
+package com.daniil.hotelmanagementservice.service;
+
+import com.daniil.hotelmanagementservice.entity.Hotel;
+import com.daniil.hotelmanagementservice.repository.ReactiveHotelRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * HotelService для профиля reactive. Кэш Caffeine здесь не используется: чтение через R2DBC
+ * не занимает поток, а повторные запросы отсекаются ETag.
+ */
+@Service
+@Profile("reactive")
+@RequiredArgsConstructor
+public class ReactiveHotelService {
+
+    private final ReactiveHotelRepository hotelRepository;
+    private final OccupancyCounters occupancyCounters;
+    private final CollectionVersions collectionVersions;
+
+    public Flux<Hotel> getAllHotels() {
+        return hotelRepository.findAll();
+    }
+
+    public Mono<Hotel> getHotel(Long id) {
+        return hotelRepository.findById(id);
+    }
+
+    public Mono<Hotel> createHotel(Hotel hotel) {
+        return hotelRepository.insert(hotel)
+                .doOnNext(saved -> {
+                    occupancyCounters.hotelCreated(saved);
+                    collectionVersions.hotelsChanged();
+                });
+    }
+}
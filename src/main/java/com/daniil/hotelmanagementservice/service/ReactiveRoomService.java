@@ -0,0 +1,244 @@
+package com.daniil.hotelmanagementservice.service;
+
+import com.daniil.hotelmanagementservice.config.LeaseProperties;
+import com.daniil.hotelmanagementservice.dto.OccupancyStats;
+import com.daniil.hotelmanagementservice.dto.RoomFacets;
+import com.daniil.hotelmanagementservice.dto.RoomSearchPage;
+import com.daniil.hotelmanagementservice.entity.Room;
+import com.daniil.hotelmanagementservice.repository.ReactiveRoomRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * RoomService для профиля reactive: те же операции без блокировки потока запроса.
+ * Одиночный allocate — условный UPDATE по кандидатам без транзакции; групповые операции
+ * блокируют свои строки в R2DBC-транзакции, как RoomService. Счётчики, фасетный индекс и версия списка
+ * обновляются после успешного завершения (коммита).
+ */
+@Slf4j
+@Service
+@Profile("reactive")
+@RequiredArgsConstructor
+public class ReactiveRoomService {
+
+    static final int CANDIDATE_BATCH = 16;
+
+    private final ReactiveRoomRepository roomRepository;
+    private final TransactionalOperator transactionalOperator;
+    private final LeaseProperties leaseProperties;
+    private final LeaseMetrics leaseMetrics;
+    private final OccupancyCounters occupancyCounters;
+    private final CollectionVersions collectionVersions;
+    private final RoomFacetIndex facetIndex;
+    private final RoomNumberIndex numberIndex;
+    private final RoomService roomService;
+
+    /**
+     * Кандидаты пробуются по порядку планирования; номер, который успел захватить другой запрос,
+     * просто не обновляется. Если проиграны все кандидаты пачки, читается следующая.
+     */
+    public Mono<Room> allocateRoom(Long hotelId, String owner) {
+        Instant expiresAt = leaseExpiry();
+        return tryAllocate(hotelId, owner, expiresAt)
+                .doOnNext(room -> {
+                    room.setTempLocked(true);
+                    room.setLeaseExpiresAt(expiresAt);
+                    room.setLeaseOwner(owner);
+                    leaseMetrics.created(1);
+                    occupancyCounters.roomsLocked(room.getHotelId(), 1);
+                    facetIndex.locked(List.of(room.getId()));
+                    collectionVersions.roomsChanged();
+                    log.info("Room {} allocated (timesBooked={}, available={})", room.getId(), room.getTimesBooked(), room.isAvailable());
+                });
+    }
+
+    // Без побочных эффектов: повтор со следующей пачкой не должен второй раз учитывать аренду
+    private Mono<Room> tryAllocate(Long hotelId, String owner, Instant expiresAt) {
+        return roomRepository.findAllocationCandidates(hotelId, CANDIDATE_BATCH)
+                .collectList()
+                .flatMap(candidates -> {
+                    if (candidates.isEmpty()) {
+                        log.warn("No available rooms found!");
+                        return Mono.empty();
+                    }
+                    return Flux.fromIterable(candidates)
+                            .concatMap(room -> roomRepository.markTempLocked(List.of(room.getId()), expiresAt, owner)
+                                    .filter(updated -> updated == 1)
+                                    .map(updated -> room))
+                            .next()
+                            .switchIfEmpty(Mono.defer(() -> tryAllocate(hotelId, owner, expiresAt)));
+                });
+    }
+
+    /**
+     * Групповое бронирование в одной транзакции: если свободных номеров меньше count, не блокируется ни один.
+     */
+    public Mono<List<Long>> allocateRooms(int count, Long hotelId, String owner) {
+        if (!isBatchSize(count)) {
+            return Mono.error(batchSizeError());
+        }
+        return roomRepository.findAndLockAllocationCandidates(hotelId, count)
+                .collectList()
+                .flatMap(rooms -> {
+                    if (rooms.size() < count) {
+                        log.warn("Only {} of {} requested rooms available", rooms.size(), count);
+                        return Mono.just(List.<Room>of());
+                    }
+                    return roomRepository.markTempLocked(ids(rooms), leaseExpiry(), owner).thenReturn(rooms);
+                })
+                .as(transactionalOperator::transactional)
+                .map(rooms -> {
+                    if (!rooms.isEmpty()) {
+                        leaseMetrics.created(rooms.size());
+                        countByHotel(rooms).forEach(occupancyCounters::roomsLocked);
+                        facetIndex.locked(ids(rooms));
+                        collectionVersions.roomsChanged();
+                        log.info("Rooms {} allocated as a batch", ids(rooms));
+                    }
+                    return ids(rooms);
+                });
+    }
+
+    public Mono<Void> confirmBooking(Long roomId, String owner) {
+        return confirmBookings(List.of(roomId), owner);
+    }
+
+    public Mono<Void> releaseRoom(Long roomId, String owner) {
+        return releaseRooms(List.of(roomId), owner);
+    }
+
+    /**
+     * Строки блокируются до UPDATE, поэтому UPDATE затрагивает ровно отфильтрованные по владельцу номера.
+     */
+    public Mono<Void> confirmBookings(List<Long> roomIds, String owner) {
+        if (!isBatchSize(roomIds.size())) {
+            return Mono.error(batchSizeError());
+        }
+        return lockOwnedRooms(roomIds, owner)
+                .flatMap(rooms -> roomRepository.confirmAll(ids(rooms)).thenReturn(rooms))
+                .as(transactionalOperator::transactional)
+                .doOnNext(rooms -> {
+                    leaseMetrics.confirmed((int) rooms.stream().filter(Room::isTempLocked).count());
+                    unlocked(rooms);
+                    log.info("Rooms {} confirmed", ids(rooms));
+                })
+                .then();
+    }
+
+    public Mono<Void> releaseRooms(List<Long> roomIds, String owner) {
+        if (!isBatchSize(roomIds.size())) {
+            return Mono.error(batchSizeError());
+        }
+        return lockOwnedRooms(roomIds, owner)
+                .flatMap(rooms -> roomRepository.releaseAll(ids(rooms)).thenReturn(rooms))
+                .as(transactionalOperator::transactional)
+                .doOnNext(rooms -> {
+                    unlocked(rooms);
+                    log.info("Rooms {} released", ids(rooms));
+                })
+                .then();
+    }
+
+    private Mono<List<Room>> lockOwnedRooms(List<Long> roomIds, String owner) {
+        return roomRepository.findAndLockAllById(roomIds)
+                .filter(room -> ownedBy(room, owner))
+                .collectList()
+                .filter(rooms -> !rooms.isEmpty());
+    }
+
+    private static boolean isBatchSize(int size) {
+        return size > 0 && size <= RoomService.MAX_BATCH_SIZE;
+    }
+
+    private static IllegalArgumentException batchSizeError() {
+        return new IllegalArgumentException("batch size must be between 1 and " + RoomService.MAX_BATCH_SIZE);
+    }
+
+    private static boolean ownedBy(Room room, String owner) {
+        return owner == null || room.getLeaseOwner() == null || owner.equals(room.getLeaseOwner());
+    }
+
+    // rooms — состояние до UPDATE
+    private void unlocked(List<Room> rooms) {
+        List<Room> leased = rooms.stream().filter(Room::isTempLocked).toList();
+        countByHotel(leased).forEach(occupancyCounters::roomsUnlocked);
+        facetIndex.unlocked(ids(leased));
+        collectionVersions.roomsChanged();
+    }
+
+    public Mono<RoomSearchPage> getAvailableRooms(int size, String cursor) {
+        if (size <= 0 || size > RoomService.MAX_SEARCH_PAGE_SIZE) {
+            return Mono.error(new IllegalArgumentException("size must be between 1 and " + RoomService.MAX_SEARCH_PAGE_SIZE));
+        }
+        long afterId;
+        try {
+            afterId = cursor == null ? 0L : (Long) RoomSearchOrder.ID.positionAfter(cursor).getKeys().get("id");
+        } catch (IllegalArgumentException e) {
+            return Mono.error(e);
+        }
+        // Лишняя строка показывает, есть ли следующая страница
+        return roomRepository.findAvailableAfter(afterId, size + 1)
+                .collectList()
+                .map(rooms -> rooms.size() > size
+                        ? new RoomSearchPage(rooms.subList(0, size), RoomSearchOrder.ID.cursorAfter(rooms.get(size - 1)))
+                        : new RoomSearchPage(rooms, null));
+    }
+
+    public Flux<Room> streamAvailableRooms() {
+        return roomRepository.streamAvailable();
+    }
+
+    /**
+     * Админский поиск с произвольными фильтрами остаётся на JPA-спецификациях
+     * и выполняется на boundedElastic, а не на потоке event loop.
+     */
+    public Mono<RoomSearchPage> searchRooms(Long hotelId, Boolean available, String numberPattern, int minTimesBooked,
+                                            int maxTimesBooked, String sortBy, int page, int size, String cursor) {
+        return Mono.fromCallable(() -> roomService.searchRooms(hotelId, available, numberPattern, minTimesBooked,
+                        maxTimesBooked, sortBy, page, size, cursor))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    // Поиск по индексу в памяти, без обращения к БД
+    public Mono<RoomFacets> facetSearch(Long hotelId, String roomType, Integer minCapacity, String priceBand,
+                                        boolean freeOnly, int size) {
+        return Mono.fromSupplier(() -> roomService.facetSearch(hotelId, roomType, minCapacity, priceBand, freeOnly, size));
+    }
+
+    public Mono<OccupancyStats> getOccupancyStats() {
+        return Mono.fromSupplier(occupancyCounters::snapshot);
+    }
+
+    // До добавления в индексы номер уже в БД: индекс номеров считается неполным, пока вставка не завершится
+    public Mono<Room> createRoom(Room room) {
+        return roomRepository.insert(room)
+                .doOnNext(roomService::roomAdded)
+                .doFirst(numberIndex::roomsPending)
+                .doFinally(signal -> numberIndex.roomsSettled());
+    }
+
+    private Instant leaseExpiry() {
+        return Instant.now().plus(leaseProperties.getDuration());
+    }
+
+    private static List<Long> ids(List<Room> rooms) {
+        return rooms.stream().map(Room::getId).collect(Collectors.toList());
+    }
+
+    private static Map<Long, Integer> countByHotel(List<Room> rooms) {
+        return rooms.stream()
+                .filter(room -> room.getHotelId() != null)
+                .collect(Collectors.groupingBy(Room::getHotelId, Collectors.summingInt(room -> 1)));
+    }
+}
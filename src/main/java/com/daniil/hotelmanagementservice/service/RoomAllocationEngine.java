@@ -0,0 +1,242 @@
+package com.daniil.hotelmanagementservice.service;
+
+import com.daniil.hotelmanagementservice.config.AllocationProperties;
+import com.daniil.hotelmanagementservice.entity.Room;
+import com.daniil.hotelmanagementservice.repository.RoomRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Очереди свободных номеров в памяти (по одной на отель), упорядоченные по (timesBooked, id).
+ * Номер захватывается CAS-переходом FREE -> CLAIMED, поэтому параллельные
+ * аллокации не ждут друг друга; БД остаётся источником истины и проверяет
+ * только выбранную строку.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RoomAllocationEngine {
+
+    private static final int FREE = 0;
+    private static final int CLAIMED = 1;
+    private static final int GONE = 2;
+
+    private static final long NO_HOTEL = -1L;
+
+    private static final Comparator<Candidate> ORDER = Comparator
+            .comparingInt(Candidate::timesBooked)
+            .thenComparingLong(Candidate::roomId);
+
+    private final RoomRepository roomRepository;
+    private final AllocationProperties allocationProperties;
+
+    // Отдельная очередь на отель: аллокации в разных отелях не пересекаются
+    private final ConcurrentHashMap<Long, ConcurrentSkipListSet<Candidate>> queues = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Slot> slots = new ConcurrentHashMap<>();
+    // Растёт с каждой сверкой; слот запоминает поколение, в котором стал свободным
+    private final AtomicLong generation = new AtomicLong();
+
+    public boolean isEnabled() {
+        return allocationProperties.getMode() == AllocationProperties.Mode.IN_MEMORY;
+    }
+
+    /**
+     * Захватить номер с наименьшим (timesBooked, id) в отеле hotelId,
+     * либо среди всех отелей, если hotelId не указан.
+     */
+    public OptionalLong claim(Long hotelId) {
+        if (hotelId != null) {
+            ConcurrentSkipListSet<Candidate> queue = queues.get(hotelId);
+            return queue == null ? OptionalLong.empty() : claimFrom(queue);
+        }
+        while (true) {
+            ConcurrentSkipListSet<Candidate> best = null;
+            Candidate bestHead = null;
+            for (ConcurrentSkipListSet<Candidate> queue : queues.values()) {
+                Iterator<Candidate> it = queue.iterator();
+                Candidate head = it.hasNext() ? it.next() : null;
+                if (head != null && (bestHead == null || ORDER.compare(head, bestHead) < 0)) {
+                    best = queue;
+                    bestHead = head;
+                }
+            }
+            if (bestHead == null) {
+                return OptionalLong.empty();
+            }
+            // remove() атомарен: кандидата получает только один из конкурирующих потоков
+            if (best.remove(bestHead) && tryClaim(bestHead)) {
+                return OptionalLong.of(bestHead.roomId());
+            }
+        }
+    }
+
+    private OptionalLong claimFrom(ConcurrentSkipListSet<Candidate> queue) {
+        Candidate candidate;
+        while ((candidate = queue.pollFirst()) != null) {
+            if (tryClaim(candidate)) {
+                return OptionalLong.of(candidate.roomId());
+            }
+        }
+        return OptionalLong.empty();
+    }
+
+    private boolean tryClaim(Candidate candidate) {
+        Slot slot = slots.get(candidate.roomId());
+        if (slot != null && slot.state.compareAndSet(FREE, CLAIMED)) {
+            slot.claimedAt = System.nanoTime();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Вернуть захваченный номер в очередь без изменения timesBooked (откат транзакции).
+     */
+    public void cancelClaim(long roomId) {
+        Slot slot = slots.get(roomId);
+        if (slot == null) {
+            return;
+        }
+        slot.freedIn = generation.get();
+        if (slot.state.compareAndSet(CLAIMED, FREE)) {
+            queueOf(slot.hotelId).add(new Candidate(slot.timesBooked, roomId));
+        }
+    }
+
+    /**
+     * Номер снова свободен (confirm / release / создан новый).
+     */
+    public void release(long roomId, Long hotelId, int timesBooked) {
+        if (!isEnabled()) {
+            return;
+        }
+        Slot slot = slots.computeIfAbsent(roomId, id -> new Slot(hotelKey(hotelId), timesBooked, GONE));
+        int state = slot.state.get();
+        if (state != FREE) {
+            makeFree(roomId, slot, state, timesBooked);
+        }
+    }
+
+    /**
+     * БД сообщила, что номер занят: убрать его из очереди до следующей сверки.
+     */
+    public void evict(long roomId) {
+        Slot slot = slots.get(roomId);
+        if (slot == null) {
+            return;
+        }
+        int state = slot.state.get();
+        if (state != GONE && slot.state.compareAndSet(state, GONE) && state == FREE) {
+            queueOf(slot.hotelId).remove(new Candidate(slot.timesBooked, roomId));
+        }
+    }
+
+    public int freeCount() {
+        return queues.values().stream().mapToInt(ConcurrentSkipListSet::size).sum();
+    }
+
+    public int freeCount(Long hotelId) {
+        ConcurrentSkipListSet<Candidate> queue = queues.get(hotelKey(hotelId));
+        return queue == null ? 0 : queue.size();
+    }
+
+    /**
+     * Сверка с БД. Номера, освобождённые после начала чтения (их поколение не старше снимка),
+     * снимок мог не застать — их сверка не трогает, иначе они пропали бы из очереди до следующей сверки.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (!isEnabled()) {
+            return;
+        }
+        long snapshotGeneration = generation.incrementAndGet();
+        List<Room> freeRooms = roomRepository.findByAvailableTrueAndTempLockedFalse();
+        Map<Long, Room> snapshot = freeRooms.stream()
+                .collect(Collectors.toMap(Room::getId, Function.identity()));
+        long graceNanos = allocationProperties.getResyncInterval().toNanos();
+        long now = System.nanoTime();
+
+        // Номера, которые в БД уже не свободны
+        slots.forEach((roomId, slot) -> {
+            if (!snapshot.containsKey(roomId) && slot.freedIn < snapshotGeneration) {
+                evict(roomId);
+            }
+        });
+
+        snapshot.forEach((roomId, room) -> {
+            int timesBooked = room.getTimesBooked();
+            Slot slot = slots.computeIfAbsent(roomId, id -> new Slot(hotelKey(room.getHotelId()), timesBooked, GONE));
+            int state = slot.state.get();
+            if (state == FREE && slot.timesBooked != timesBooked && slot.freedIn < snapshotGeneration) {
+                // timesBooked изменился на другом инстансе — переставить в очереди
+                if (slot.state.compareAndSet(FREE, GONE)) {
+                    queueOf(slot.hotelId).remove(new Candidate(slot.timesBooked, roomId));
+                    state = GONE;
+                }
+            }
+            // CLAIMED дольше интервала сверки — номер освободили через другой инстанс
+            boolean staleClaim = state == CLAIMED && now - slot.claimedAt > graceNanos
+                    && slot.state.compareAndSet(CLAIMED, GONE);
+            if (state == GONE || staleClaim) {
+                makeFree(roomId, slot, GONE, timesBooked);
+            }
+        });
+        log.info("Allocation queues rebuilt: {} free rooms in {} hotels", freeCount(), queues.size());
+    }
+
+    @Scheduled(initialDelayString = "${hotel.allocation.resync-interval:PT5M}",
+            fixedDelayString = "${hotel.allocation.resync-interval:PT5M}")
+    public void resync() {
+        rebuild();
+    }
+
+    private void makeFree(long roomId, Slot slot, int expectedState, int timesBooked) {
+        // timesBooked и поколение меняем до публикации: в очереди слот ещё не виден
+        slot.timesBooked = timesBooked;
+        slot.freedIn = generation.get();
+        if (slot.state.compareAndSet(expectedState, FREE)) {
+            queueOf(slot.hotelId).add(new Candidate(timesBooked, roomId));
+        }
+    }
+
+    private ConcurrentSkipListSet<Candidate> queueOf(long hotelKey) {
+        return queues.computeIfAbsent(hotelKey, id -> new ConcurrentSkipListSet<>(ORDER));
+    }
+
+    private static long hotelKey(Long hotelId) {
+        return hotelId == null ? NO_HOTEL : hotelId;
+    }
+
+    private record Candidate(int timesBooked, long roomId) {
+    }
+
+    private static final class Slot {
+        private final long hotelId;
+        private final AtomicInteger state;
+        private volatile int timesBooked;
+        private volatile long claimedAt;
+        private volatile long freedIn;
+
+        private Slot(long hotelId, int timesBooked, int state) {
+            this.hotelId = hotelId;
+            this.timesBooked = timesBooked;
+            this.state = new AtomicInteger(state);
+        }
+    }
+}
@@ -0,0 +1,457 @@
+package com.daniil.hotelmanagementservice.service;
+
+import com.daniil.hotelmanagementservice.config.CalendarProperties;
+import com.daniil.hotelmanagementservice.entity.Room;
+import com.daniil.hotelmanagementservice.entity.RoomStay;
+import com.daniil.hotelmanagementservice.repository.RoomRepository;
+import com.daniil.hotelmanagementservice.repository.RoomStayRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Занятость свободных для продажи номеров по ночам. Номерам присвоены индексы 0..n-1
+ * (номера одного отеля — непрерывным диапазоном), на каждую ночь горизонта hotel.calendar.horizon-days
+ * хранится битсет по индексам: бит i — номер i свободен в эту ночь.
+ * Свободные на [checkIn, checkOut) номера — AND битсетов этих ночей в диапазоне слов отеля,
+ * без обращения к БД и без перебора номеров по одному.
+ * <p>
+ * Календарь подсказывает кандидатов; источник истины — RoomStay в БД, которую RoomService
+ * проверяет под блокировкой строки номера. Изменения от других инстансов учитываются при пересборке.
+ * <p>
+ * Изменения снимка идут под блокировкой чтения (параллельно друг другу, биты атомарны), замена снимка —
+ * под блокировкой записи: после пересборки или расширения ни одно изменение не остаётся в старом снимке.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RoomCalendar {
+
+    private final RoomRepository roomRepository;
+    private final RoomStayRepository stayRepository;
+    private final CalendarProperties calendarProperties;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile Snapshot snapshot = new Snapshot(LocalDate.MIN, 0, 0);
+    // Изменения, сделанные во время пересборки: её чтение из БД могло их не застать.
+    // Добавление номера может расширить снимок, поэтому изменение возвращает снимок, к которому применено
+    private volatile Queue<UnaryOperator<Snapshot>> changedDuringRebuild;
+
+    /**
+     * Умещается ли диапазон в горизонт календаря; если нет, свободные номера ищутся в БД.
+     */
+    public boolean covers(LocalDate checkIn, LocalDate checkOut) {
+        Snapshot current = snapshot;
+        return current.days > 0 && !checkIn.isBefore(current.origin) && current.offset(checkOut) <= current.days;
+    }
+
+    /**
+     * Первые limit номеров, свободных во все ночи [checkIn, checkOut), в порядке планирования (timesBooked, id).
+     * Свободные индексы отбираются прямо из слов битсетов в кучу размера limit — O(n log limit) без упаковки
+     * и сортировки всех свободных номеров парка.
+     *
+     * @param hotelId отель; null — все отели
+     */
+    public List<Long> freeRooms(Long hotelId, LocalDate checkIn, LocalDate checkOut, int limit) {
+        Snapshot current = snapshot;
+        int from = current.offset(checkIn);
+        int to = current.offset(checkOut);
+        FirstFree first = new FirstFree(current, limit);
+        if (hotelId == null) {
+            current.collectFree(0, current.size(), from, to, first);
+        } else {
+            HotelRooms hotel = current.byHotel.get(hotelId);
+            if (hotel == null) {
+                return List.of();
+            }
+            current.collectFree(hotel.from, hotel.to, from, to, first);
+            for (int index : hotel.added) {
+                if (current.isFree(index, from, to)) {
+                    first.accept(index);
+                }
+            }
+        }
+        return first.roomIds();
+    }
+
+    public void reserve(long roomId, LocalDate checkIn, LocalDate checkOut) {
+        update(current -> current.mark(roomId, checkIn, checkOut, false));
+    }
+
+    public void free(long roomId, LocalDate checkIn, LocalDate checkOut) {
+        update(current -> current.mark(roomId, checkIn, checkOut, true));
+    }
+
+    public void booked(long roomId) {
+        update(current -> current.booked(roomId));
+    }
+
+    /**
+     * Новый номер получает следующий свободный индекс. Когда запас индексов исчерпан, снимок расширяется
+     * копированием битсетов в памяти, без чтения из БД; запас растёт вместе с числом номеров.
+     */
+    public void roomAdded(Room room) {
+        if (!room.isAvailable() || room.getHotelId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            UnaryOperator<Snapshot> change = current -> withRoom(current, room);
+            snapshot = change.apply(snapshot);
+            Queue<UnaryOperator<Snapshot>> changed = changedDuringRebuild;
+            if (changed != null) {
+                changed.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void update(Consumer<Snapshot> change) {
+        lock.readLock().lock();
+        try {
+            change.accept(snapshot);
+            Queue<UnaryOperator<Snapshot>> changed = changedDuringRebuild;
+            if (changed != null) {
+                changed.add(current -> {
+                    change.accept(current);
+                    return current;
+                });
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static Snapshot withRoom(Snapshot current, Room room) {
+        if (current.add(room)) {
+            return current;
+        }
+        Snapshot grown = new Snapshot(current, capacityFor(current.size() + 1));
+        grown.add(room);
+        log.info("Room calendar capacity grown to {} rooms", grown.capacity);
+        return grown;
+    }
+
+    // Запас индексов под номера, созданные после пересборки
+    private static int capacityFor(int rooms) {
+        return rooms + rooms / 4 + 64;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        rebuild(LocalDate.now());
+    }
+
+    @Scheduled(initialDelayString = "${hotel.calendar.resync-interval:PT5M}",
+            fixedDelayString = "${hotel.calendar.resync-interval:PT5M}")
+    public void resync() {
+        rebuild();
+    }
+
+    /**
+     * Собирает новый календарь с origin = today и подменяет текущий целиком. Изменения, сделанные
+     * за время чтения из БД, повторяются на новом календаре перед подменой.
+     */
+    synchronized void rebuild(LocalDate today) {
+        changedDuringRebuild = new ConcurrentLinkedQueue<>();
+        List<Room> rooms = new ArrayList<>(roomRepository.findByAvailableTrue());
+        rooms.removeIf(room -> room.getHotelId() == null);
+        rooms.sort(Comparator.comparing(Room::getHotelId).thenComparing(Room::getId));
+
+        Snapshot rebuilt = new Snapshot(today, calendarProperties.getHorizonDays(), capacityFor(rooms.size()));
+        for (Room room : rooms) {
+            rebuilt.append(room);
+        }
+        List<RoomStay> stays = stayRepository.findByCheckOutAfter(today);
+        for (RoomStay stay : stays) {
+            rebuilt.mark(stay.getRoomId(), stay.getCheckIn(), stay.getCheckOut(), false);
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (UnaryOperator<Snapshot> change : changedDuringRebuild) {
+                rebuilt = change.apply(rebuilt);
+            }
+            changedDuringRebuild = null;
+            snapshot = rebuilt;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Room calendar rebuilt: {} rooms, {} stays from {} for {} nights",
+                rooms.size(), stays.size(), today, rebuilt.days);
+    }
+
+    private static final class Snapshot {
+        private final LocalDate origin;
+        private final int days;
+        private final int capacity;
+
+        // free[d] — битсет по индексам номеров на ночь origin + d
+        private final AtomicLongArray[] free;
+        private final long[] roomIds;
+        private final AtomicIntegerArray timesBooked;
+        private final AtomicInteger size = new AtomicInteger();
+        private final Map<Long, Integer> indexOf = new ConcurrentHashMap<>();
+        private final Map<Long, HotelRooms> byHotel = new ConcurrentHashMap<>();
+
+        private Snapshot(LocalDate origin, int days, int capacity) {
+            this.origin = origin;
+            this.days = days;
+            this.capacity = capacity;
+            this.free = new AtomicLongArray[days];
+            for (int day = 0; day < days; day++) {
+                free[day] = new AtomicLongArray((capacity + 63) >>> 6);
+            }
+            this.roomIds = new long[capacity];
+            this.timesBooked = new AtomicIntegerArray(capacity);
+        }
+
+        // Копия снимка с большим запасом индексов; источник не меняется, пока держится блокировка записи
+        private Snapshot(Snapshot source, int capacity) {
+            this(source.origin, source.days, capacity);
+            int words = (source.capacity + 63) >>> 6;
+            for (int day = 0; day < days; day++) {
+                for (int word = 0; word < words; word++) {
+                    free[day].set(word, source.free[day].get(word));
+                }
+            }
+            int size = source.size();
+            System.arraycopy(source.roomIds, 0, roomIds, 0, size);
+            for (int index = 0; index < size; index++) {
+                timesBooked.set(index, source.timesBooked.get(index));
+            }
+            this.size.set(size);
+            indexOf.putAll(source.indexOf);
+            source.byHotel.forEach((hotelId, hotel) -> byHotel.put(hotelId,
+                    new HotelRooms(hotel.from, hotel.to, new ConcurrentLinkedQueue<>(hotel.added))));
+        }
+
+        private int size() {
+            return Math.min(size.get(), capacity);
+        }
+
+        private int offset(LocalDate date) {
+            return (int) Math.max(-1, Math.min(days + 1L, ChronoUnit.DAYS.between(origin, date)));
+        }
+
+        // При пересборке: номера идут по отелям, поэтому отель занимает непрерывный диапазон индексов
+        private void append(Room room) {
+            int index = publish(room);
+            byHotel.compute(room.getHotelId(), (id, hotel) -> hotel == null
+                    ? new HotelRooms(index, index + 1)
+                    : new HotelRooms(hotel.from, index + 1));
+        }
+
+        // После пересборки диапазон отеля уже занят, новые индексы отеля хранятся списком
+        private boolean add(Room room) {
+            if (indexOf.containsKey(room.getId())) {
+                return true;
+            }
+            if (size.get() >= capacity) {
+                return false;
+            }
+            int index = publish(room);
+            if (index < 0) {
+                return false;
+            }
+            byHotel.computeIfAbsent(room.getHotelId(), id -> new HotelRooms(0, 0)).added.add(index);
+            return true;
+        }
+
+        // id записывается до битов: читатель, увидевший бит (volatile), увидит и id
+        private int publish(Room room) {
+            int index = size.getAndIncrement();
+            if (index >= capacity) {
+                return -1;
+            }
+            roomIds[index] = room.getId();
+            timesBooked.set(index, room.getTimesBooked());
+            setBits(index, 0, days, true);
+            indexOf.put(room.getId(), index);
+            return index;
+        }
+
+        private void booked(long roomId) {
+            Integer index = indexOf.get(roomId);
+            if (index != null) {
+                timesBooked.incrementAndGet(index);
+            }
+        }
+
+        // Ночи за горизонтом отбрасываются: запросы туда календарь не обслуживает
+        private void mark(long roomId, LocalDate checkIn, LocalDate checkOut, boolean isFree) {
+            Integer index = indexOf.get(roomId);
+            int from = Math.max(0, offset(checkIn));
+            int to = Math.min(days, offset(checkOut));
+            if (index != null && from < to) {
+                setBits(index, from, to, isFree);
+            }
+        }
+
+        private void setBits(int index, int fromDay, int toDay, boolean isFree) {
+            int word = index >>> 6;
+            long bit = 1L << index;
+            for (int day = fromDay; day < toDay; day++) {
+                free[day].accumulateAndGet(word, bit, isFree ? (current, b) -> current | b : (current, b) -> current & ~b);
+            }
+        }
+
+        private boolean isFree(int index, int fromDay, int toDay) {
+            int word = index >>> 6;
+            long bit = 1L << index;
+            for (int day = fromDay; day < toDay; day++) {
+                if ((free[day].get(word) & bit) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // AND битсетов ночей [fromDay, toDay) по словам диапазона индексов [fromIndex, toIndex)
+        private void collectFree(int fromIndex, int toIndex, int fromDay, int toDay, IntConsumer result) {
+            if (fromIndex >= toIndex) {
+                return;
+            }
+            for (int word = fromIndex >>> 6; word <= (toIndex - 1) >>> 6; word++) {
+                long bits = mask(word, fromIndex, toIndex);
+                for (int day = fromDay; day < toDay && bits != 0; day++) {
+                    bits &= free[day].get(word);
+                }
+                while (bits != 0) {
+                    result.accept((word << 6) + Long.numberOfTrailingZeros(bits));
+                    bits &= bits - 1;
+                }
+            }
+        }
+
+        // Биты слова word, попадающие в [from, to)
+        private static long mask(int word, int from, int to) {
+            int low = Math.max(from, word << 6) - (word << 6);
+            int high = Math.min(to, (word << 6) + 64) - (word << 6);
+            long upTo = high == 64 ? -1L : (1L << high) - 1;
+            return upTo & (-1L << low);
+        }
+    }
+
+    /**
+     * Первые limit индексов в порядке планирования: max-куча по (timesBooked, id), корень — худший из отобранных.
+     * timesBooked запоминается при отборе: параллельное подтверждение не ломает порядок кучи.
+     */
+    private static final class FirstFree implements IntConsumer {
+        private final Snapshot snapshot;
+        private final int limit;
+        private int[] indexes;
+        private int[] booked;
+        private int size;
+
+        private FirstFree(Snapshot snapshot, int limit) {
+            this.snapshot = snapshot;
+            this.limit = limit;
+            int initial = Math.max(0, Math.min(limit, 64));
+            this.indexes = new int[initial];
+            this.booked = new int[initial];
+        }
+
+        @Override
+        public void accept(int index) {
+            int timesBooked = snapshot.timesBooked.get(index);
+            if (size < limit) {
+                if (size == indexes.length) {
+                    int grown = (int) Math.min(limit, indexes.length * 2L);
+                    indexes = Arrays.copyOf(indexes, grown);
+                    booked = Arrays.copyOf(booked, grown);
+                }
+                indexes[size] = index;
+                booked[size] = timesBooked;
+                siftUp(size++);
+            } else if (size > 0 && before(timesBooked, index, 0)) {
+                indexes[0] = index;
+                booked[0] = timesBooked;
+                siftDown(0);
+            }
+        }
+
+        // Извлечение из max-кучи идёт с конца порядка
+        private List<Long> roomIds() {
+            Long[] result = new Long[size];
+            while (size > 0) {
+                result[size - 1] = snapshot.roomIds[indexes[0]];
+                swap(0, --size);
+                siftDown(0);
+            }
+            return Arrays.asList(result);
+        }
+
+        private boolean before(int timesBooked, int index, int slot) {
+            return timesBooked != booked[slot]
+                    ? timesBooked < booked[slot]
+                    : snapshot.roomIds[index] < snapshot.roomIds[indexes[slot]];
+        }
+
+        private void siftUp(int slot) {
+            while (slot > 0) {
+                int parent = (slot - 1) >>> 1;
+                if (!before(booked[parent], indexes[parent], slot)) {
+                    return;
+                }
+                swap(slot, parent);
+                slot = parent;
+            }
+        }
+
+        private void siftDown(int slot) {
+            while (true) {
+                int worst = slot;
+                for (int child = 2 * slot + 1; child <= 2 * slot + 2 && child < size; child++) {
+                    if (before(booked[worst], indexes[worst], child)) {
+                        worst = child;
+                    }
+                }
+                if (worst == slot) {
+                    return;
+                }
+                swap(slot, worst);
+                slot = worst;
+            }
+        }
+
+        private void swap(int a, int b) {
+            int index = indexes[a];
+            indexes[a] = indexes[b];
+            indexes[b] = index;
+            int timesBooked = booked[a];
+            booked[a] = booked[b];
+            booked[b] = timesBooked;
+        }
+    }
+
+    private record HotelRooms(int from, int to, Queue<Integer> added) {
+
+        private HotelRooms(int from, int to) {
+            this(from, to, new ConcurrentLinkedQueue<>());
+        }
+    }
+}
@@ -0,0 +1,386 @@
+package com.daniil.hotelmanagementservice.service;
+
+import com.daniil.hotelmanagementservice.config.SearchProperties;
+import com.daniil.hotelmanagementservice.dto.RoomFacets;
+import com.daniil.hotelmanagementservice.dto.RoomSearchAttributes;
+import com.daniil.hotelmanagementservice.entity.Room;
+import com.daniil.hotelmanagementservice.repository.RoomRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Инвертированный индекс номеров по атрибутам поиска. Номерам присвоены индексы 0..n-1 в порядке id,
+ * на каждое значение отеля, типа, вместимости и ценового диапазона хранится битсет по индексам.
+ * Фильтр — AND битсетов, счётчик фасета — число бит в пересечении, без обращения к БД.
+ * <p>
+ * Свободен номер, который доступен и не заблокирован временно; это состояние обновляют мутаторы
+ * RoomService после коммита. Изменения от других инстансов учитываются при пересборке.
+ * <p>
+ * Аренда и её снятие меняют только биты свободных номеров, поэтому идут под read lock
+ * параллельно с поиском (слова этого битсета атомарные); write lock берут лишь добавление номера
+ * и подмена индекса при пересборке.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RoomFacetIndex {
+
+    private final RoomRepository roomRepository;
+    private final SearchProperties searchProperties;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Postings postings = new Postings(List.of());
+    // Изменения во время пересборки: её чтение из БД могло их не застать, они повторяются на новом индексе
+    private volatile Queue<Consumer<Postings>> changedDuringRebuild;
+
+    /**
+     * @param hotelId     отель; null — все отели
+     * @param roomType    тип номера; null — любой
+     * @param minCapacity минимальная вместимость; null — любая
+     * @param priceBand   ценовой диапазон (например, "100-200" или "400+"); null — любой
+     * @param freeOnly    только свободные номера
+     * @param limit       сколько id совпавших номеров вернуть
+     * @throws IllegalArgumentException неизвестный ценовой диапазон
+     */
+    public RoomFacets search(Long hotelId, String roomType, Integer minCapacity, String priceBand, boolean freeOnly, int limit) {
+        lock.readLock().lock();
+        try {
+            return postings.search(hotelId, roomType, minCapacity, priceBand, freeOnly, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void roomAdded(Room room) {
+        RoomSearchAttributes attributes = RoomSearchAttributes.of(room);
+        lock.writeLock().lock();
+        try {
+            apply(current -> current.add(attributes));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** tempLocked false -> true */
+    public void locked(Collection<Long> roomIds) {
+        setFree(roomIds, false);
+    }
+
+    /** tempLocked true -> false (confirm, release, истёкшая аренда) */
+    public void unlocked(Collection<Long> roomIds) {
+        setFree(roomIds, true);
+    }
+
+    private void setFree(Collection<Long> roomIds, boolean isFree) {
+        List<Long> ids = List.copyOf(roomIds);
+        lock.readLock().lock();
+        try {
+            apply(current -> ids.forEach(roomId -> current.setFree(roomId, isFree)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Под lock: подмена индекса при пересборке не может вклиниться между изменением и его записью в очередь
+    private void apply(Consumer<Postings> change) {
+        change.accept(postings);
+        Queue<Consumer<Postings>> changed = changedDuringRebuild;
+        if (changed != null) {
+            changed.add(change);
+        }
+    }
+
+    /**
+     * Собирает индекс курсором по атрибутам номеров и подменяет текущий целиком; запросы во время сборки
+     * обслуживает старый индекс. Изменения, сделанные за время чтения из БД, повторяются на новом индексе
+     * перед подменой. Своя транзакция: пересборку вызывает и afterCommit импорта.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${hotel.search.resync-interval:PT5M}",
+            fixedDelayString = "${hotel.search.resync-interval:PT5M}")
+    @Transactional(readOnly = true, propagation = Propagation.REQUIRES_NEW)
+    public synchronized void rebuild() {
+        changedDuringRebuild = new ConcurrentLinkedQueue<>();
+        Postings rebuilt = new Postings(searchProperties.getPriceBands());
+        try (Stream<RoomSearchAttributes> rooms = roomRepository.streamSearchAttributes()) {
+            rooms.forEach(rebuilt::add);
+        }
+
+        lock.writeLock().lock();
+        try {
+            changedDuringRebuild.forEach(change -> change.accept(rebuilt));
+            changedDuringRebuild = null;
+            postings = rebuilt;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Room facet index rebuilt: {} rooms, {} types, {} price bands",
+                rebuilt.size, rebuilt.byType.size(), rebuilt.bandLabels.size());
+    }
+
+    private static final class Postings {
+        private final List<BigDecimal> bandBounds;
+        private final List<String> bandLabels = new ArrayList<>();
+
+        private long[] roomIds = new long[64];
+        private int size;
+        private final Map<Long, Integer> indexOf = new HashMap<>();
+
+        private final Bits all = new Bits();
+        private final Bits available = new Bits();
+        private final AtomicBits free = new AtomicBits();
+        private final Map<Long, Bits> byHotel = new HashMap<>();
+        private final Map<String, Bits> byType = new HashMap<>();
+        private final Map<Integer, Bits> byCapacity = new HashMap<>();
+        private final Bits[] byPriceBand;
+
+        private Postings(List<BigDecimal> bandBounds) {
+            this.bandBounds = List.copyOf(bandBounds);
+            for (int band = 0; band <= bandBounds.size(); band++) {
+                bandLabels.add(bandLabel(band));
+            }
+            this.byPriceBand = new Bits[bandLabels.size()];
+            Arrays.setAll(byPriceBand, band -> new Bits());
+        }
+
+        private void add(RoomSearchAttributes room) {
+            if (room.id() == null || indexOf.containsKey(room.id())) {
+                return;
+            }
+            int index = size++;
+            if (index == roomIds.length) {
+                roomIds = Arrays.copyOf(roomIds, index * 2);
+            }
+            roomIds[index] = room.id();
+            indexOf.put(room.id(), index);
+
+            all.set(index);
+            free.ensure(index);
+            if (room.available()) {
+                available.set(index);
+                if (!room.tempLocked()) {
+                    free.set(index, true);
+                }
+            }
+            if (room.hotelId() != null) {
+                byHotel.computeIfAbsent(room.hotelId(), id -> new Bits()).set(index);
+            }
+            if (room.roomType() != null) {
+                byType.computeIfAbsent(room.roomType(), type -> new Bits()).set(index);
+            }
+            if (room.capacity() != null) {
+                byCapacity.computeIfAbsent(room.capacity(), capacity -> new Bits()).set(index);
+            }
+            if (room.price() != null) {
+                byPriceBand[bandOf(room.price())].set(index);
+            }
+        }
+
+        private void setFree(long roomId, boolean isFree) {
+            Integer index = indexOf.get(roomId);
+            if (index == null) {
+                return;
+            }
+            free.set(index, isFree && available.get(index));
+        }
+
+        private RoomFacets search(Long hotelId, String roomType, Integer minCapacity, String priceBand, boolean freeOnly, int limit) {
+            int words = (size + 63) >>> 6;
+            long[] scope = freeOnly ? free.copy(words) : all.copy(words);
+            long[] hotel = hotelId == null ? null : copy(byHotel.get(hotelId), words);
+            long[] type = roomType == null ? null : copy(byType.get(roomType), words);
+            long[] capacity = minCapacity == null ? null : atLeast(minCapacity, words);
+            long[] band = priceBand == null ? null : byPriceBand[bandIndex(priceBand)].copy(words);
+
+            long[] matched = and(scope, hotel, type, capacity, band);
+            Map<String, Long> byPriceBandCount = new LinkedHashMap<>();
+            long[] withoutBand = and(scope, hotel, type, capacity);
+            for (int i = 0; i < byPriceBand.length; i++) {
+                long count = byPriceBand[i].countAnd(withoutBand);
+                if (count > 0) {
+                    byPriceBandCount.put(bandLabels.get(i), count);
+                }
+            }
+            return new RoomFacets(count(matched), firstRoomIds(matched, limit),
+                    counts(byType, and(scope, hotel, capacity, band)),
+                    counts(byCapacity, and(scope, hotel, type, band)),
+                    byPriceBandCount,
+                    counts(byHotel, and(scope, type, capacity, band)));
+        }
+
+        // Вместимость не меньше min — OR битсетов всех подходящих значений
+        private long[] atLeast(int min, int words) {
+            long[] result = new long[words];
+            byCapacity.forEach((capacity, bits) -> {
+                if (capacity >= min) {
+                    bits.orInto(result);
+                }
+            });
+            return result;
+        }
+
+        private List<Long> firstRoomIds(long[] matched, int limit) {
+            List<Long> result = new ArrayList<>(Math.min(limit, 64));
+            for (int word = 0; word < matched.length && result.size() < limit; word++) {
+                long bits = matched[word];
+                while (bits != 0 && result.size() < limit) {
+                    result.add(roomIds[(word << 6) + Long.numberOfTrailingZeros(bits)]);
+                    bits &= bits - 1;
+                }
+            }
+            return result;
+        }
+
+        private int bandOf(BigDecimal price) {
+            for (int band = 0; band < bandBounds.size(); band++) {
+                if (price.compareTo(bandBounds.get(band)) < 0) {
+                    return band;
+                }
+            }
+            return bandBounds.size();
+        }
+
+        private int bandIndex(String label) {
+            int band = bandLabels.indexOf(label);
+            if (band < 0) {
+                throw new IllegalArgumentException("Unknown price band " + label + ", expected one of " + bandLabels);
+            }
+            return band;
+        }
+
+        private String bandLabel(int band) {
+            if (band == bandBounds.size()) {
+                return plain(bandBounds.isEmpty() ? BigDecimal.ZERO : bandBounds.get(band - 1)) + "+";
+            }
+            return plain(band == 0 ? BigDecimal.ZERO : bandBounds.get(band - 1)) + "-" + plain(bandBounds.get(band));
+        }
+
+        private static String plain(BigDecimal value) {
+            return value.stripTrailingZeros().toPlainString();
+        }
+
+        private static long[] copy(Bits bits, int words) {
+            return bits == null ? new long[words] : bits.copy(words);
+        }
+
+        // Пересечение scope с заданными фильтрами; null — фильтр не задан
+        private static long[] and(long[] scope, long[]... filters) {
+            long[] result = scope.clone();
+            for (long[] filter : filters) {
+                if (filter != null) {
+                    for (int word = 0; word < result.length; word++) {
+                        result[word] &= filter[word];
+                    }
+                }
+            }
+            return result;
+        }
+
+        private static <K extends Comparable<K>> Map<K, Long> counts(Map<K, Bits> postings, long[] scope) {
+            Map<K, Long> result = new TreeMap<>();
+            postings.forEach((value, bits) -> {
+                long count = bits.countAnd(scope);
+                if (count > 0) {
+                    result.put(value, count);
+                }
+            });
+            return result;
+        }
+
+        private static long count(long[] bits) {
+            long count = 0;
+            for (long word : bits) {
+                count += Long.bitCount(word);
+            }
+            return count;
+        }
+    }
+
+    // Битсет свободных номеров: биты меняются под read lock, рост — только под write lock
+    private static final class AtomicBits {
+        private AtomicLongArray words = new AtomicLongArray(1);
+
+        private void ensure(int index) {
+            int word = index >>> 6;
+            if (word >= words.length()) {
+                AtomicLongArray grown = new AtomicLongArray(Math.max(word + 1, words.length() * 2));
+                for (int i = 0; i < words.length(); i++) {
+                    grown.set(i, words.get(i));
+                }
+                words = grown;
+            }
+        }
+
+        private void set(int index, boolean value) {
+            long bit = 1L << index;
+            words.accumulateAndGet(index >>> 6, bit, value ? (current, b) -> current | b : (current, b) -> current & ~b);
+        }
+
+        private long[] copy(int length) {
+            long[] result = new long[length];
+            for (int word = 0; word < Math.min(words.length(), length); word++) {
+                result[word] = words.get(word);
+            }
+            return result;
+        }
+    }
+
+    // Растущий битсет по индексам номеров — список номеров с одним значением атрибута
+    private static final class Bits {
+        private long[] words = new long[1];
+
+        private void set(int index) {
+            int word = index >>> 6;
+            if (word >= words.length) {
+                words = Arrays.copyOf(words, Math.max(word + 1, words.length * 2));
+            }
+            words[word] |= 1L << index;
+        }
+
+        private boolean get(int index) {
+            int word = index >>> 6;
+            return word < words.length && (words[word] & (1L << index)) != 0;
+        }
+
+        private long[] copy(int length) {
+            return Arrays.copyOf(words, length);
+        }
+
+        private void orInto(long[] target) {
+            for (int word = 0; word < Math.min(words.length, target.length); word++) {
+                target[word] |= words[word];
+            }
+        }
+
+        private long countAnd(long[] scope) {
+            long count = 0;
+            for (int word = 0; word < Math.min(words.length, scope.length); word++) {
+                count += Long.bitCount(words[word] & scope[word]);
+            }
+            return count;
+        }
+    }
+}
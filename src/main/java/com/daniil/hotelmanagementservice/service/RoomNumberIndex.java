@@ -0,0 +1,251 @@
+package com.daniil.hotelmanagementservice.service;
+
+import com.daniil.hotelmanagementservice.dto.RoomSearchAttributes;
+import com.daniil.hotelmanagementservice.entity.Room;
+import com.daniil.hotelmanagementservice.repository.RoomRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Триграммный индекс номеров комнат для фильтра number в searchRooms. Для каждого отеля на каждую
+ * триграмму номера хранится список индексов номеров, в которых она встречается.
+ * Кандидаты на образец — самый короткий из списков его триграмм; каждый проверяется contains,
+ * поэтому поиск растёт с числом совпадений в отеле, а не с числом номеров.
+ * <p>
+ * Образцы короче триграммы индекс не обслуживает ({@link #covers}): они совпадают с большой долей номеров,
+ * и их фильтрует БД. Номера от других инстансов попадают в индекс при пересборке, а до неё
+ * {@link #isCurrent} сообщает, что индекс неполон.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RoomNumberIndex {
+
+    static final int GRAM = 3;
+
+    private final RoomRepository roomRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Grams grams = new Grams();
+    // Номера, добавленные во время пересборки: её чтение из БД могло их не застать
+    private List<RoomSearchAttributes> addedDuringRebuild;
+    // Незавершённые транзакции, создающие номера: их номера могут быть закоммичены, но ещё не добавлены
+    private final AtomicInteger pendingWriters = new AtomicInteger();
+    // Сверка нашла в БД номера, которых нет в индексе (созданы другим инстансом); сбрасывается пересборкой
+    private volatile boolean behindDatabase;
+
+    public boolean covers(String pattern) {
+        return pattern.length() >= GRAM;
+    }
+
+    /**
+     * Сравнение с учётом регистра, как LIKE в БД.
+     *
+     * @param hotelId отель; null — все отели (обходит списки каждого отеля)
+     * @return id номеров, number которых содержит pattern, в произвольном порядке
+     */
+    public List<Long> find(Long hotelId, String pattern) {
+        if (!covers(pattern)) {
+            throw new IllegalArgumentException("pattern must have at least " + GRAM + " characters");
+        }
+        lock.readLock().lock();
+        try {
+            return grams.find(hotelId, pattern);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Полон ли индекс, без обращения к БД. Неполон, пока открыта транзакция этого инстанса, создающая номера
+     * ({@link #roomsPending}), и после того, как сверка {@link #checkAgainstDatabase} нашла номера другого
+     * инстанса, — до пересборки. Тогда фильтр по номеру должна выполнить БД.
+     */
+    public boolean isCurrent() {
+        return pendingWriters.get() == 0 && !behindDatabase;
+    }
+
+    /** Транзакция начинает создавать номера; парный вызов {@link #roomsSettled} — после её завершения */
+    public void roomsPending() {
+        pendingWriters.incrementAndGet();
+    }
+
+    public void roomsSettled() {
+        pendingWriters.decrementAndGet();
+    }
+
+    /**
+     * Номера не удаляются, поэтому в БД больше номеров, чем в индексе, только если часть создана
+     * другим инстансом. Счёт читается до проверки незавершённых транзакций: номер, закоммиченный
+     * до чтения, к этому моменту либо ещё числится незавершённым, либо уже добавлен в индекс.
+     */
+    @Scheduled(initialDelayString = "${hotel.search.count-check-interval:PT30S}",
+            fixedDelayString = "${hotel.search.count-check-interval:PT30S}")
+    public void checkAgainstDatabase() {
+        long stored = roomRepository.count();
+        if (pendingWriters.get() != 0) {
+            return;
+        }
+        long indexed;
+        lock.readLock().lock();
+        try {
+            indexed = grams.rooms();
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (stored > indexed && !behindDatabase) {
+            behindDatabase = true;
+            log.info("Room number index is behind the database ({} of {} rooms), number filter goes to the database until rebuild",
+                    indexed, stored);
+        }
+    }
+
+    public void roomAdded(Room room) {
+        RoomSearchAttributes attributes = RoomSearchAttributes.of(room);
+        lock.writeLock().lock();
+        try {
+            grams.add(attributes);
+            if (addedDuringRebuild != null) {
+                addedDuringRebuild.add(attributes);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Собирает индекс курсором по атрибутам номеров и подменяет текущий целиком; запросы во время сборки
+     * обслуживает старый индекс. Номера, добавленные за время чтения из БД, переносятся в новый индекс
+     * перед подменой. Своя транзакция: пересборку вызывает и afterCommit импорта.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${hotel.search.resync-interval:PT5M}",
+            fixedDelayString = "${hotel.search.resync-interval:PT5M}")
+    @Transactional(readOnly = true, propagation = Propagation.REQUIRES_NEW)
+    public synchronized void rebuild() {
+        lock.writeLock().lock();
+        try {
+            addedDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        Grams rebuilt = new Grams();
+        try (Stream<RoomSearchAttributes> rooms = roomRepository.streamSearchAttributes()) {
+            rooms.forEach(rebuilt::add);
+        }
+
+        lock.writeLock().lock();
+        try {
+            addedDuringRebuild.forEach(rebuilt::add);
+            addedDuringRebuild = null;
+            grams = rebuilt;
+            behindDatabase = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Room number index rebuilt: {} rooms in {} hotels", rebuilt.size, rebuilt.byHotel.size());
+    }
+
+    private static final class Grams {
+        private long[] roomIds = new long[64];
+        private String[] numbers = new String[64];
+        private int size;
+        private final Set<Long> indexed = new HashSet<>();
+
+        // Ключ null — номера без отеля; они попадают только в поиск по всем отелям
+        private final Map<Long, Map<String, Postings>> byHotel = new HashMap<>();
+
+        private void add(RoomSearchAttributes room) {
+            if (room.id() == null || !indexed.add(room.id())) {
+                return;
+            }
+            // Номера без number тоже считаются: сверка сравнивает с числом всех номеров в БД
+            if (room.number() == null) {
+                return;
+            }
+            int index = size++;
+            if (index == roomIds.length) {
+                roomIds = Arrays.copyOf(roomIds, index * 2);
+                numbers = Arrays.copyOf(numbers, index * 2);
+            }
+            roomIds[index] = room.id();
+            numbers[index] = room.number();
+
+            Map<String, Postings> hotel = byHotel.computeIfAbsent(room.hotelId(), id -> new HashMap<>());
+            String number = room.number();
+            Set<String> seen = new HashSet<>();
+            for (int from = 0; from + GRAM <= number.length(); from++) {
+                String gram = number.substring(from, from + GRAM);
+                if (seen.add(gram)) {
+                    hotel.computeIfAbsent(gram, g -> new Postings()).add(index);
+                }
+            }
+        }
+
+        private long rooms() {
+            return indexed.size();
+        }
+
+        private List<Long> find(Long hotelId, String pattern) {
+            List<Long> result = new ArrayList<>();
+            if (hotelId == null) {
+                byHotel.values().forEach(hotel -> collect(hotel, pattern, result));
+            } else {
+                collect(byHotel.getOrDefault(hotelId, Map.of()), pattern, result);
+            }
+            return result;
+        }
+
+        private void collect(Map<String, Postings> hotel, String pattern, List<Long> result) {
+            Postings shortest = null;
+            for (int from = 0; from + GRAM <= pattern.length(); from++) {
+                Postings postings = hotel.get(pattern.substring(from, from + GRAM));
+                if (postings == null) {
+                    return;
+                }
+                if (shortest == null || postings.size < shortest.size) {
+                    shortest = postings;
+                }
+            }
+            // Образец из одной триграммы совпадает со всем списком, длиннее — нужна проверка
+            boolean exact = pattern.length() == GRAM;
+            for (int i = 0; i < shortest.size; i++) {
+                int index = shortest.indexes[i];
+                if (exact || numbers[index].contains(pattern)) {
+                    result.add(roomIds[index]);
+                }
+            }
+        }
+    }
+
+    // Растущий список индексов номеров с одной триграммой
+    private static final class Postings {
+        private int[] indexes = new int[4];
+        private int size;
+
+        private void add(int index) {
+            if (size == indexes.length) {
+                indexes = Arrays.copyOf(indexes, size * 2);
+            }
+            indexes[size++] = index;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.daniil.hotelmanagementservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Время операций RoomService с разделением на ожидание блокировок строк и выполнение:
+ * <ul>
+ *     <li>hotel.rooms.operation{operation, outcome} — всё время операции, включая flush и коммит;</li>
+ *     <li>hotel.rooms.lock.wait{operation} — каждый запрос с PESSIMISTIC_WRITE / FOR UPDATE до получения блокировок;</li>
+ *     <li>hotel.rooms.execution{operation} — время операции за вычетом ожидания блокировок.</li>
+ * </ul>
+ * Внутри транзакции замер завершается после коммита или отката.
+ */
+@Component
+public class RoomOperationMetrics {
+
+    private final MeterRegistry registry;
+    private final Map<String, Timer> lockWaitTimers = new ConcurrentHashMap<>();
+    private final Map<String, Timer> executionTimers = new ConcurrentHashMap<>();
+    private final Counter allocationMisses;
+    private final Counter allocationConflicts;
+
+    // Ожидание блокировок текущей операции на этом потоке
+    private final ThreadLocal<long[]> currentLockWait = new ThreadLocal<>();
+
+    public RoomOperationMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.allocationMisses = Counter.builder("hotel.rooms.allocation.misses")
+                .description("allocate requests that found no free room")
+                .register(registry);
+        this.allocationConflicts = Counter.builder("hotel.rooms.allocation.conflicts")
+                .description("optimistic allocate attempts lost to a concurrent update")
+                .register(registry);
+    }
+
+    public <T> T timed(String operation, Supplier<T> body) {
+        long start = System.nanoTime();
+        long[] lockWait = {0};
+        long[] outer = currentLockWait.get();
+        currentLockWait.set(lockWait);
+        boolean failed = true;
+        try {
+            T result = body.get();
+            failed = false;
+            return result;
+        } finally {
+            if (outer == null) {
+                currentLockWait.remove();
+            } else {
+                currentLockWait.set(outer);
+            }
+            recordOnCompletion(operation, start, lockWait, failed);
+        }
+    }
+
+    public void timed(String operation, Runnable body) {
+        timed(operation, () -> {
+            body.run();
+            return null;
+        });
+    }
+
+    public <T> T waitFor(String operation, Supplier<T> locking) {
+        long start = System.nanoTime();
+        try {
+            return locking.get();
+        } finally {
+            long waited = System.nanoTime() - start;
+            lockWaitTimers.computeIfAbsent(operation, name -> timer("hotel.rooms.lock.wait", name))
+                    .record(waited, TimeUnit.NANOSECONDS);
+            long[] lockWait = currentLockWait.get();
+            if (lockWait != null) {
+                lockWait[0] += waited;
+            }
+        }
+    }
+
+    public void allocationMissed() {
+        allocationMisses.increment();
+    }
+
+    public void allocationConflict() {
+        allocationConflicts.increment();
+    }
+
+    private void recordOnCompletion(String operation, long start, long[] lockWait, boolean failed) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            record(operation, start, lockWait[0], failed ? "error" : "success");
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                record(operation, start, lockWait[0], failed || status != STATUS_COMMITTED ? "error" : "success");
+            }
+        });
+    }
+
+    private void record(String operation, long start, long lockWaitNanos, String outcome) {
+        long total = System.nanoTime() - start;
+        Timer.builder("hotel.rooms.operation")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(registry)
+                .record(total, TimeUnit.NANOSECONDS);
+        executionTimers.computeIfAbsent(operation, name -> timer("hotel.rooms.execution", name))
+                .record(Math.max(0, total - lockWaitNanos), TimeUnit.NANOSECONDS);
+    }
+
+    private Timer timer(String name, String operation) {
+        return Timer.builder(name)
+                .tag("operation", operation)
+                .register(registry);
+    }
+}
@@ -0,0 +1,88 @@
+package com.daniil.hotelmanagementservice.service;
+
+import com.daniil.hotelmanagementservice.entity.Room;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Порядок выдачи searchRooms и курсор для keyset-пагинации по нему.
+ * Курсор — ключи сортировки последнего номера страницы; id всегда последний, чтобы порядок был строгим.
+ */
+enum RoomSearchOrder {
+
+    ID(Sort.by("id"),
+            List.of(Key.of("id", Room::getId, Long::valueOf))),
+    NUMBER(Sort.by("number", "id"),
+            List.of(Key.of("number", Room::getNumber, Function.identity()),
+                    Key.of("id", Room::getId, Long::valueOf))),
+    TIMES_BOOKED_DESC(Sort.by(Sort.Order.desc("timesBooked"), Sort.Order.asc("id")),
+            List.of(Key.of("timesBooked", Room::getTimesBooked, Integer::valueOf),
+                    Key.of("id", Room::getId, Long::valueOf)));
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final Sort sort;
+    private final List<Key> keys;
+
+    RoomSearchOrder(Sort sort, List<Key> keys) {
+        this.sort = sort;
+        this.keys = keys;
+    }
+
+    static RoomSearchOrder of(String sortBy) {
+        return switch (sortBy) {
+            case "timesBooked_desc" -> TIMES_BOOKED_DESC;
+            case "number" -> NUMBER;
+            default -> ID;
+        };
+    }
+
+    Sort sort() {
+        return sort;
+    }
+
+    String cursorAfter(Room last) {
+        StringBuilder cursor = new StringBuilder();
+        for (Key key : keys) {
+            if (!cursor.isEmpty()) {
+                cursor.append('.');
+            }
+            String value = String.valueOf(key.getter().apply(last));
+            cursor.append(ENCODER.encodeToString(value.getBytes(StandardCharsets.UTF_8)));
+        }
+        return cursor.toString();
+    }
+
+    KeysetScrollPosition positionAfter(String cursor) {
+        String[] parts = cursor.split("\\.");
+        if (parts.length != keys.size()) {
+            throw new IllegalArgumentException("Invalid cursor for this sort order");
+        }
+        Map<String, Object> position = new LinkedHashMap<>();
+        try {
+            for (int i = 0; i < parts.length; i++) {
+                String value = new String(DECODER.decode(parts[i]), StandardCharsets.UTF_8);
+                position.put(keys.get(i).property(), keys.get(i).parser().apply(value));
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor for this sort order", e);
+        }
+        return ScrollPosition.forward(position);
+    }
+
+    private record Key(String property, Function<Room, Object> getter, Function<String, Object> parser) {
+
+        static <T> Key of(String property, Function<Room, T> getter, Function<String, T> parser) {
+            return new Key(property, getter::apply, parser::apply);
+        }
+    }
+}
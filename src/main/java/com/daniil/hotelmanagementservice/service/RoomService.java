@@ -1,29 +1,55 @@
 package com.daniil.hotelmanagementservice.service;
 
 
-import com.daniil.hotelmanagementservice.entity.Hotel;
+import com.daniil.hotelmanagementservice.config.AllocationProperties;
+import com.daniil.hotelmanagementservice.config.LeaseProperties;
+import com.daniil.hotelmanagementservice.config.SearchProperties;
+import com.daniil.hotelmanagementservice.dto.OccupancyStats;
+import com.daniil.hotelmanagementservice.dto.RoomFacets;
+import com.daniil.hotelmanagementservice.dto.RoomSearchPage;
 import com.daniil.hotelmanagementservice.entity.Room;
-import com.daniil.hotelmanagementservice.repository.HotelRepository;
+import com.daniil.hotelmanagementservice.entity.RoomStay;
 import com.daniil.hotelmanagementservice.repository.RoomRepository;
+import com.daniil.hotelmanagementservice.repository.RoomSpecifications;
+import com.daniil.hotelmanagementservice.repository.RoomStayRepository;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Comparator;
-import java.util.HashMap;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import com.daniil.hotelmanagementservice.entity.Room;
 import com.daniil.hotelmanagementservice.repository.RoomRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.RequestBody;
 
-import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
@@ -31,112 +57,757 @@ import java.util.stream.Collectors;
 public class RoomService {
 
     private final RoomRepository roomRepository;
-    private final HotelRepository hotelRepository;
+    private final RoomAllocationEngine allocationEngine;
+    private final AllocationProperties allocationProperties;
+    private final LeaseProperties leaseProperties;
+    private final LeaseMetrics leaseMetrics;
+    private final RoomOperationMetrics operationMetrics;
+    private final OccupancyCounters occupancyCounters;
+    private final CollectionVersions collectionVersions;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final RoomStayRepository stayRepository;
+    private final RoomCalendar roomCalendar;
+    private final RoomFacetIndex facetIndex;
+    private final RoomNumberIndex numberIndex;
+    private final SearchProperties searchProperties;
+    private final TimesBookedBuffer timesBookedBuffer;
 
-    @Transactional
-    public Optional<Room> allocateRoom() {
-        var availableRooms = roomRepository.findAndLockAvailableRooms();
+    static final int MAX_SEARCH_PAGE_SIZE = 500;
+    // Верхняя граница групповых операций: список id уходит в IN одного UPDATE
+    static final int MAX_BATCH_SIZE = 500;
+    // Кандидатов на ночи больше не нужно: их отбирают только из свободных по календарю, промах — редкая гонка
+    static final int STAY_CANDIDATES = 64;
+    static final int IMPORT_CHUNK = 500;
+
+    /**
+     * Каждая попытка — отдельная транзакция: в режиме OPTIMISTIC проигравший конфликт версий
+     * повторяет выбор после паузы уже вне транзакции, не удерживая соединение.
+     *
+     * @param hotelId отель, в котором нужен номер; null — любой отель
+     * @param owner   владелец аренды (например, id бронирования); проверяется при confirm/release
+     * @throws OptimisticLockingFailureException все попытки режима OPTIMISTIC проиграли конкурентам
+     */
+    public Optional<Room> allocateRoom(Long hotelId, String owner) {
+        Optional<Room> room = operationMetrics.timed("allocate", () -> switch (allocationProperties.getMode()) {
+            case IN_MEMORY -> transactionTemplate.execute(status -> allocateFromEngine(hotelId, owner));
+            case SKIP_LOCKED -> transactionTemplate.execute(status -> allocateSkipLocked(hotelId, owner));
+            case PESSIMISTIC -> transactionTemplate.execute(status -> allocateWithLock(hotelId, owner));
+            case OPTIMISTIC -> allocateOptimistically(hotelId, owner);
+        });
+        if (room.isEmpty()) {
+            operationMetrics.allocationMissed();
+        }
+        return room;
+    }
+
+    /**
+     * Кандидаты читаются без блокировок, из top-K берётся случайный, чтобы конкурирующие запросы
+     * реже выбирали одну и ту же строку. Запись проверяет @Version; проигравший повторяет попытку
+     * после паузы со случайной составляющей (full jitter), иначе повторы совпадают снова.
+     */
+    private Optional<Room> allocateOptimistically(Long hotelId, String owner) {
+        AllocationProperties.Optimistic settings = allocationProperties.getOptimistic();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> tryAllocateOptimistically(hotelId, owner, settings.getTopK()));
+            } catch (OptimisticLockingFailureException e) {
+                operationMetrics.allocationConflict();
+                if (attempt >= settings.getMaxAttempts()) {
+                    log.warn("Allocation gave up after {} conflicting attempts", attempt);
+                    throw e;
+                }
+                log.debug("Allocation attempt {} lost a version conflict, retrying", attempt);
+                backOff(attempt, settings);
+            }
+        }
+    }
+
+    private Optional<Room> tryAllocateOptimistically(Long hotelId, String owner, int topK) {
+        List<Room> candidates = hotelId == null
+                ? roomRepository.findAllocationCandidates(Limit.of(topK))
+                : roomRepository.findAllocationCandidatesByHotelId(hotelId, Limit.of(topK));
+        if (candidates.isEmpty()) {
+            log.warn("No available rooms found!");
+            return Optional.empty();
+        }
+        Room room = candidates.get(ThreadLocalRandom.current().nextInt(candidates.size()));
+        room.setTempLocked(true);
+        room.setLeaseExpiresAt(leaseExpiry());
+        room.setLeaseOwner(owner);
+        // Проверка версии сразу, до учёта аренды в счётчиках
+        return Optional.of(leased(roomRepository.saveAndFlush(room)));
+    }
+
+    private static void backOff(int attempt, AllocationProperties.Optimistic settings) {
+        long ceiling = Math.min(settings.getBackoffMax().toNanos(),
+                settings.getBackoffBase().toNanos() << Math.min(attempt, 20));
+        if (ceiling <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(ThreadLocalRandom.current().nextLong(ceiling));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while backing off", e);
+        }
+    }
+
+    private Optional<Room> allocateWithLock(Long hotelId, String owner) {
+        var availableRooms = operationMetrics.waitFor("allocate", () -> lockAvailableRooms(hotelId, 1));
         if (availableRooms.isEmpty()) {
             log.warn("No available rooms found!");
             return Optional.empty();
         }
-        Room room = availableRooms.get(0);
+        return Optional.of(lockTemporarily(availableRooms.get(0), owner));
+    }
+
+    /**
+     * Блокируется ровно одна строка; занятые другими транзакциями строки пропускаются без ожидания.
+     */
+    private Optional<Room> allocateSkipLocked(Long hotelId, String owner) {
+        Optional<Room> room = operationMetrics.waitFor("allocate", () -> roomRepository.lockNextAvailableRoom(hotelId));
+        if (room.isEmpty()) {
+            log.warn("No available rooms found!");
+            return Optional.empty();
+        }
+        return Optional.of(lockTemporarily(room.get(), owner));
+    }
+
+    /**
+     * Строка уже заблокирована этой транзакцией: аренда ставится точечным UPDATE вместо save() всей сущности.
+     * UPDATE очищает контекст, поэтому поля возвращаемого объекта выставляются вручную.
+     */
+    private Room lockTemporarily(Room room, String owner) {
+        Instant expiresAt = leaseExpiry();
+        roomRepository.markTempLocked(List.of(room.getId()), expiresAt, owner);
         room.setTempLocked(true);
-        roomRepository.save(room);
+        room.setLeaseExpiresAt(expiresAt);
+        room.setLeaseOwner(owner);
+        return leased(room);
+    }
+
+    private Room leased(Room room) {
+        leaseMetrics.created(1);
+        afterCommit(() -> occupancyCounters.roomsLocked(room.getHotelId(), 1));
+        afterCommit(() -> facetIndex.locked(List.of(room.getId())));
+        afterCommit(collectionVersions::roomsChanged);
         log.info("Room {} allocated (timesBooked={}, available={})", room.getId(), room.getTimesBooked(), room.isAvailable());
-        return Optional.of(room);
+        return room;
+    }
+
+    private Instant leaseExpiry() {
+        return Instant.now().plus(leaseProperties.getDuration());
     }
 
+    /**
+     * Кандидат берётся из очереди в памяти и захватывается одним условным UPDATE.
+     * Если UPDATE не изменил строку (номер уже не свободен), кандидат отбрасывается и берётся следующий.
+     */
+    private Optional<Room> allocateFromEngine(Long hotelId, String owner) {
+        while (true) {
+            OptionalLong claimed = allocationEngine.claim(hotelId);
+            if (claimed.isEmpty()) {
+                log.warn("No available rooms found!");
+                return Optional.empty();
+            }
+            long roomId = claimed.getAsLong();
+            onRollback(() -> allocationEngine.cancelClaim(roomId));
+
+            Optional<Room> leased = operationMetrics.waitFor("allocate",
+                    () -> roomRepository.leaseIfAvailable(roomId, leaseExpiry(), owner));
+            if (leased.isEmpty()) {
+                log.debug("Room {} is no longer free, skipping", roomId);
+                allocationEngine.evict(roomId);
+                continue;
+            }
+            return Optional.of(leased(leased.get()));
+        }
+    }
+
+    /**
+     * Номер на ночи [checkIn, checkOut). Кандидаты берутся из календаря в памяти (за его горизонтом — из БД),
+     * затем под блокировкой строки номера пересечение перепроверяется по RoomStay: календарь мог отстать.
+     * Интервал удерживается hotel.lease.duration, пока не придёт confirm или release с теми же датами.
+     */
     @Transactional
-    public void confirmBooking(Long roomId) {
-        roomRepository.findById(roomId).ifPresent(room -> {
-            room.setTimesBooked(room.getTimesBooked() + 1);
-            room.setTempLocked(false);
-            roomRepository.save(room);
-            log.info("Room {} confirmed, timesBooked={}", roomId, room.getTimesBooked());
+    public Optional<Room> allocateRoom(Long hotelId, String owner, LocalDate checkIn, LocalDate checkOut) {
+        requireRange(checkIn, checkOut);
+        Optional<Room> room = operationMetrics.timed("allocate_stay", () -> allocateStay(hotelId, owner, checkIn, checkOut));
+        if (room.isEmpty()) {
+            operationMetrics.allocationMissed();
+        }
+        return room;
+    }
+
+    private Optional<Room> allocateStay(Long hotelId, String owner, LocalDate checkIn, LocalDate checkOut) {
+        for (Long roomId : freeRoomIds(hotelId, checkIn, checkOut, STAY_CANDIDATES)) {
+            Optional<Room> locked = operationMetrics.waitFor("allocate_stay", () -> roomRepository.findById(roomId));
+            if (locked.isEmpty() || !locked.get().isAvailable()
+                    || stayRepository.existsOverlapping(roomId, checkIn, checkOut)) {
+                log.debug("Room {} is taken for {}..{}, skipping", roomId, checkIn, checkOut);
+                continue;
+            }
+            Room room = locked.get();
+            stayRepository.save(RoomStay.builder()
+                    .roomId(roomId)
+                    .hotelId(room.getHotelId())
+                    .checkIn(checkIn)
+                    .checkOut(checkOut)
+                    .owner(owner)
+                    .holdExpiresAt(leaseExpiry())
+                    .build());
+            leaseMetrics.created(1);
+            afterCommit(() -> roomCalendar.reserve(roomId, checkIn, checkOut));
+            log.info("Room {} held for {}..{}", roomId, checkIn, checkOut);
+            return Optional.of(room);
+        }
+        log.warn("No rooms available for {}..{}", checkIn, checkOut);
+        return Optional.empty();
+    }
+
+    /**
+     * Первые size номеров, свободных во все ночи [checkIn, checkOut), в порядке планирования.
+     * В горизонте календаря ответ собирается в памяти без обращения к БД.
+     *
+     * @param hotelId отель; null — все отели
+     */
+    public List<Long> findFreeRooms(Long hotelId, LocalDate checkIn, LocalDate checkOut, int size) {
+        requireRange(checkIn, checkOut);
+        if (size <= 0 || size > MAX_SEARCH_PAGE_SIZE) {
+            throw new IllegalArgumentException("size must be between 1 and " + MAX_SEARCH_PAGE_SIZE);
+        }
+        return operationMetrics.timed("free_rooms", () -> freeRoomIds(hotelId, checkIn, checkOut, size));
+    }
+
+    private List<Long> freeRoomIds(Long hotelId, LocalDate checkIn, LocalDate checkOut, int limit) {
+        if (roomCalendar.covers(checkIn, checkOut)) {
+            return roomCalendar.freeRooms(hotelId, checkIn, checkOut, limit);
+        }
+        return hotelId == null
+                ? stayRepository.findFreeRoomIds(checkIn, checkOut, Limit.of(limit))
+                : stayRepository.findFreeRoomIds(hotelId, checkIn, checkOut, Limit.of(limit));
+    }
+
+    private static void requireRange(LocalDate checkIn, LocalDate checkOut) {
+        if (checkIn == null || checkOut == null || !checkIn.isBefore(checkOut)) {
+            throw new IllegalArgumentException("checkIn and checkOut are required and checkIn must be before checkOut");
+        }
+    }
+
+    /**
+     * Групповое бронирование: count номеров блокируются в одной транзакции одним UPDATE.
+     * Если свободных номеров меньше count, не блокируется ни один.
+     */
+    @Transactional
+    public List<Long> allocateRooms(int count, Long hotelId, String owner) {
+        requireBatchSize(count);
+        return operationMetrics.timed("allocate_batch", () -> allocateBatch(count, hotelId, owner));
+    }
+
+    private List<Long> allocateBatch(int count, Long hotelId, String owner) {
+        List<Room> rooms = operationMetrics.waitFor("allocate_batch", () -> lockCandidates(count, hotelId));
+        List<Long> roomIds = rooms.stream().map(Room::getId).collect(Collectors.toList());
+        if (roomIds.size() < count) {
+            log.warn("Only {} of {} requested rooms available", roomIds.size(), count);
+            if (allocationProperties.getMode() == AllocationProperties.Mode.IN_MEMORY) {
+                roomIds.forEach(allocationEngine::cancelClaim);
+            }
+            operationMetrics.allocationMissed();
+            return List.of();
+        }
+        roomRepository.markTempLocked(roomIds, leaseExpiry(), owner);
+        leaseMetrics.created(roomIds.size());
+        Map<Long, Integer> lockedByHotel = countByHotel(rooms);
+        afterCommit(() -> lockedByHotel.forEach(occupancyCounters::roomsLocked));
+        afterCommit(() -> facetIndex.locked(roomIds));
+        afterCommit(collectionVersions::roomsChanged);
+        log.info("Rooms {} allocated as a batch", roomIds);
+        return roomIds;
+    }
+
+    private List<Room> lockCandidates(int count, Long hotelId) {
+        return switch (allocationProperties.getMode()) {
+            case IN_MEMORY -> claimFromEngine(count, hotelId);
+            // Для группы без блокировок конфликт почти гарантирован, поэтому OPTIMISTIC берёт строки через SKIP LOCKED
+            case SKIP_LOCKED, OPTIMISTIC -> roomRepository.lockNextAvailableRooms(hotelId, count);
+            case PESSIMISTIC -> new ArrayList<>(lockAvailableRooms(hotelId, count));
+        };
+    }
+
+    // FOR UPDATE с LIMIT: ждут только запросы, претендующие на те же первые строки
+    private List<Room> lockAvailableRooms(Long hotelId, int count) {
+        return hotelId == null
+                ? roomRepository.findAndLockAvailableRooms(Limit.of(count))
+                : roomRepository.findAndLockAvailableRoomsByHotelId(hotelId, Limit.of(count));
+    }
+
+    /**
+     * @throws IllegalArgumentException size вне 1..MAX_BATCH_SIZE (ответ 400)
+     */
+    static void requireBatchSize(int size) {
+        if (size <= 0 || size > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("batch size must be between 1 and " + MAX_BATCH_SIZE);
+        }
+    }
+
+    private List<Room> claimFromEngine(int count, Long hotelId) {
+        List<Room> rooms = new ArrayList<>(count);
+        while (rooms.size() < count) {
+            OptionalLong claimed = allocationEngine.claim(hotelId);
+            if (claimed.isEmpty()) {
+                break;
+            }
+            long roomId = claimed.getAsLong();
+            onRollback(() -> allocationEngine.cancelClaim(roomId));
+            Optional<Room> free = roomRepository.lockIfAvailable(roomId);
+            if (free.isPresent()) {
+                rooms.add(free.get());
+            } else {
+                allocationEngine.evict(roomId);
+            }
+        }
+        return rooms;
+    }
+
+    /**
+     * Одним условным UPDATE: снимается аренда и увеличивается timesBooked, если номер временно заблокирован.
+     * В режиме hotel.times-booked.mode: write-behind UPDATE только снимает аренду, а приращение копится в памяти.
+     *
+     * @param owner если указан, подтверждается только аренда этого владельца:
+     *              после истечения аренды номер мог уйти другому бронированию
+     * @return false, если номер не найден, не заблокирован или арендован другим владельцем
+     */
+    @Transactional
+    public boolean confirmBooking(Long roomId, String owner) {
+        return operationMetrics.timed("confirm", () -> confirm(roomId, owner));
+    }
+
+    private boolean confirm(Long roomId, String owner) {
+        boolean writeBehind = timesBookedBuffer.isEnabled();
+        Optional<Room> confirmed = operationMetrics.waitFor("confirm", () -> writeBehind
+                ? roomRepository.releaseLease(roomId, owner)
+                : roomRepository.confirmLease(roomId, owner));
+        if (confirmed.isEmpty()) {
+            log.warn("Room {} has no lease of owner {}, confirm ignored", roomId, owner);
+            return false;
+        }
+        Room room = confirmed.get();
+        if (writeBehind) {
+            bookedWriteBehind(List.of(room));
+        }
+        leaseMetrics.confirmed(1);
+        unlockedAfterCommit(room);
+        log.info("Room {} confirmed, timesBooked={}", roomId, room.getTimesBooked());
+        return true;
+    }
+
+    /**
+     * @return false, если номер не найден, не заблокирован или арендован другим владельцем
+     */
+    @Transactional
+    public boolean releaseRoom(Long roomId, String owner) {
+        return operationMetrics.timed("release", () -> release(roomId, owner));
+    }
+
+    private boolean release(Long roomId, String owner) {
+        Optional<Room> released = operationMetrics.waitFor("release", () -> roomRepository.releaseLease(roomId, owner));
+        if (released.isEmpty()) {
+            log.warn("Room {} has no lease of owner {}, release ignored", roomId, owner);
+            return false;
+        }
+        unlockedAfterCommit(released.get());
+        log.info("Room {} released", roomId);
+        return true;
+    }
+
+    /**
+     * Подтверждает удержание на [checkIn, checkOut) условным UPDATE и увеличивает timesBooked номера
+     * (в режиме write-behind — в памяти, без блокировки строки номера).
+     *
+     * @return false, если удержания с такими датами нет, оно уже подтверждено или принадлежит другому владельцу
+     */
+    @Transactional
+    public boolean confirmBooking(Long roomId, String owner, LocalDate checkIn, LocalDate checkOut) {
+        requireRange(checkIn, checkOut);
+        return operationMetrics.timed("confirm_stay", () -> confirmStay(roomId, owner, checkIn, checkOut));
+    }
+
+    private boolean confirmStay(Long roomId, String owner, LocalDate checkIn, LocalDate checkOut) {
+        if (stayRepository.confirmHold(roomId, checkIn, checkOut, owner) == 0) {
+            log.warn("Room {} has no hold of owner {} for {}..{}, confirm ignored", roomId, owner, checkIn, checkOut);
+            return false;
+        }
+        if (timesBookedBuffer.isEnabled()) {
+            afterCommit(() -> timesBookedBuffer.increment(List.of(roomId)));
+        } else {
+            roomRepository.incrementTimesBooked(roomId);
+        }
+        leaseMetrics.confirmed(1);
+        afterCommit(() -> roomCalendar.booked(roomId));
+        afterCommit(collectionVersions::roomsChanged);
+        log.info("Room {} confirmed for {}..{}", roomId, checkIn, checkOut);
+        return true;
+    }
+
+    /**
+     * Освобождает ночи [checkIn, checkOut): и неподтверждённое удержание, и подтверждённое бронирование.
+     *
+     * @return false, если такого интервала нет или он принадлежит другому владельцу
+     */
+    @Transactional
+    public boolean releaseRoom(Long roomId, String owner, LocalDate checkIn, LocalDate checkOut) {
+        requireRange(checkIn, checkOut);
+        return operationMetrics.timed("release_stay", () -> releaseStay(roomId, owner, checkIn, checkOut));
+    }
+
+    private boolean releaseStay(Long roomId, String owner, LocalDate checkIn, LocalDate checkOut) {
+        if (stayRepository.deleteStay(roomId, checkIn, checkOut, owner) == 0) {
+            log.warn("Room {} has no stay of owner {} for {}..{}, release ignored", roomId, owner, checkIn, checkOut);
+            return false;
+        }
+        afterCommit(() -> roomCalendar.free(roomId, checkIn, checkOut));
+        log.info("Room {} released for {}..{}", roomId, checkIn, checkOut);
+        return true;
+    }
+
+    /**
+     * Приращения уходят в TimesBookedBuffer после коммита; rooms получают timesBooked с учётом ещё
+     * не выгруженных приращений, чтобы очередь в памяти ставила номера в верном порядке.
+     * rooms — только номера, с которых условный UPDATE снял аренду (см. lockOwnedRooms).
+     */
+    private void bookedWriteBehind(List<Room> rooms) {
+        List<Long> roomIds = rooms.stream().map(Room::getId).toList();
+        afterCommit(() -> timesBookedBuffer.increment(roomIds));
+        rooms.forEach(room -> room.setTimesBooked(
+                room.getTimesBooked() + (int) timesBookedBuffer.pending(room.getId()) + 1));
+    }
+
+    // room — состояние после UPDATE, до него номер был временно заблокирован
+    private void unlockedAfterCommit(Room room) {
+        afterCommit(() -> occupancyCounters.roomsUnlocked(room.getHotelId(), 1));
+        afterCommit(() -> facetIndex.unlocked(List.of(room.getId())));
+        afterCommit(() -> allocationEngine.release(room.getId(), room.getHotelId(), room.getTimesBooked()));
+        afterCommit(collectionVersions::roomsChanged);
+    }
+
+    private static boolean ownedBy(Room room, String owner) {
+        return owner == null || room.getLeaseOwner() == null || owner.equals(room.getLeaseOwner());
+    }
+
+    /**
+     * Строки блокируются до UPDATE, чтобы счётчики загрузки и очередь в памяти
+     * получили ровно те номера, которые изменил групповой UPDATE.
+     */
+    @Transactional
+    public void confirmBookings(List<Long> roomIds, String owner) {
+        requireBatchSize(roomIds.size());
+        operationMetrics.timed("confirm_batch", () -> {
+            List<Room> rooms = lockOwnedRooms("confirm_batch", roomIds, owner);
+            if (timesBookedBuffer.isEnabled()) {
+                leaseMetrics.confirmed(roomRepository.releaseAll(roomIds, owner));
+                bookedWriteBehind(rooms);
+            } else {
+                leaseMetrics.confirmed(roomRepository.confirmAll(roomIds, owner));
+                rooms.forEach(room -> room.setTimesBooked(room.getTimesBooked() + 1));
+            }
+            unlockAfterCommit(rooms);
+            log.info("Rooms {} confirmed as a batch", roomIds);
         });
     }
 
     @Transactional
-    public void releaseRoom(Long roomId) {
-        roomRepository.findById(roomId).ifPresent(room -> {
-            room.setTempLocked(false);
-            roomRepository.save(room);
-            log.info("Room {} released", roomId);
+    public void releaseRooms(List<Long> roomIds, String owner) {
+        requireBatchSize(roomIds.size());
+        operationMetrics.timed("release_batch", () -> {
+            List<Room> rooms = lockOwnedRooms("release_batch", roomIds, owner);
+            roomRepository.releaseAll(roomIds, owner);
+            unlockAfterCommit(rooms);
+            log.info("Rooms {} released as a batch", roomIds);
         });
     }
 
+    private List<Room> lockOwnedRooms(String operation, List<Long> roomIds, String owner) {
+        return operationMetrics.waitFor(operation, () -> roomRepository.findAndLockAllById(roomIds)).stream()
+                .filter(room -> room.isTempLocked() && ownedBy(room, owner))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Освобождает до batchSize номеров с истёкшей арендой (поиск идёт по индексу leaseExpiresAt).
+     *
+     * @return сколько истёкших аренд найдено; меньше batchSize — значит, больше нет
+     */
+    @Transactional
+    public int reclaimExpiredLeases(int batchSize) {
+        return operationMetrics.timed("reclaim", () -> reclaim(batchSize));
+    }
+
+    private int reclaim(int batchSize) {
+        Instant now = Instant.now();
+        List<Room> expired = operationMetrics.waitFor("reclaim",
+                () -> roomRepository.findAndLockExpiredLeases(now, PageRequest.of(0, batchSize)));
+        if (expired.isEmpty()) {
+            return 0;
+        }
+        int reclaimed = roomRepository.releaseExpired(expired.stream().map(Room::getId).toList(), now);
+        leaseMetrics.expired(expired.size());
+        leaseMetrics.reclaimed(reclaimed);
+        unlockAfterCommit(expired);
+        log.info("Reclaimed {} expired leases", reclaimed);
+        return expired.size();
+    }
+
+    /**
+     * Удаляет до batchSize неподтверждённых удержаний с истёкшим сроком.
+     *
+     * @return сколько истёкших удержаний найдено; меньше batchSize — значит, больше нет
+     */
+    @Transactional
+    public int reclaimExpiredHolds(int batchSize) {
+        return operationMetrics.timed("reclaim_stay", () -> reclaimHolds(batchSize));
+    }
+
+    private int reclaimHolds(int batchSize) {
+        Instant now = Instant.now();
+        List<RoomStay> expired = operationMetrics.waitFor("reclaim_stay",
+                () -> stayRepository.findAndLockExpiredHolds(now, PageRequest.of(0, batchSize)));
+        if (expired.isEmpty()) {
+            return 0;
+        }
+        int reclaimed = stayRepository.deleteExpiredHolds(expired.stream().map(RoomStay::getId).toList(), now);
+        leaseMetrics.expired(expired.size());
+        leaseMetrics.reclaimed(reclaimed);
+        afterCommit(() -> expired.forEach(stay -> roomCalendar.free(stay.getRoomId(), stay.getCheckIn(), stay.getCheckOut())));
+        log.info("Reclaimed {} expired holds", reclaimed);
+        return expired.size();
+    }
+
+    /**
+     * После коммита: номера снова предлагаются очереди в памяти, а временно заблокированные
+     * вычитаются из счётчиков загрузки. rooms — состояние до группового UPDATE.
+     */
+    private void unlockAfterCommit(List<Room> rooms) {
+        Map<Long, Integer> unlockedByHotel = countByHotel(rooms.stream().filter(Room::isTempLocked).toList());
+        afterCommit(() -> {
+            unlockedByHotel.forEach(occupancyCounters::roomsUnlocked);
+            facetIndex.unlocked(rooms.stream().map(Room::getId).toList());
+            collectionVersions.roomsChanged();
+            if (allocationEngine.isEnabled()) {
+                rooms.forEach(room -> allocationEngine.release(room.getId(), room.getHotelId(), room.getTimesBooked()));
+            }
+        });
+    }
+
+    private static Map<Long, Integer> countByHotel(List<Room> rooms) {
+        return rooms.stream()
+                .filter(room -> room.getHotelId() != null)
+                .collect(Collectors.groupingBy(Room::getHotelId, Collectors.summingInt(room -> 1)));
+    }
+
+    /**
+     * Страница свободных номеров по возрастанию id; cursor — из nextCursor предыдущей страницы.
+     */
     @Transactional(readOnly = true)
-    public List<Room> getAllAvailableRooms() {
-        return roomRepository.findByAvailableTrue();
+    public RoomSearchPage getAvailableRooms(int size, String cursor) {
+        if (size <= 0 || size > MAX_SEARCH_PAGE_SIZE) {
+            throw new IllegalArgumentException("size must be between 1 and " + MAX_SEARCH_PAGE_SIZE);
+        }
+        RoomSearchOrder order = RoomSearchOrder.ID;
+        ScrollPosition position = cursor == null ? ScrollPosition.keyset() : order.positionAfter(cursor);
+        Window<Room> rooms = roomRepository.findByAvailableTrue(position, order.sort(), Limit.of(size));
+
+        List<Room> content = rooms.getContent();
+        String nextCursor = rooms.hasNext() ? order.cursorAfter(content.get(content.size() - 1)) : null;
+        return new RoomSearchPage(content, nextCursor);
     }
 
+    /**
+     * Все свободные номера по одному, без загрузки результата целиком:
+     * каждая строка отсоединяется от контекста после обработки.
+     */
     @Transactional(readOnly = true)
-    public Map<String, Object> getOccupancyStats() {
-        long totalRooms = roomRepository.count();
-        long occupiedRooms = roomRepository.countByAvailableFalse();
-        long availableRooms = totalRooms - occupiedRooms;
-
-        double occupancyRate = totalRooms == 0 ? 0 : ((double) occupiedRooms / totalRooms) * 100;
-
-        Map<String, Object> stats = new HashMap<>();
-        stats.put("totalRooms", totalRooms);
-        stats.put("availableRooms", availableRooms);
-        stats.put("occupiedRooms", occupiedRooms);
-        stats.put("occupancyRate", String.format("%.2f%%", occupancyRate));
-
-        // Расширенная: по отелям
-        Map<String, Object> hotelStats = hotelRepository.findAll().stream()
-                .collect(Collectors.toMap(
-                        Hotel::getName,
-                        hotel -> {
-                            List<Room> rooms = roomRepository.findByHotelId(hotel.getId());
-                            long total = rooms.size();
-                            long occupied = rooms.stream().filter(r -> !r.isAvailable()).count();
-                            return Map.of(
-                                    "total", total,
-                                    "occupied", occupied,
-                                    "rate", total == 0 ? 0 : ((double) occupied / total) * 100
-                            );
-                        }
-                ));
-
-        stats.put("byHotel", hotelStats);
-
-        return stats;
+    public void forEachAvailableRoom(Consumer<Room> action) {
+        try (Stream<Room> rooms = roomRepository.streamAvailableRooms()) {
+            rooms.forEach(room -> {
+                action.accept(room);
+                entityManager.detach(room);
+            });
+        }
     }
 
+    /**
+     * Отдаётся из счётчиков в памяти, без обращения к БД.
+     */
+    public OccupancyStats getOccupancyStats() {
+        return operationMetrics.timed("stats", occupancyCounters::snapshot);
+    }
+
+    /**
+     * Фильтрация, сортировка и ограничение страницы выполняются в БД. Подстроку номера от трёх символов
+     * ищет индекс в памяти, и в БД уходит список найденных id вместо LIKE '%...%' по всем строкам.
+     * Если передан cursor, страница читается по ключам сортировки (keyset) и page игнорируется.
+     */
     @Transactional(readOnly = true)
-    public List<Room> searchRooms(Long hotelId, Boolean available, String numberPattern, int minTimesBooked, int maxTimesBooked, String sortBy) {
-        List<Room> rooms = roomRepository.findAll();
-
-        // Фильтрация
-        rooms = rooms.stream()
-                .filter(room -> hotelId == null || room.getHotelId().equals(hotelId))
-                .filter(room -> available == null || room.isAvailable() == available)
-                .filter(room -> numberPattern == null || room.getNumber().contains(numberPattern))
-                .filter(room -> room.getTimesBooked() >= minTimesBooked)
-                .filter(room -> room.getTimesBooked() <= maxTimesBooked)
-                .collect(Collectors.toList());
+    public RoomSearchPage searchRooms(Long hotelId, Boolean available, String numberPattern, int minTimesBooked, int maxTimesBooked,
+                                      String sortBy, int page, int size, String cursor) {
+        if (page < 0 || size <= 0 || size > MAX_SEARCH_PAGE_SIZE) {
+            throw new IllegalArgumentException("page must be >= 0 and size between 1 and " + MAX_SEARCH_PAGE_SIZE);
+        }
+        return operationMetrics.timed("search",
+                () -> search(hotelId, available, numberPattern, minTimesBooked, maxTimesBooked, sortBy, page, size, cursor));
+    }
 
-        // Сортировка
-        switch (sortBy) {
-            case "timesBooked_desc":
-                rooms.sort(Comparator.comparing(Room::getTimesBooked).reversed());
-                break;
-            case "number":
-                rooms.sort(Comparator.comparing(Room::getNumber));
-                break;
-            default:
-                rooms.sort(Comparator.comparing(Room::getId));
+    private RoomSearchPage search(Long hotelId, Boolean available, String numberPattern, int minTimesBooked, int maxTimesBooked,
+                                  String sortBy, int page, int size, String cursor) {
+        RoomSearchOrder order = RoomSearchOrder.of(sortBy);
+        List<Long> numberMatches = findByNumber(hotelId, numberPattern);
+        if (numberMatches != null && numberMatches.isEmpty()) {
+            return new RoomSearchPage(List.of(), null);
         }
+        Specification<Room> filter = RoomSpecifications.search(hotelId, available, numberPattern, numberMatches,
+                minTimesBooked, maxTimesBooked);
 
-        return rooms;
+        Slice<Room> rooms = cursor == null
+                ? roomRepository.findBy(filter, query -> query.slice(PageRequest.of(page, size, order.sort())))
+                : toSlice(roomRepository.findBy(filter, query -> query.sortBy(order.sort())
+                        .limit(size)
+                        .scroll(order.positionAfter(cursor))));
+
+        List<Room> content = rooms.getContent();
+        String nextCursor = rooms.hasNext() ? order.cursorAfter(content.get(content.size() - 1)) : null;
+        return new RoomSearchPage(content, nextCursor);
+    }
+
+    /**
+     * Фильтр по типу, вместимости и ценовому диапазону со счётчиками по значениям атрибутов —
+     * из индекса в памяти, без обращения к БД.
+     *
+     * @param size сколько id совпавших номеров вернуть (по возрастанию id)
+     */
+    public RoomFacets facetSearch(Long hotelId, String roomType, Integer minCapacity, String priceBand,
+                                  boolean freeOnly, int size) {
+        if (size < 0 || size > MAX_SEARCH_PAGE_SIZE) {
+            throw new IllegalArgumentException("size must be between 0 and " + MAX_SEARCH_PAGE_SIZE);
+        }
+        return operationMetrics.timed("facets",
+                () -> facetIndex.search(hotelId, roomType, minCapacity, priceBand, freeOnly, size));
+    }
+
+    /**
+     * @return id номеров с подстрокой numberPattern; null — фильтр по номеру остаётся LIKE в БД
+     *         (образца нет, он короче триграммы, индекс неполон или совпадений больше hotel.search.number-index-max-ids)
+     */
+    private List<Long> findByNumber(Long hotelId, String numberPattern) {
+        if (numberPattern == null || !numberIndex.covers(numberPattern) || !numberIndex.isCurrent()) {
+            return null;
+        }
+        List<Long> matches = numberIndex.find(hotelId, numberPattern);
+        return matches.size() > searchProperties.getNumberIndexMaxIds() ? null : matches;
+    }
+
+    private static Slice<Room> toSlice(Window<Room> window) {
+        return new SliceImpl<>(window.getContent(), Pageable.unpaged(), window.hasNext());
     }
 
     @Transactional
     public Room createRoom(Room room) {
-        return roomRepository.save(room);
+        numberIndexPendingUntilCompletion();
+        Room saved = roomRepository.save(room);
+        afterCommit(() -> roomAdded(saved));
+        return saved;
+    }
+
+    /**
+     * Добавляет созданный номер в счётчики, календарь, индексы поиска и очередь в памяти.
+     * Вызывается после коммита вставки — и из createRoom, и из вставок в обход JPA (R2DBC).
+     */
+    public void roomAdded(Room room) {
+        occupancyCounters.roomCreated(room);
+        roomCalendar.roomAdded(room);
+        facetIndex.roomAdded(room);
+        numberIndex.roomAdded(room);
+        collectionVersions.roomsChanged();
+        if (room.isAvailable() && !room.isTempLocked()) {
+            allocationEngine.release(room.getId(), room.getHotelId(), room.getTimesBooked());
+        }
+    }
+
+    /**
+     * Импорт номеров одной транзакцией. INSERT уходят пачками по IMPORT_CHUNK (hibernate.jdbc.batch_size),
+     * после каждой пачки контекст очищается, поэтому память не растёт с размером импорта.
+     * Счётчики загрузки и очередь аллокации пересчитываются из БД после коммита.
+     *
+     * @return число импортированных номеров
+     */
+    @Transactional
+    public long importRooms(Stream<Room> rooms) {
+        numberIndexPendingUntilCompletion();
+        long[] imported = {0};
+        rooms.forEach(room -> {
+            room.setId(null);
+            room.setTempLocked(false);
+            room.setLeaseExpiresAt(null);
+            room.setLeaseOwner(null);
+            entityManager.persist(room);
+            if (++imported[0] % IMPORT_CHUNK == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        });
+        entityManager.flush();
+        entityManager.clear();
+        afterCommit(() -> {
+            occupancyCounters.rebuild();
+            allocationEngine.rebuild();
+            roomCalendar.rebuild();
+            facetIndex.rebuild();
+            numberIndex.rebuild();
+            collectionVersions.roomsChanged();
+        });
+        log.info("Imported {} rooms", imported[0]);
+        return imported[0];
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    // Между коммитом и afterCommit номер уже в БД, но ещё не в индексе номеров: до завершения транзакции индекс неполон
+    private void numberIndexPendingUntilCompletion() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        numberIndex.roomsPending();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                numberIndex.roomsSettled();
+            }
+        });
+    }
+
+    private static void onRollback(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    action.run();
+                }
+            }
+        });
     }
 }
 
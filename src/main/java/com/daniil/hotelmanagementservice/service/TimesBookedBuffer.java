@@ -0,0 +1,123 @@
+package com.daniil.hotelmanagementservice.service;
+
+import com.daniil.hotelmanagementservice.config.TimesBookedProperties;
+import com.daniil.hotelmanagementservice.repository.RoomRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Отложенная запись timesBooked (hotel.times-booked.mode: write-behind). timesBooked — только подсказка
+ * для порядка планирования, поэтому confirm не обновляет строку номера ради счётчика: приращение
+ * добавляется в LongAdder номера после коммита, а раз в flush-interval накопленное уходит в БД
+ * групповыми UPDATE — по одному на каждую величину приращения и пачку flush-batch-size номеров.
+ * <p>
+ * При падении процесса теряются приращения, не выгруженные к этому моменту: подтверждения
+ * за последний flush-interval (и за неудачные выгрузки), их текущее число — gauge hotel.rooms.booked.unflushed.
+ * При штатной остановке накопленное выгружается. Выгрузка меняет timesBooked в ответах, поэтому сдвигает ETag списка номеров.
+ */
+@Slf4j
+@Component
+public class TimesBookedBuffer {
+
+    private final RoomRepository roomRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TimesBookedProperties properties;
+    private final CollectionVersions collectionVersions;
+
+    private final Map<Long, LongAdder> pending = new ConcurrentHashMap<>();
+    private final LongAdder unflushed = new LongAdder();
+
+    public TimesBookedBuffer(RoomRepository roomRepository, TransactionTemplate transactionTemplate,
+                             TimesBookedProperties properties, CollectionVersions collectionVersions,
+                             MeterRegistry registry) {
+        this.roomRepository = roomRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = properties;
+        this.collectionVersions = collectionVersions;
+        Gauge.builder("hotel.rooms.booked.unflushed", unflushed, LongAdder::sum)
+                .description("timesBooked increments not yet written to the database")
+                .register(registry);
+    }
+
+    public boolean isEnabled() {
+        return properties.getMode() == TimesBookedProperties.Mode.WRITE_BEHIND;
+    }
+
+    public void increment(Collection<Long> roomIds) {
+        roomIds.forEach(roomId -> pending.computeIfAbsent(roomId, id -> new LongAdder()).increment());
+        unflushed.add(roomIds.size());
+    }
+
+    /** Приращения номера, ещё не записанные в БД */
+    public long pending(Long roomId) {
+        LongAdder counter = pending.get(roomId);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    public long unflushed() {
+        return unflushed.sum();
+    }
+
+    /**
+     * Из счётчика вычитается ровно выгружаемое значение, поэтому приращения, пришедшие во время
+     * выгрузки, остаются до следующей. Если UPDATE не прошёл, его приращения возвращаются в счётчики.
+     *
+     * @return сколько номеров обновлено
+     */
+    @Scheduled(initialDelayString = "${hotel.times-booked.flush-interval:PT5S}",
+            fixedDelayString = "${hotel.times-booked.flush-interval:PT5S}")
+    public synchronized int flush() {
+        Map<Long, List<Long>> roomsByDelta = new HashMap<>();
+        pending.forEach((roomId, counter) -> {
+            long delta = counter.sum();
+            if (delta != 0) {
+                counter.add(-delta);
+                roomsByDelta.computeIfAbsent(delta, d -> new ArrayList<>()).add(roomId);
+            }
+        });
+
+        int flushed = 0;
+        int batchSize = properties.getFlushBatchSize();
+        for (Map.Entry<Long, List<Long>> entry : roomsByDelta.entrySet()) {
+            long delta = entry.getKey();
+            List<Long> roomIds = entry.getValue();
+            for (int from = 0; from < roomIds.size(); from += batchSize) {
+                List<Long> batch = roomIds.subList(from, Math.min(roomIds.size(), from + batchSize));
+                try {
+                    transactionTemplate.executeWithoutResult(status -> roomRepository.addTimesBooked(batch, (int) delta));
+                    unflushed.add(-delta * batch.size());
+                    flushed += batch.size();
+                } catch (RuntimeException e) {
+                    batch.forEach(roomId -> pending.get(roomId).add(delta));
+                    log.warn("Failed to flush timesBooked of {} rooms, will retry: {}", batch.size(), e.getMessage());
+                }
+            }
+        }
+        if (flushed > 0) {
+            collectionVersions.roomsChanged();
+            log.debug("Flushed timesBooked of {} rooms", flushed);
+        }
+        return flushed;
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+        if (unflushed.sum() > 0) {
+            log.warn("{} timesBooked increments were not written before shutdown", unflushed.sum());
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.daniil.hotelmanagementservice;
+
+import com.daniil.hotelmanagementservice.entity.Room;
+import com.daniil.hotelmanagementservice.repository.RoomRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Нагрузка на GET /api/rooms/allocate в режиме PESSIMISTIC: CLIENTS параллельных клиентов
+ * разбирают ROOMS номеров; в лог пишутся пропускная способность и пик потоков.
+ */
+@Slf4j
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "eureka.client.enabled=false",
+        "hotel.allocation.mode=pessimistic",
+        "spring.jpa.show-sql=false",
+        "spring.datasource.url=jdbc:h2:mem:allocation-load;DB_CLOSE_DELAY=-1",
+        // клиентов больше, чем соединений: исчерпанный пул должен давать ошибку, а не зависший тест
+        "spring.datasource.hikari.connection-timeout=2000"
+})
+class AllocationLoadTest {
+
+    private static final int ROOMS = 200;
+    private static final int CLIENTS = 32;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private RoomRepository roomRepository;
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    @BeforeEach
+    void setUp() {
+        roomRepository.deleteAllInBatch();
+        roomRepository.saveAll(IntStream.range(0, ROOMS)
+                .mapToObj(i -> Room.builder().hotelId(1L + i % 4).number(String.valueOf(1000 + i)).available(true).build())
+                .toList());
+    }
+
+    @Test
+    void allocate_UnderConcurrentLoad_HandsOutEveryRoomOnce() throws Exception {
+        String token = TestTokens.bearer("load-test", "USER");
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        threads.resetPeakThreadCount();
+
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        List<Future<String>> responses = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int i = 0; i < ROOMS; i++) {
+            responses.add(clients.submit(() -> allocate(token)));
+        }
+        Set<String> roomIds = new HashSet<>();
+        for (Future<String> response : responses) {
+            String roomId = response.get(60, TimeUnit.SECONDS);
+            assertFalse(roomId.isEmpty(), "request got no room although rooms were free");
+            assertTrue(roomIds.add(roomId), "room " + roomId + " was allocated twice");
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        clients.shutdown();
+
+        log.info("allocate x{} with {} clients: {} req/s, peak threads {}",
+                ROOMS, CLIENTS, ROOMS * 1_000_000_000L / elapsedNanos, threads.getPeakThreadCount());
+        assertEquals(ROOMS, roomIds.size());
+    }
+
+    private String allocate(String token) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/rooms/allocate"))
+                .header("Authorization", token)
+                .GET()
+                .build();
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode(), response.body());
+        return response.body();
+    }
+}
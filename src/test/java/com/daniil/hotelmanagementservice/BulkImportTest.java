@@ -0,0 +1,139 @@
+package com.daniil.hotelmanagementservice;
+
+import com.daniil.hotelmanagementservice.repository.RoomRepository;
+import com.daniil.hotelmanagementservice.service.RoomService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.io.ByteArrayInputStream;
+import java.io.SequenceInputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * POST /api/hotels/import и /api/rooms/import: тело уходит потоком, INSERT номеров — пачками JDBC.
+ */
+@Slf4j
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class BulkImportTest {
+
+    private static final int ROOMS = 50_000;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private RoomRepository roomRepository;
+
+    @Autowired
+    private RoomService roomService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    @Test
+    void importHotelsThenRooms_InsertsInJdbcBatches() throws Exception {
+        // Arrange
+        String token = TestTokens.bearer("importer", "ADMIN");
+        HttpResponse<String> hotels = post("/api/hotels/import", "application/x-ndjson", token,
+                HttpRequest.BodyPublishers.ofString("{\"name\":\"Chain North\",\"address\":\"North, 1\"}\n"
+                        + "{\"name\":\"Chain South\",\"address\":\"South, 2\"}\n"));
+        assertEquals(200, hotels.statusCode(), hotels.body());
+        JsonNode created = objectMapper.readTree(hotels.body());
+        long north = created.get(0).get("id").asLong();
+        long south = created.get(1).get("id").asLong();
+
+        long roomsBefore = roomRepository.count();
+        long totalBefore = roomService.getOccupancyStats().totalRooms();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // Act
+        long start = System.nanoTime();
+        HttpResponse<String> rooms = post("/api/rooms/import", "text/csv", token,
+                HttpRequest.BodyPublishers.ofInputStream(() -> csv(north, south)));
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        // Assert
+        assertEquals(200, rooms.statusCode(), rooms.body());
+        assertEquals(ROOMS, objectMapper.readTree(rooms.body()).get("imported").asLong());
+        assertEquals(roomsBefore + ROOMS, roomRepository.count());
+        assertEquals(totalBefore + ROOMS, roomService.getOccupancyStats().totalRooms());
+        assertEquals(ROOMS, statistics.getEntityInsertCount());
+        // по одному PreparedStatement на пачку, а не на строку
+        assertTrue(statistics.getPrepareStatementCount() < ROOMS / 100,
+                "prepared statements: " + statistics.getPrepareStatementCount());
+        log.info("Imported {} rooms in {} ms, {} statements prepared", ROOMS, elapsedMillis,
+                statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void importRooms_WithBadRow_RollsBackWholeImport() throws Exception {
+        // Arrange
+        long roomsBefore = roomRepository.count();
+
+        // Act
+        HttpResponse<String> response = post("/api/rooms/import", "text/csv", TestTokens.bearer("importer", "ADMIN"),
+                HttpRequest.BodyPublishers.ofString("hotelId,number\n1,A-1\n1,A-2\nnot-a-number,A-3\n"));
+
+        // Assert
+        assertEquals(400, response.statusCode());
+        assertTrue(response.body().contains("line 4"), response.body());
+        assertEquals(roomsBefore, roomRepository.count());
+    }
+
+    private HttpResponse<String> post(String path, String contentType, String token,
+                                      HttpRequest.BodyPublisher body) throws Exception {
+        return httpClient.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("Authorization", token)
+                .header("Content-Type", contentType)
+                .POST(body)
+                .build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * CSV генерируется по строкам по мере отправки
+     */
+    private static SequenceInputStream csv(long north, long south) {
+        Iterator<ByteArrayInputStream> lines = IntStream.rangeClosed(0, ROOMS)
+                .mapToObj(i -> i == 0 ? "hotelId,number,available\n"
+                        : (i % 2 == 0 ? north : south) + ",R-" + i + "," + (i % 10 != 0) + "\n")
+                .map(line -> new ByteArrayInputStream(line.getBytes(StandardCharsets.UTF_8)))
+                .iterator();
+        return new SequenceInputStream(new Enumeration<>() {
+            @Override
+            public boolean hasMoreElements() {
+                return lines.hasNext();
+            }
+
+            @Override
+            public ByteArrayInputStream nextElement() {
+                return lines.next();
+            }
+        });
+    }
+}
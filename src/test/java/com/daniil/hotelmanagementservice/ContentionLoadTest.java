@@ -0,0 +1,272 @@
+package com.daniil.hotelmanagementservice;
+
+import com.daniil.hotelmanagementservice.entity.Room;
+import com.daniil.hotelmanagementservice.repository.RoomRepository;
+import com.daniil.hotelmanagementservice.service.RoomAllocationEngine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Нагрузочный стенд на конкуренцию за номера: clients клиентов через HTTP выполняют operations операций
+ * allocate/confirm/release в пропорции mix против встроенного инстанса; токены выпускает {@link TestTokens}.
+ * <p>
+ * Проверяемые инварианты: ни один номер не выдан второму клиенту, пока его аренда не снята;
+ * сумма timesBooked выросла ровно на число успешных confirm; временно заблокированы ровно удерживаемые номера.
+ * В лог пишутся пропускная способность, перцентили задержек по операциям, ошибки по статусам
+ * и время ожидания блокировок строк на сервере (hotel.rooms.lock.wait).
+ * <p>
+ * Параметры — системные свойства, например:
+ * <pre>
+ * mvn test -Dtest=ContentionLoadTest -Dload.clients=300 -Dload.operations=20000 -Dload.rooms=500 \
+ *     -Dload.mix=allocate=60,confirm=30,release=10 -Dload.mode=pessimistic
+ * </pre>
+ */
+@Slf4j
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "eureka.client.enabled=false",
+        "spring.jpa.show-sql=false",
+        "logging.level.org.springframework.security=WARN",
+        "logging.level.com.daniil.hotelmanagementservice=WARN",
+        "spring.datasource.url=jdbc:h2:mem:contention-load;DB_CLOSE_DELAY=-1"
+})
+class ContentionLoadTest {
+
+    private static final int CLIENTS = Integer.getInteger("load.clients", 32);
+    private static final int OPERATIONS = Integer.getInteger("load.operations", 1000);
+    private static final int ROOMS = Integer.getInteger("load.rooms", 200);
+    private static final Map<Operation, Integer> MIX = Operation.parseMix(System.getProperty("load.mix", "allocate=50,confirm=30,release=20"));
+
+    @DynamicPropertySource
+    static void allocationMode(DynamicPropertyRegistry registry) {
+        String mode = System.getProperty("load.mode");
+        if (mode != null) {
+            registry.add("hotel.allocation.mode", () -> mode);
+        }
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private RoomRepository roomRepository;
+
+    @Autowired
+    private RoomAllocationEngine allocationEngine;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private final String token = TestTokens.bearer("load-harness", "USER");
+
+    // Номер -> владелец аренды, выданной стенду и ещё не снятой
+    private final ConcurrentMap<Long, String> held = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedDeque<Long> heldQueue = new ConcurrentLinkedDeque<>();
+    private final Set<Long> doubleAllocated = ConcurrentHashMap.newKeySet();
+    private final LongAdder confirmed = new LongAdder();
+    private final Map<Operation, List<Long>> latencies = new EnumMap<>(Operation.class);
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        roomRepository.deleteAllInBatch();
+        roomRepository.saveAll(IntStream.range(0, ROOMS)
+                .mapToObj(i -> Room.builder().hotelId(1L + i % 5).number(String.valueOf(1000 + i)).available(true).build())
+                .toList());
+        // Номера добавлены в обход RoomService: очередь в памяти строится заново
+        allocationEngine.rebuild();
+        for (Operation operation : Operation.values()) {
+            latencies.put(operation, Collections.synchronizedList(new ArrayList<>()));
+        }
+    }
+
+    @Test
+    void mixedLoad_KeepsAllocationInvariants() throws Exception {
+        long timesBookedBefore = totalTimesBooked();
+        Map<String, HistogramSnapshot> lockWaitBefore = lockWait();
+
+        AtomicInteger remaining = new AtomicInteger(OPERATIONS);
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        long start = System.nanoTime();
+        List<Future<?>> running = new ArrayList<>();
+        for (int i = 0; i < CLIENTS; i++) {
+            running.add(clients.submit(() -> {
+                while (remaining.getAndDecrement() > 0) {
+                    runOne(Operation.pick(MIX));
+                }
+                return null;
+            }));
+        }
+        for (Future<?> client : running) {
+            client.get(10, TimeUnit.MINUTES);
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        clients.shutdown();
+
+        report(elapsedNanos, lockWaitBefore);
+
+        assertEquals(Set.of(), doubleAllocated, "rooms handed out while still leased");
+        assertEquals(timesBookedBefore + confirmed.sum(), totalTimesBooked(), "timesBooked must grow by successful confirms");
+        assertEquals(held.size(), roomRepository.findAll().stream().filter(Room::isTempLocked).count(),
+                "temp-locked rooms must be exactly the leases the harness still holds");
+    }
+
+    private void runOne(Operation operation) throws Exception {
+        Long roomId = operation == Operation.ALLOCATE ? null : heldQueue.pollFirst();
+        if (roomId == null) {
+            operation = Operation.ALLOCATE;
+        }
+        switch (operation) {
+            case ALLOCATE -> allocate();
+            case CONFIRM, RELEASE -> finish(operation, roomId);
+        }
+    }
+
+    private void allocate() throws Exception {
+        String owner = "booking-" + ThreadLocalRandom.current().nextLong(Long.MAX_VALUE);
+        HttpResponse<String> response = send(Operation.ALLOCATE, "/api/rooms/allocate?owner=" + owner, "GET");
+        if (response.statusCode() != 200 || response.body().isEmpty()) {
+            return;
+        }
+        long roomId = Long.parseLong(response.body());
+        if (held.putIfAbsent(roomId, owner) != null) {
+            doubleAllocated.add(roomId);
+            return;
+        }
+        heldQueue.addLast(roomId);
+    }
+
+    /**
+     * Аренда снимается из учёта до запроса: как только сервер закоммитит confirm/release, номер может
+     * уйти другому клиенту. При ошибке аренда возвращается — номер остаётся заблокированным за нами.
+     */
+    private void finish(Operation operation, long roomId) throws Exception {
+        String owner = held.remove(roomId);
+        HttpResponse<String> response = send(operation,
+                "/api/rooms/" + roomId + "/" + operation.path + "?owner=" + owner, "POST");
+        if (response.statusCode() != 200) {
+            held.put(roomId, owner);
+            heldQueue.addLast(roomId);
+        } else if (operation == Operation.CONFIRM) {
+            confirmed.increment();
+        }
+    }
+
+    private HttpResponse<String> send(Operation operation, String path, String method) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("Authorization", token)
+                .method(method, HttpRequest.BodyPublishers.noBody())
+                .build();
+        long start = System.nanoTime();
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        latencies.get(operation).add(System.nanoTime() - start);
+        if (response.statusCode() != 200) {
+            errors.computeIfAbsent(operation.path + " " + response.statusCode(), key -> new LongAdder()).increment();
+        }
+        return response;
+    }
+
+    private long totalTimesBooked() {
+        return roomRepository.findAll().stream().mapToLong(Room::getTimesBooked).sum();
+    }
+
+    private Map<String, HistogramSnapshot> lockWait() {
+        Map<String, HistogramSnapshot> snapshots = new ConcurrentHashMap<>();
+        meterRegistry.find("hotel.rooms.lock.wait").timers()
+                .forEach(timer -> snapshots.put(timer.getId().getTag("operation"), timer.takeSnapshot()));
+        return snapshots;
+    }
+
+    private void report(long elapsedNanos, Map<String, HistogramSnapshot> lockWaitBefore) {
+        log.warn("Contention load: {} ops, {} clients, {} rooms, mix {} -> {} ops/s, {} confirmed, {} still held, errors {}",
+                OPERATIONS, CLIENTS, ROOMS, MIX, OPERATIONS * 1_000_000_000L / elapsedNanos, confirmed.sum(), held.size(), errors);
+        latencies.forEach((operation, samples) -> {
+            if (samples.isEmpty()) {
+                return;
+            }
+            List<Long> sorted = new ArrayList<>(samples);
+            Collections.sort(sorted);
+            log.warn("  {}: n={} p50={}ms p95={}ms p99={}ms max={}ms", operation.path, sorted.size(),
+                    millis(percentile(sorted, 50)), millis(percentile(sorted, 95)), millis(percentile(sorted, 99)),
+                    millis(sorted.get(sorted.size() - 1)));
+        });
+        lockWait().forEach((operation, after) -> {
+            HistogramSnapshot before = lockWaitBefore.get(operation);
+            long count = after.count() - (before == null ? 0 : before.count());
+            double totalMs = after.total(TimeUnit.MILLISECONDS) - (before == null ? 0 : before.total(TimeUnit.MILLISECONDS));
+            log.warn("  lock wait {}: n={} total={}ms mean={}ms max={}ms", operation, count, Math.round(totalMs),
+                    count == 0 ? 0 : Math.round(totalMs / count * 100) / 100.0, Math.round(after.max(TimeUnit.MILLISECONDS)));
+        });
+    }
+
+    private static long percentile(List<Long> sorted, int percentile) {
+        return sorted.get(Math.min(sorted.size() - 1, (int) Math.ceil(percentile / 100.0 * sorted.size()) - 1));
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 10_000.0) / 100.0;
+    }
+
+    private enum Operation {
+        ALLOCATE("allocate"), CONFIRM("confirm"), RELEASE("release");
+
+        private final String path;
+
+        Operation(String path) {
+            this.path = path;
+        }
+
+        static Map<Operation, Integer> parseMix(String mix) {
+            Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+            for (String part : mix.split(",")) {
+                String[] weight = part.trim().split("=");
+                weights.put(valueOf(weight[0].trim().toUpperCase()), Integer.parseInt(weight[1].trim()));
+            }
+            return weights;
+        }
+
+        static Operation pick(Map<Operation, Integer> mix) {
+            int total = mix.values().stream().mapToInt(Integer::intValue).sum();
+            int roll = ThreadLocalRandom.current().nextInt(total);
+            for (Map.Entry<Operation, Integer> weight : mix.entrySet()) {
+                roll -= weight.getValue();
+                if (roll < 0) {
+                    return weight.getKey();
+                }
+            }
+            return ALLOCATE;
+        }
+    }
+}
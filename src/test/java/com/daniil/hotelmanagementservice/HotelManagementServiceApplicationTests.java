@@ -1,13 +1,32 @@
 package com.daniil.hotelmanagementservice;
 
+import com.daniil.hotelmanagementservice.config.DataSourceConfig;
+import io.r2dbc.spi.ConnectionFactory;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 @SpringBootTest
 class HotelManagementServiceApplicationTests {
 
+    @Autowired
+    private ApplicationContext context;
+
     @Test
     void contextLoads() {
     }
 
+    // Без профиля reactive R2DBC не настраивается, DataSource создаёт штатная автоконфигурация
+    @Test
+    void defaultProfile_HasNoR2dbcAndStockDataSource() {
+        assertEquals(0, context.getBeanNamesForType(ConnectionFactory.class).length);
+        assertEquals(0, context.getBeanNamesForType(DataSourceConfig.class).length);
+        assertEquals(1, context.getBeanNamesForType(DataSource.class).length);
+    }
+
 }
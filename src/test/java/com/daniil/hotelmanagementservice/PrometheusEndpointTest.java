@@ -0,0 +1,77 @@
+package com.daniil.hotelmanagementservice;
+
+import com.daniil.hotelmanagementservice.entity.Hotel;
+import com.daniil.hotelmanagementservice.entity.Room;
+import com.daniil.hotelmanagementservice.repository.HotelRepository;
+import com.daniil.hotelmanagementservice.repository.RoomRepository;
+import com.daniil.hotelmanagementservice.service.OccupancyCounters;
+import com.daniil.hotelmanagementservice.service.OccupancyGauges;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * /actuator/prometheus доступен без токена и отдаёт таймеры операций RoomService и загрузку по отелям.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "hotel.allocation.mode=pessimistic")
+@AutoConfigureObservability(tracing = false)
+class PrometheusEndpointTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private HotelRepository hotelRepository;
+
+    @Autowired
+    private RoomRepository roomRepository;
+
+    @Autowired
+    private OccupancyCounters occupancyCounters;
+
+    @Autowired
+    private OccupancyGauges occupancyGauges;
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    @Test
+    void prometheus_ExposesOperationTimersAndOccupancyGauges() throws Exception {
+        // Arrange
+        Hotel hotel = hotelRepository.save(Hotel.builder().name("Metrics Hotel").address("Somewhere").build());
+        roomRepository.save(Room.builder().hotelId(hotel.getId()).number("M-1").available(true).build());
+        occupancyCounters.rebuild();
+        occupancyGauges.refresh();
+        HttpResponse<String> allocated = httpClient.send(HttpRequest.newBuilder(
+                        URI.create("http://localhost:" + port + "/api/rooms/allocate?hotelId=" + hotel.getId()))
+                .header("Authorization", TestTokens.bearer("metrics-test", "USER"))
+                .GET()
+                .build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, allocated.statusCode());
+
+        // Act
+        HttpResponse<String> scrape = httpClient.send(HttpRequest.newBuilder(
+                        URI.create("http://localhost:" + port + "/actuator/prometheus")).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        // Assert
+        assertEquals(200, scrape.statusCode());
+        String body = scrape.body();
+        assertTrue(body.contains("hotel_rooms_operation_seconds_bucket{"), "no histogram for hotel.rooms.operation");
+        assertTrue(body.contains("hotel_rooms_operation_seconds_count{operation=\"allocate\",outcome=\"success\"} 1"),
+                "allocate timer missing");
+        assertTrue(body.contains("hotel_rooms_execution_seconds_count{operation=\"allocate\"}"));
+        assertTrue(body.contains("hotel_rooms_lock_wait_seconds_count{operation=\"allocate\"}"));
+        assertTrue(body.contains("hotel_rooms{hotel=\"" + hotel.getId() + "\",state=\"temp_locked\"} 1.0"),
+                "temp_locked gauge missing");
+    }
+}
@@ -0,0 +1,210 @@
+package com.daniil.hotelmanagementservice;
+
+import com.daniil.hotelmanagementservice.dto.RoomFacets;
+import com.daniil.hotelmanagementservice.entity.Hotel;
+import com.daniil.hotelmanagementservice.entity.Room;
+import com.daniil.hotelmanagementservice.repository.HotelRepository;
+import com.daniil.hotelmanagementservice.repository.RoomRepository;
+import com.daniil.hotelmanagementservice.service.OccupancyCounters;
+import com.daniil.hotelmanagementservice.service.RoomFacetIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Контракт API в профиле reactive: WebFlux + R2DBC поверх той же схемы.
+ */
+@ActiveProfiles("reactive")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "eureka.client.enabled=false",
+        "spring.jpa.show-sql=false",
+        "spring.datasource.url=jdbc:h2:mem:reactive-api;DB_CLOSE_DELAY=-1",
+        "spring.r2dbc.url=r2dbc:h2:mem:///reactive-api?options=DB_CLOSE_DELAY=-1"
+})
+class ReactiveRoomApiTest {
+
+    private static final int ROOMS = 50;
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private HotelRepository hotelRepository;
+
+    @Autowired
+    private RoomRepository roomRepository;
+
+    @Autowired
+    private OccupancyCounters occupancyCounters;
+
+    @Autowired
+    private RoomFacetIndex facetIndex;
+
+    private WebTestClient client;
+    private Hotel hotel;
+
+    @BeforeEach
+    void setUp() {
+        roomRepository.deleteAllInBatch();
+        hotelRepository.deleteAllInBatch();
+        hotel = hotelRepository.save(Hotel.builder().name("Reactive Hotel").address("Utrecht").build());
+        roomRepository.saveAll(IntStream.range(0, ROOMS)
+                .mapToObj(i -> Room.builder().hotelId(hotel.getId()).number(String.valueOf(100 + i)).available(true).build())
+                .toList());
+        occupancyCounters.rebuild();
+        facetIndex.rebuild();
+        client = webTestClient.mutate()
+                .responseTimeout(Duration.ofSeconds(30))
+                .defaultHeader(HttpHeaders.AUTHORIZATION, TestTokens.bearer("reactive-test", "ADMIN"))
+                .build();
+    }
+
+    @Test
+    void allocateConfirmRelease_KeepSameSemantics() {
+        Long roomId = client.get().uri("/api/rooms/allocate?owner=booking-1").exchange()
+                .expectStatus().isOk()
+                .expectBody(Long.class).returnResult().getResponseBody();
+        assertNotNull(roomId);
+        assertTrue(roomRepository.findById(roomId).orElseThrow().isTempLocked());
+
+        // Чужой владелец не может подтвердить аренду
+        client.post().uri("/api/rooms/{id}/confirm?owner=booking-2", roomId).exchange().expectStatus().isOk();
+        assertEquals(0, roomRepository.findById(roomId).orElseThrow().getTimesBooked());
+
+        client.post().uri("/api/rooms/{id}/confirm?owner=booking-1", roomId).exchange().expectStatus().isOk();
+        Room confirmed = roomRepository.findById(roomId).orElseThrow();
+        assertEquals(1, confirmed.getTimesBooked());
+        assertFalse(confirmed.isTempLocked());
+        assertNull(confirmed.getLeaseOwner());
+        assertEquals(0L, occupancyCounters.snapshot().tempLockedRooms());
+    }
+
+    @Test
+    void confirm_UnleasedRoom_DoesNotCountBooking() {
+        Long roomId = roomRepository.findAll().get(0).getId();
+
+        client.post().uri("/api/rooms/{id}/confirm", roomId).exchange().expectStatus().isOk();
+        client.post().uri("/api/rooms/{id}/release", roomId).exchange().expectStatus().isOk();
+
+        Room room = roomRepository.findById(roomId).orElseThrow();
+        assertEquals(0, room.getTimesBooked());
+        assertEquals(0L, room.getVersion());
+        assertEquals(0L, occupancyCounters.snapshot().tempLockedRooms());
+    }
+
+    @Test
+    void allocateBatch_AllOrNothing() {
+        List<Long> ids = client.post().uri("/api/rooms/allocate/batch?count=3&owner=group").exchange()
+                .expectStatus().isOk()
+                .expectBody(new ParameterizedTypeReference<List<Long>>() {}).returnResult().getResponseBody();
+        assertEquals(3, ids.size());
+
+        List<Long> tooMany = client.post().uri("/api/rooms/allocate/batch?count={count}", ROOMS).exchange()
+                .expectStatus().isOk()
+                .expectBody(new ParameterizedTypeReference<List<Long>>() {}).returnResult().getResponseBody();
+        assertEquals(List.of(), tooMany);
+        assertEquals(3L, occupancyCounters.snapshot().tempLockedRooms());
+        assertEquals(ROOMS - 3, freeRoomFacets().total());
+
+        client.post().uri(b -> b.path("/api/rooms/release/batch").queryParam("ids", ids.toArray())
+                .queryParam("owner", "group").build()).exchange().expectStatus().isOk();
+        assertEquals(0L, occupancyCounters.snapshot().tempLockedRooms());
+        assertTrue(roomRepository.findAllById(ids).stream().noneMatch(Room::isTempLocked));
+        assertEquals(ROOMS, freeRoomFacets().total());
+    }
+
+    private RoomFacets freeRoomFacets() {
+        return client.get().uri("/api/rooms/facets?free=true&hotelId={hotelId}&size=0", hotel.getId()).exchange()
+                .expectStatus().isOk()
+                .expectBody(RoomFacets.class).returnResult().getResponseBody();
+    }
+
+    @Test
+    void allocate_ConcurrentRequests_NeverShareARoom() {
+        List<Long> allocated = Flux.range(0, ROOMS + 10)
+                .flatMap(i -> client.get().uri("/api/rooms/allocate").exchange()
+                        .returnResult(Long.class).getResponseBody().next(), 32)
+                .collectList()
+                .block(Duration.ofSeconds(60));
+
+        Set<Long> distinct = new HashSet<>(allocated);
+        assertEquals(ROOMS, allocated.size(), "every room handed out once, extra requests get nothing");
+        assertEquals(ROOMS, distinct.size());
+    }
+
+    @Test
+    void getAvailableRooms_PagesWithCursorAndAnswers304() {
+        var first = client.get().uri("/api/rooms?size=20").exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Room.class).hasSize(20)
+                .returnResult();
+        String cursor = first.getResponseHeaders().getFirst("X-Next-Cursor");
+        String eTag = first.getResponseHeaders().getETag();
+        assertNotNull(cursor);
+        assertNotNull(eTag);
+
+        client.get().uri("/api/rooms?size=40&cursor={cursor}", cursor).exchange()
+                .expectStatus().isOk()
+                .expectHeader().doesNotExist("X-Next-Cursor")
+                .expectBodyList(Room.class).hasSize(30);
+
+        client.get().uri("/api/rooms?size=20").header(HttpHeaders.IF_NONE_MATCH, eTag).exchange()
+                .expectStatus().isEqualTo(HttpStatus.NOT_MODIFIED);
+    }
+
+    @Test
+    void streamAndHotels_ServeSameContract() {
+        client.get().uri("/api/rooms/stream").accept(MediaType.APPLICATION_NDJSON).exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Room.class).hasSize(ROOMS);
+
+        Hotel created = client.post().uri("/api/hotels").bodyValue(Hotel.builder().name("New").address("Delft").build())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Hotel.class).returnResult().getResponseBody();
+        assertNotNull(created.getId());
+        Room room = client.post().uri("/api/rooms")
+                .bodyValue(Room.builder().hotelId(created.getId()).number("1").available(true).build())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Room.class).returnResult().getResponseBody();
+        assertEquals(created.getId(), roomRepository.findById(room.getId()).orElseThrow().getHotelId());
+
+        client.get().uri("/api/hotels").exchange().expectBodyList(Hotel.class).hasSize(2);
+        client.get().uri("/api/hotels/{id}", created.getId()).exchange()
+                .expectStatus().isOk()
+                .expectBody(Hotel.class).value(hotel -> assertEquals("Delft", hotel.getAddress()));
+        client.get().uri("/api/hotels/{id}", Long.MAX_VALUE).exchange().expectStatus().isNotFound();
+    }
+
+    @Test
+    void requestsWithoutToken_AreRejected() {
+        webTestClient.get().uri("/api/rooms/allocate").exchange().expectStatus().isUnauthorized();
+    }
+
+    @Test
+    void invalidArguments_Return400() {
+        client.post().uri("/api/rooms/allocate/batch?count=0").exchange().expectStatus().isBadRequest();
+        // удержаний по датам в реактивном профиле нет: даты не должны молча превращаться в аренду номера
+        client.get().uri("/api/rooms/allocate?checkIn=2030-01-01&checkOut=2030-01-03").exchange().expectStatus().isBadRequest();
+        client.post().uri("/api/rooms/1/confirm?checkIn=2030-01-01&checkOut=2030-01-03").exchange().expectStatus().isBadRequest();
+        client.post().uri("/api/rooms/1/release?checkIn=2030-01-01").exchange().expectStatus().isBadRequest();
+        client.get().uri("/api/rooms?cursor=!!").exchange().expectStatus().isBadRequest();
+    }
+}
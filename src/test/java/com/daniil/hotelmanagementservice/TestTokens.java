@@ -0,0 +1,32 @@
+package com.daniil.hotelmanagementservice;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+
+/**
+ * Выпускает JWT тем же HMAC-ключом, что проверяет SecurityConfig, — вместо настоящего сервиса авторизации.
+ */
+public final class TestTokens {
+
+    private static final byte[] SECRET = "superSecretKeyForJwtThatShouldBeStoredInEnv".getBytes(StandardCharsets.UTF_8);
+
+    private TestTokens() {
+    }
+
+    public static String bearer(String subject, String role) {
+        Instant now = Instant.now();
+        return "Bearer " + Jwts.builder()
+                .setSubject(subject)
+                .claim("role", role)
+                .setIssuedAt(Date.from(now))
+                .setExpiration(Date.from(now.plus(1, ChronoUnit.HOURS)))
+                .signWith(Keys.hmacShaKeyFor(SECRET), SignatureAlgorithm.HS256)
+                .compact();
+    }
+}
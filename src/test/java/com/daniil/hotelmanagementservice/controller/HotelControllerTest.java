@@ -4,22 +4,33 @@ import static org.junit.jupiter.api.Assertions.*;
 
 
 import com.daniil.hotelmanagementservice.entity.Hotel;
+import com.daniil.hotelmanagementservice.repository.HotelRepository;
+import com.daniil.hotelmanagementservice.repository.RoomRepository;
+import com.daniil.hotelmanagementservice.service.CollectionVersions;
 import com.daniil.hotelmanagementservice.service.HotelService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -31,13 +42,21 @@ class HotelControllerTest {
     @Mock
     private HotelService hotelService;
 
+    private final HotelRepository hotelRepository = mock(HotelRepository.class);
+
+    @Spy
+    private CollectionVersions collectionVersions = new CollectionVersions(hotelRepository, mock(RoomRepository.class));
+
     @InjectMocks
     private HotelController hotelController;
 
     private Hotel testHotel;
 
+    private ServletWebRequest webRequest;
+
     @BeforeEach
     void setUp() {
+        webRequest = new ServletWebRequest(new MockHttpServletRequest("GET", "/"), new MockHttpServletResponse());
         testHotel = new Hotel();
         testHotel.setId(1L);
         testHotel.setName("Test Hotel");
@@ -64,7 +83,7 @@ class HotelControllerTest {
         when(hotelService.getAllHotels()).thenReturn(List.of(testHotel));
 
         // Act
-        List<Hotel> result = hotelController.getAllHotels();
+        List<Hotel> result = hotelController.getAllHotels(webRequest);
 
         // Assert
         assertEquals(1, result.size());
@@ -78,13 +97,85 @@ class HotelControllerTest {
         when(hotelService.getAllHotels()).thenReturn(List.of());
 
         // Act
-        List<Hotel> result = hotelController.getAllHotels();
+        List<Hotel> result = hotelController.getAllHotels(webRequest);
 
         // Assert
         assertTrue(result.isEmpty());
         verify(hotelService).getAllHotels();
     }
 
+    @Test
+    void getAllHotels_SetsETagFromCollectionVersion() {
+        // Arrange
+        when(hotelService.getAllHotels()).thenReturn(List.of(testHotel));
+
+        // Act
+        hotelController.getAllHotels(webRequest);
+
+        // Assert
+        assertEquals(collectionVersions.hotelsETag(), webRequest.getResponse().getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    void getAllHotels_WithCurrentETag_Returns304WithoutLoadingHotels() {
+        // Arrange
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/hotels");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, collectionVersions.hotelsETag());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Act
+        List<Hotel> result = hotelController.getAllHotels(new ServletWebRequest(request, response));
+
+        // Assert
+        assertNull(result);
+        assertEquals(HttpStatus.NOT_MODIFIED.value(), response.getStatus());
+        verifyNoInteractions(hotelService);
+    }
+
+    @Test
+    void getAllHotels_AfterCreate_ETagChanges() {
+        // Arrange
+        when(hotelRepository.contentStamp()).thenReturn("1-1", "2-2");
+        String before = collectionVersions.hotelsETag();
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/hotels");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, before);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        when(hotelService.getAllHotels()).thenReturn(List.of(testHotel));
+
+        // Act
+        collectionVersions.hotelsChanged();
+        List<Hotel> result = hotelController.getAllHotels(new ServletWebRequest(request, response));
+
+        // Assert
+        assertEquals(List.of(testHotel), result);
+        assertNotEquals(before, response.getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    void getHotel_WhenExists_ReturnsHotel() {
+        // Arrange
+        when(hotelService.getHotel(1L)).thenReturn(Optional.of(testHotel));
+
+        // Act
+        ResponseEntity<Hotel> result = hotelController.getHotel(1L, webRequest);
+
+        // Assert
+        assertEquals(HttpStatus.OK, result.getStatusCode());
+        assertEquals(testHotel, result.getBody());
+    }
+
+    @Test
+    void getHotel_WhenMissing_ReturnsNotFound() {
+        // Arrange
+        when(hotelService.getHotel(99L)).thenReturn(Optional.empty());
+
+        // Act
+        ResponseEntity<Hotel> result = hotelController.getHotel(99L, webRequest);
+
+        // Assert
+        assertEquals(HttpStatus.NOT_FOUND, result.getStatusCode());
+    }
+
     @Test
     void createHotel_WithValidHotel_ReturnsCreatedHotel() {
         // Arrange
@@ -143,7 +234,7 @@ class HotelControllerTest {
         when(hotelService.getAllHotels()).thenReturn(List.of(testHotel));
 
         // Act
-        hotelController.getAllHotels();
+        hotelController.getAllHotels(webRequest);
 
         // Assert
         verify(hotelService, times(1)).getAllHotels();
@@ -0,0 +1,100 @@
+package com.daniil.hotelmanagementservice.controller;
+
+import com.daniil.hotelmanagementservice.entity.Hotel;
+import com.daniil.hotelmanagementservice.entity.Room;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImportReaderTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @Test
+    void rooms_FromCsv_MapsColumnsByHeader() {
+        // Arrange
+        String csv = "number,hotelId,available\n101,1,true\n102,1,false\n\n103,2,\n";
+
+        // Act
+        List<Room> rooms = ImportReader.rooms(body(csv), ImportReader.TEXT_CSV, objectMapper).toList();
+
+        // Assert
+        assertEquals(3, rooms.size());
+        assertEquals("102", rooms.get(1).getNumber());
+        assertFalse(rooms.get(1).isAvailable());
+        assertEquals(2L, rooms.get(2).getHotelId());
+        assertTrue(rooms.get(2).isAvailable());
+    }
+
+    @Test
+    void rooms_FromCsv_MapsOptionalSearchAttributes() {
+        // Arrange
+        String csv = "hotelId,number,roomType,capacity,price\n1,101,suite,3,149.90\n1,102,,,\n";
+
+        // Act
+        List<Room> rooms = ImportReader.rooms(body(csv), ImportReader.TEXT_CSV, objectMapper).toList();
+
+        // Assert
+        assertEquals("suite", rooms.get(0).getRoomType());
+        assertEquals(3, rooms.get(0).getCapacity());
+        assertEquals(new BigDecimal("149.90"), rooms.get(0).getPrice());
+        assertNull(rooms.get(1).getRoomType());
+        assertNull(rooms.get(1).getCapacity());
+        assertNull(rooms.get(1).getPrice());
+    }
+
+    @Test
+    void hotels_FromCsv_KeepsCommasInQuotedFields() {
+        // Act
+        List<Hotel> hotels = ImportReader.hotels(body("name,address\n\"Grand \"\"Plaza\"\"\",\"1 Main St, Springfield\"\n"),
+                ImportReader.TEXT_CSV, objectMapper).toList();
+
+        // Assert
+        assertEquals("Grand \"Plaza\"", hotels.get(0).getName());
+        assertEquals("1 Main St, Springfield", hotels.get(0).getAddress());
+    }
+
+    @Test
+    void rooms_FromNdjson_ParsesObjectPerLine() {
+        // Arrange
+        String ndjson = "{\"hotelId\":1,\"number\":\"101\"}\n{\"hotelId\":2,\"number\":\"201\",\"available\":false}\n";
+
+        // Act
+        List<Room> rooms = ImportReader.rooms(body(ndjson), MediaType.APPLICATION_NDJSON, objectMapper).toList();
+
+        // Assert
+        assertEquals(List.of("101", "201"), rooms.stream().map(Room::getNumber).toList());
+        assertFalse(rooms.get(1).isAvailable());
+    }
+
+    @Test
+    void rooms_WithBadRow_ReportsLineNumber() {
+        // Arrange
+        Stream<Room> rooms = ImportReader.rooms(body("hotelId,number\n1,101\nx,102\n"), ImportReader.TEXT_CSV, objectMapper);
+
+        // Act
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, rooms::toList);
+
+        // Assert
+        assertTrue(ex.getMessage().startsWith("line 3:"), ex.getMessage());
+    }
+
+    @Test
+    void rooms_WithUnsupportedFormat_Throws() {
+        assertThrows(IllegalArgumentException.class,
+                () -> ImportReader.rooms(body("[]"), MediaType.APPLICATION_JSON, objectMapper));
+    }
+
+    private static InputStream body(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -3,26 +3,50 @@ package com.daniil.hotelmanagementservice.controller;
 import static org.junit.jupiter.api.Assertions.*;
 
 
+import com.daniil.hotelmanagementservice.dto.HotelOccupancy;
+import com.daniil.hotelmanagementservice.dto.ImportResult;
+import com.daniil.hotelmanagementservice.dto.OccupancyStats;
+import com.daniil.hotelmanagementservice.dto.RoomFacets;
+import com.daniil.hotelmanagementservice.dto.RoomSearchPage;
 import com.daniil.hotelmanagementservice.entity.Room;
+import com.daniil.hotelmanagementservice.repository.HotelRepository;
+import com.daniil.hotelmanagementservice.repository.RoomRepository;
+import com.daniil.hotelmanagementservice.service.CollectionVersions;
 import com.daniil.hotelmanagementservice.service.RoomService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
-
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -34,13 +58,22 @@ class RoomControllerTest {
     @Mock
     private RoomService roomService;
 
+    @Spy
+    private CollectionVersions collectionVersions = new CollectionVersions(mock(HotelRepository.class), mock(RoomRepository.class));
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
     @InjectMocks
     private RoomController roomController;
 
     private Room testRoom;
 
+    private ServletWebRequest webRequest;
+
     @BeforeEach
     void setUp() {
+        webRequest = new ServletWebRequest(new MockHttpServletRequest("GET", "/"), new MockHttpServletResponse());
         testRoom = new Room();
         testRoom.setId(1L);
         testRoom.setNumber("101");
@@ -62,67 +95,208 @@ class RoomControllerTest {
     }
 
     @Test
-    void getAvailableRooms_ReturnsListOfRooms() {
+    void getAvailableRooms_ReturnsPageWithNextCursor() {
+        // Arrange
+        when(roomService.getAvailableRooms(1, null)).thenReturn(new RoomSearchPage(List.of(testRoom), "MQ"));
+
+        // Act
+        ResponseEntity<List<Room>> result = roomController.getAvailableRooms(1, null, webRequest);
+
+        // Assert
+        assertEquals(List.of(testRoom), result.getBody());
+        assertEquals("MQ", result.getHeaders().getFirst(RoomController.NEXT_CURSOR_HEADER));
+        verify(roomService).getAvailableRooms(1, null);
+    }
+
+    @Test
+    void getAvailableRooms_WithCurrentETag_Returns304WithoutQuery() {
         // Arrange
-        when(roomService.getAllAvailableRooms()).thenReturn(List.of(testRoom));
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/rooms");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, collectionVersions.roomsETag());
+        MockHttpServletResponse response = new MockHttpServletResponse();
 
         // Act
-        List<Room> result = roomController.getAvailableRooms();
+        ResponseEntity<List<Room>> result = roomController.getAvailableRooms(100, null, new ServletWebRequest(request, response));
 
         // Assert
-        assertEquals(1, result.size());
-        assertEquals(testRoom, result.get(0));
-        verify(roomService).getAllAvailableRooms();
+        assertNull(result);
+        assertEquals(HttpStatus.NOT_MODIFIED.value(), response.getStatus());
+        verifyNoInteractions(roomService);
+    }
+
+    @Test
+    void streamAvailableRooms_WritesOneJsonObjectPerLine() throws Exception {
+        // Arrange
+        Room second = Room.builder().id(2L).number("102").available(true)
+                .tempLocked(true).leaseOwner("booking-1").leaseExpiresAt(Instant.now()).version(3).build();
+        doAnswer(invocation -> {
+            Consumer<Room> action = invocation.getArgument(0);
+            action.accept(testRoom);
+            action.accept(second);
+            return null;
+        }).when(roomService).forEachAvailableRoom(any());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        ResponseEntity<StreamingResponseBody> result = roomController.streamAvailableRooms(webRequest);
+        result.getBody().writeTo(out);
+
+        // Assert
+        assertEquals(MediaType.APPLICATION_NDJSON, result.getHeaders().getContentType());
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("101", objectMapper.readTree(lines[0]).get("number").asText());
+        assertEquals(2L, objectMapper.readTree(lines[1]).get("id").asLong());
+        // владелец аренды и служебные поля не раскрываются
+        assertFalse(lines[1].contains("booking-1"));
+        assertFalse(objectMapper.readTree(lines[1]).has("leaseExpiresAt"));
+        assertFalse(objectMapper.readTree(lines[1]).has("version"));
     }
 
     @Test
     void allocateRoom_WhenRoomAvailable_ReturnsRoomId() {
         // Arrange
-        when(roomService.allocateRoom()).thenReturn(Optional.of(testRoom));
+        when(roomService.allocateRoom(null, null)).thenReturn(Optional.of(testRoom));
 
         // Act
-        Long result = roomController.allocateRoom();
+        Long result = roomController.allocateRoom(null, null, null, null);
 
         // Assert
         assertEquals(1L, result);
-        verify(roomService).allocateRoom();
+        verify(roomService).allocateRoom(null, null);
+    }
+
+    @Test
+    void allocateRoom_WithHotelId_PassesHotelToService() {
+        // Arrange
+        when(roomService.allocateRoom(7L, null)).thenReturn(Optional.of(testRoom));
+
+        // Act
+        Long result = roomController.allocateRoom(7L, null, null, null);
+
+        // Assert
+        assertEquals(1L, result);
+        verify(roomService).allocateRoom(7L, null);
+    }
+
+    @Test
+    void allocateRoom_WithDates_HoldsNightsOfRange() {
+        // Arrange
+        LocalDate checkIn = LocalDate.of(2026, 3, 1);
+        LocalDate checkOut = LocalDate.of(2026, 3, 4);
+        when(roomService.allocateRoom(7L, "booking-1", checkIn, checkOut)).thenReturn(Optional.of(testRoom));
+
+        // Act
+        Long result = roomController.allocateRoom(7L, "booking-1", checkIn, checkOut);
+
+        // Assert
+        assertEquals(1L, result);
+        verify(roomService, never()).allocateRoom(any(), any());
+    }
+
+    @Test
+    void confirmAndRelease_WithDates_UseRangeOperations() {
+        // Arrange
+        LocalDate checkIn = LocalDate.of(2026, 3, 1);
+        LocalDate checkOut = LocalDate.of(2026, 3, 4);
+
+        // Act
+        roomController.confirmBooking(1L, "booking-1", checkIn, checkOut);
+        roomController.releaseRoom(1L, "booking-1", checkIn, checkOut);
+
+        // Assert
+        verify(roomService).confirmBooking(1L, "booking-1", checkIn, checkOut);
+        verify(roomService).releaseRoom(1L, "booking-1", checkIn, checkOut);
+        verify(roomService, never()).confirmBooking(any(), any());
+        verify(roomService, never()).releaseRoom(any(), any());
+    }
+
+    @Test
+    void findFreeRooms_ReturnsRoomIdsFromService() {
+        // Arrange
+        LocalDate checkIn = LocalDate.of(2026, 3, 1);
+        LocalDate checkOut = LocalDate.of(2026, 3, 4);
+        when(roomService.findFreeRooms(7L, checkIn, checkOut, 20)).thenReturn(List.of(3L, 1L));
+
+        // Act
+        List<Long> result = roomController.findFreeRooms(7L, checkIn, checkOut, 20);
+
+        // Assert
+        assertEquals(List.of(3L, 1L), result);
+    }
+
+    @Test
+    void facetSearch_PassesFiltersToService() {
+        // Arrange
+        RoomFacets facets = new RoomFacets(1, List.of(4L), Map.of("suite", 1L), Map.of(3, 1L),
+                Map.of("100-200", 1L), Map.of(7L, 1L));
+        when(roomService.facetSearch(7L, "suite", 2, "100-200", true, 10)).thenReturn(facets);
+
+        // Act
+        RoomFacets result = roomController.facetSearch(7L, "suite", 2, "100-200", true, 10);
+
+        // Assert
+        assertEquals(facets, result);
     }
 
     @Test
     void allocateRoom_WhenNoRoomsAvailable_ReturnsNull() {
         // Arrange
-        when(roomService.allocateRoom()).thenReturn(Optional.empty());
+        when(roomService.allocateRoom(null, null)).thenReturn(Optional.empty());
 
         // Act
-        Long result = roomController.allocateRoom();
+        Long result = roomController.allocateRoom(null, null, null, null);
 
         // Assert
         assertNull(result);
-        verify(roomService).allocateRoom();
+        verify(roomService).allocateRoom(null, null);
+    }
+
+    @Test
+    void allocateRooms_ReturnsAllocatedIds() {
+        // Arrange
+        when(roomService.allocateRooms(3, 1L, null)).thenReturn(List.of(1L, 2L, 3L));
+
+        // Act
+        List<Long> result = roomController.allocateRooms(3, 1L, null);
+
+        // Assert
+        assertEquals(List.of(1L, 2L, 3L), result);
+    }
+
+    @Test
+    void confirmBookings_And_ReleaseRooms_PassIdsToService() {
+        // Act
+        roomController.confirmBookings(List.of(1L, 2L), null);
+        roomController.releaseRooms(List.of(3L), null);
+
+        // Assert
+        verify(roomService).confirmBookings(List.of(1L, 2L), null);
+        verify(roomService).releaseRooms(List.of(3L), null);
     }
 
     @Test
     void confirmBooking_CallsServiceWithCorrectId() {
         // Arrange
-        doNothing().when(roomService).confirmBooking(any(Long.class));
+        when(roomService.confirmBooking(any(Long.class), any())).thenReturn(true);
 
         // Act
-        roomController.confirmBooking(1L);
+        roomController.confirmBooking(1L, null, null, null);
 
         // Assert
-        verify(roomService).confirmBooking(1L);
+        verify(roomService).confirmBooking(1L, null);
     }
 
     @Test
     void releaseRoom_CallsServiceWithCorrectId() {
         // Arrange
-        doNothing().when(roomService).releaseRoom(any(Long.class));
+        when(roomService.releaseRoom(any(Long.class), any())).thenReturn(true);
 
         // Act
-        roomController.releaseRoom(1L);
+        roomController.releaseRoom(1L, null, null, null);
 
         // Assert
-        verify(roomService).releaseRoom(1L);
+        verify(roomService).releaseRoom(1L, null);
     }
 
     @Test
@@ -142,44 +316,41 @@ class RoomControllerTest {
     @Test
     void searchRooms_WithAllParameters_ReturnsFilteredRooms() {
         // Arrange
-        when(roomService.searchRooms(any(), any(), any(), anyInt(), anyInt(), any()))
-                .thenReturn(List.of(testRoom));
+        when(roomService.searchRooms(any(), any(), any(), anyInt(), anyInt(), any(), anyInt(), anyInt(), any()))
+                .thenReturn(new RoomSearchPage(List.of(testRoom), null));
 
         // Act
-        List<Room> result = roomController.searchRooms(1L, true, "101", 0, 10, "id");
+        ResponseEntity<List<Room>> result = roomController.searchRooms(1L, true, "101", 0, 10, "id", 0, 20, null);
 
         // Assert
-        assertEquals(1, result.size());
-        assertEquals(testRoom, result.get(0));
-        verify(roomService).searchRooms(1L, true, "101", 0, 10, "id");
+        assertEquals(List.of(testRoom), result.getBody());
+        assertFalse(result.getHeaders().containsKey(RoomController.NEXT_CURSOR_HEADER));
+        verify(roomService).searchRooms(1L, true, "101", 0, 10, "id", 0, 20, null);
     }
 
     @Test
-    void searchRooms_WithDefaultParameters_ReturnsAllRooms() {
+    void searchRooms_WithNextPage_ReturnsCursorHeader() {
         // Arrange
-        when(roomService.searchRooms(null, null, null, 0, 1000, "id"))
-                .thenReturn(List.of(testRoom));
+        when(roomService.searchRooms(null, null, null, 0, 1000, "id", 0, 100, "MQ"))
+                .thenReturn(new RoomSearchPage(List.of(testRoom), "Mg"));
 
         // Act
-        List<Room> result = roomController.searchRooms(null, null, null, 0, 1000, "id");
+        ResponseEntity<List<Room>> result = roomController.searchRooms(null, null, null, 0, 1000, "id", 0, 100, "MQ");
 
         // Assert
-        assertEquals(1, result.size());
-        verify(roomService).searchRooms(null, null, null, 0, 1000, "id");
+        assertEquals(1, result.getBody().size());
+        assertEquals("Mg", result.getHeaders().getFirst(RoomController.NEXT_CURSOR_HEADER));
     }
 
     @Test
     void getStats_ReturnsOccupancyStats() {
         // Arrange
-        Map<String, Object> expectedStats = Map.of(
-                "totalRooms", 10,
-                "availableRooms", 5,
-                "occupancyRate", "50.00%"
-        );
+        OccupancyStats expectedStats = OccupancyStats.of(List.of(
+                new HotelOccupancy(1L, "Test Hotel", 10L, 5L, 0L)));
         when(roomService.getOccupancyStats()).thenReturn(expectedStats);
 
         // Act
-        Map<String, Object> result = roomController.getStats();
+        OccupancyStats result = roomController.getStats();
 
         // Assert
         assertEquals(expectedStats, result);
@@ -187,4 +358,19 @@ class RoomControllerTest {
     }
 
 
-}
\ No newline at end of file
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void importRooms_StreamsParsedRowsToService() {
+        // Arrange
+        when(roomService.importRooms(any())).thenAnswer(invocation -> ((Stream<Room>) invocation.getArgument(0)).count());
+        String csv = "hotelId,number\n1,101\n1,102\n";
+
+        // Act
+        ImportResult result = roomController.importRooms(ImportReader.TEXT_CSV,
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+
+        // Assert
+        assertEquals(2L, result.imported());
+    }
+}
@@ -0,0 +1,135 @@
+package com.daniil.hotelmanagementservice.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * EXPLAIN для SQL, который Hibernate генерирует под горячие методы репозитория, на 100 000 номеров:
+ * ни один из них не должен читать таблицу целиком.
+ */
+@Slf4j
+@DataJpaTest(properties = {
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.daniil.hotelmanagementservice.repository.RoomIndexTest$CapturingInspector"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class RoomIndexTest {
+
+    private static final int ROOMS = 100_000;
+
+    @Autowired
+    private RoomRepository roomRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeAll
+    void seed() throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            // 1% свободных номеров, 100 номеров на отель
+            statement.executeUpdate("INSERT INTO room (id, hotel_id, number, available, temp_locked, times_booked)"
+                    + " SELECT NEXT VALUE FOR room_seq, MOD(X, 1000), CAST(X AS VARCHAR), MOD(X, 100) = 0, MOD(X, 200) = 0, MOD(X, 50)"
+                    + " FROM SYSTEM_RANGE(1, " + ROOMS + ")");
+            statement.execute("ANALYZE");
+        }
+    }
+
+    @AfterAll
+    void cleanUp() {
+        roomRepository.deleteAllInBatch();
+    }
+
+    @BeforeEach
+    void setUp() {
+        CapturingInspector.SQL.clear();
+    }
+
+    Stream<Arguments> hotQueries() {
+        return Stream.of(
+                Arguments.of("findAndLockAvailableRooms", (Consumer<RoomRepository>) r -> r.findAndLockAvailableRooms(Limit.of(2))),
+                Arguments.of("findAndLockAvailableRoomsByHotelId", (Consumer<RoomRepository>) r -> r.findAndLockAvailableRoomsByHotelId(7L, Limit.of(2))),
+                Arguments.of("findAllocationCandidates", (Consumer<RoomRepository>) r -> r.findAllocationCandidates(Limit.of(16))),
+                Arguments.of("findAllocationCandidatesByHotelId", (Consumer<RoomRepository>) r -> r.findAllocationCandidatesByHotelId(7L, Limit.of(16))),
+                Arguments.of("findByHotelId", (Consumer<RoomRepository>) r -> r.findByHotelId(7L)),
+                Arguments.of("findByAvailableTrue", (Consumer<RoomRepository>) RoomRepository::findByAvailableTrue),
+                Arguments.of("findByAvailableTrue(keyset)", (Consumer<RoomRepository>) r -> r.findByAvailableTrue(
+                        ScrollPosition.forward(Map.of("id", 50_000L)), Sort.by("id"), Limit.of(100))),
+                Arguments.of("countByAvailableFalse", (Consumer<RoomRepository>) RoomRepository::countByAvailableFalse)
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("hotQueries")
+    void hotQuery_UsesIndexInsteadOfTableScan(String method, Consumer<RoomRepository> call) throws SQLException {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> call.accept(roomRepository));
+        assertEquals(1, CapturingInspector.SQL.size(), "expected exactly one statement for " + method);
+
+        String plan = explain(CapturingInspector.SQL.get(0));
+
+        log.info("{}: {}", method, plan);
+        assertFalse(plan.contains("tableScan"), method + " falls back to a table scan:\n" + plan);
+    }
+
+    /**
+     * Значение параметров для плана не важно: все '?' связываются одним числом.
+     */
+    private String explain(String sql) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement explain = connection.prepareStatement("EXPLAIN " + sql)) {
+            int parameters = explain.getParameterMetaData().getParameterCount();
+            for (int i = 1; i <= parameters; i++) {
+                explain.setLong(i, 7L);
+            }
+            try (ResultSet plan = explain.executeQuery()) {
+                assertTrue(plan.next());
+                return plan.getString(1);
+            }
+        }
+    }
+
+    public static class CapturingInspector implements StatementInspector {
+
+        static final List<String> SQL = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            SQL.add(sql);
+            return sql;
+        }
+    }
+}
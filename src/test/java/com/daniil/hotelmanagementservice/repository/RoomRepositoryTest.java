@@ -0,0 +1,450 @@
+package com.daniil.hotelmanagementservice.repository;
+
+import com.daniil.hotelmanagementservice.dto.HotelOccupancy;
+import com.daniil.hotelmanagementservice.entity.Hotel;
+import com.daniil.hotelmanagementservice.entity.Room;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class RoomRepositoryTest {
+
+    private static final int ALLOCATORS = 8;
+
+    @Autowired
+    private RoomRepository roomRepository;
+
+    @Autowired
+    private HotelRepository hotelRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private TransactionTemplate tx;
+
+    @BeforeEach
+    void setUp() {
+        tx = new TransactionTemplate(transactionManager);
+        for (int i = 0; i < ALLOCATORS * 2; i++) {
+            roomRepository.save(Room.builder()
+                    .hotelId(i % 2 == 0 ? 1L : 2L)
+                    .number(String.valueOf(100 + i))
+                    .available(true)
+                    .timesBooked(i / 4)
+                    .tempLocked(false)
+                    .build());
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        roomRepository.deleteAllInBatch();
+        hotelRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void lockNextAvailableRoom_ReturnsLeastBookedRoom() {
+        Room room = tx.execute(status -> roomRepository.lockNextAvailableRoom(null).orElseThrow());
+
+        assertEquals(0, room.getTimesBooked());
+        assertEquals("100", room.getNumber());
+    }
+
+    @Test
+    void lockNextAvailableRoom_WithHotelId_StaysInsideHotel() {
+        Room room = tx.execute(status -> roomRepository.lockNextAvailableRoom(2L).orElseThrow());
+
+        assertEquals(2L, room.getHotelId());
+        assertEquals("101", room.getNumber());
+    }
+
+    @Test
+    void lockNextAvailableRoom_SkipsTempLockedRooms() {
+        tx.executeWithoutResult(status -> roomRepository.findAll().forEach(room -> {
+            room.setTempLocked(!room.getNumber().equals("115"));
+            roomRepository.save(room);
+        }));
+
+        Optional<Room> room = tx.execute(status -> roomRepository.lockNextAvailableRoom(null));
+
+        assertEquals("115", room.orElseThrow().getNumber());
+    }
+
+    @Test
+    void findAndLockAvailableRoomsByHotelId_LocksOnlyFirstRowsInPlanningOrder() {
+        List<Room> rooms = tx.execute(status -> roomRepository.findAndLockAvailableRoomsByHotelId(1L, Limit.of(2)));
+
+        assertEquals(2, rooms.size());
+        assertTrue(rooms.get(0).getTimesBooked() <= rooms.get(1).getTimesBooked());
+        assertTrue(rooms.stream().allMatch(room -> room.getHotelId() == 1L));
+    }
+
+    @Test
+    void lockNextAvailableRooms_ThenMarkTempLocked_LocksBatchWithOneUpdate() {
+        int updated = tx.execute(status -> {
+            List<Long> ids = roomRepository.lockNextAvailableRooms(1L, 3).stream().map(Room::getId).toList();
+            assertEquals(3, ids.size());
+            return roomRepository.markTempLocked(ids, Instant.now().plusSeconds(60), "booking-1");
+        });
+
+        assertEquals(3, updated);
+        assertEquals(5, roomRepository.findAll().stream()
+                .filter(room -> room.getHotelId() == 1L && !room.isTempLocked())
+                .count());
+    }
+
+    @Test
+    void confirmAll_IncrementsTimesBookedAndUnlocks() {
+        Map<Long, Integer> before = roomRepository.findByHotelId(2L).stream()
+                .collect(Collectors.toMap(Room::getId, Room::getTimesBooked));
+        tx.executeWithoutResult(status -> roomRepository.markTempLocked(before.keySet(), Instant.now().plusSeconds(60), "booking-2"));
+
+        int updated = tx.execute(status -> roomRepository.confirmAll(before.keySet(), "booking-2"));
+
+        assertEquals(before.size(), updated);
+        roomRepository.findAllById(before.keySet()).forEach(room -> {
+            assertFalse(room.isTempLocked());
+            assertEquals(before.get(room.getId()) + 1, room.getTimesBooked());
+        });
+    }
+
+    @Test
+    void confirmAll_SkipsRoomsWithoutLease() {
+        Room room = roomRepository.findByHotelId(2L).get(0);
+
+        int confirmed = tx.execute(status -> roomRepository.confirmAll(List.of(room.getId()), null));
+        int released = tx.execute(status -> roomRepository.releaseAll(List.of(room.getId()), null));
+
+        assertEquals(0, confirmed);
+        assertEquals(0, released);
+        assertEquals(room.getTimesBooked(), roomRepository.findById(room.getId()).orElseThrow().getTimesBooked());
+    }
+
+    @Test
+    void leaseIfAvailable_UpdatesOnlyFreeRoomAndReturnsNewState() {
+        Long roomId = roomRepository.findByHotelId(1L).get(0).getId();
+        Instant expiresAt = Instant.now().plusSeconds(60);
+
+        Optional<Room> leased = tx.execute(status -> roomRepository.leaseIfAvailable(roomId, expiresAt, "booking-1"));
+        Optional<Room> again = tx.execute(status -> roomRepository.leaseIfAvailable(roomId, expiresAt, "booking-2"));
+
+        assertTrue(leased.orElseThrow().isTempLocked());
+        assertEquals("booking-1", leased.get().getLeaseOwner());
+        assertEquals(1L, leased.get().getHotelId());
+        assertTrue(again.isEmpty());
+    }
+
+    @Test
+    void addTimesBooked_AddsDeltaAndBumpsVersion() {
+        Map<Long, Room> before = roomRepository.findByHotelId(2L).stream()
+                .collect(Collectors.toMap(Room::getId, room -> room));
+
+        int updated = tx.execute(status -> roomRepository.addTimesBooked(before.keySet(), 3));
+
+        assertEquals(before.size(), updated);
+        roomRepository.findAllById(before.keySet()).forEach(room -> {
+            assertEquals(before.get(room.getId()).getTimesBooked() + 3, room.getTimesBooked());
+            assertEquals(before.get(room.getId()).getVersion() + 1, room.getVersion());
+        });
+    }
+
+    @Test
+    void contentStamp_ChangesWithAnyRoomUpdateOnly() {
+        String before = roomRepository.contentStamp();
+        assertEquals(before, roomRepository.contentStamp());
+
+        Long id = roomRepository.findByHotelId(1L).get(0).getId();
+        tx.execute(status -> roomRepository.incrementTimesBooked(id));
+
+        assertEquals(String.valueOf(ALLOCATORS * 2), roomRepository.contentStamp().split("-")[0]);
+        assertNotEquals(before, roomRepository.contentStamp());
+    }
+
+    @Test
+    void hotelContentStamp_ChangesWhenHotelAdded() {
+        String before = hotelRepository.contentStamp();
+
+        hotelRepository.save(Hotel.builder().name("Stamp").address("Somewhere").build());
+
+        assertEquals("0-0", before);
+        assertNotEquals(before, hotelRepository.contentStamp());
+    }
+
+    @Test
+    void confirmLease_And_ReleaseLease_RequireLeaseOfOwner() {
+        Room room = roomRepository.findByHotelId(2L).get(0);
+        tx.executeWithoutResult(status -> roomRepository.leaseIfAvailable(room.getId(), Instant.now().plusSeconds(60), "booking-1"));
+
+        Optional<Room> foreign = tx.execute(status -> roomRepository.confirmLease(room.getId(), "booking-2"));
+        Optional<Room> confirmed = tx.execute(status -> roomRepository.confirmLease(room.getId(), "booking-1"));
+        Optional<Room> released = tx.execute(status -> roomRepository.releaseLease(room.getId(), null));
+
+        assertTrue(foreign.isEmpty());
+        assertEquals(room.getTimesBooked() + 1, confirmed.orElseThrow().getTimesBooked());
+        assertFalse(confirmed.get().isTempLocked());
+        assertNull(confirmed.get().getLeaseOwner());
+        // после confirm аренды нет — освобождать нечего
+        assertTrue(released.isEmpty());
+    }
+
+    @Test
+    void confirmLease_RunsSingleStatement() {
+        Long roomId = roomRepository.findByHotelId(1L).get(0).getId();
+        tx.executeWithoutResult(status -> roomRepository.leaseIfAvailable(roomId, Instant.now().plusSeconds(60), null));
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        tx.executeWithoutResult(status -> roomRepository.confirmLease(roomId, null).orElseThrow());
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void findAllocationCandidates_ReturnsLeastBookedFreeRoomsUpToLimit() {
+        List<Room> candidates = roomRepository.findAllocationCandidatesByHotelId(1L, Limit.of(3));
+
+        assertEquals(List.of("100", "102", "104"), candidates.stream().map(Room::getNumber).toList());
+    }
+
+    @Test
+    void saveAndFlush_WithStaleVersion_FailsAfterConditionalUpdate() {
+        Room stale = roomRepository.findAllocationCandidates(Limit.of(1)).get(0);
+        // Конкурент захватил номер условным UPDATE — версия строки увеличилась
+        tx.executeWithoutResult(status -> roomRepository.leaseIfAvailable(stale.getId(), Instant.now().plusSeconds(60), "booking-1"));
+
+        stale.setTempLocked(true);
+        stale.setLeaseOwner("booking-2");
+
+        assertThrows(ObjectOptimisticLockingFailureException.class,
+                () -> tx.executeWithoutResult(status -> roomRepository.saveAndFlush(stale)));
+        assertEquals("booking-1", roomRepository.findById(stale.getId()).orElseThrow().getLeaseOwner());
+    }
+
+    @Test
+    void findAndLockExpiredLeases_AndReleaseExpired_ReclaimOnlyExpiredLeases() {
+        List<Long> ids = roomRepository.findByHotelId(1L).stream().map(Room::getId).toList();
+        Instant now = Instant.now();
+        tx.executeWithoutResult(status -> {
+            roomRepository.markTempLocked(ids.subList(0, 2), now.minusSeconds(1), "crashed-booking");
+            roomRepository.markTempLocked(ids.subList(2, 3), now.plusSeconds(600), "live-booking");
+        });
+
+        List<Long> expired = tx.execute(status -> roomRepository.findAndLockExpiredLeases(now, PageRequest.of(0, 10))
+                .stream().map(Room::getId).toList());
+        int reclaimed = tx.execute(status -> roomRepository.releaseExpired(expired, now));
+
+        assertEquals(ids.subList(0, 2).stream().sorted().toList(), expired.stream().sorted().toList());
+        assertEquals(2, reclaimed);
+        assertTrue(roomRepository.findById(ids.get(2)).orElseThrow().isTempLocked());
+        assertFalse(roomRepository.findById(ids.get(0)).orElseThrow().isTempLocked());
+    }
+
+    @Test
+    void countOccupancyByHotel_CountsTotalOccupiedAndTempLockedPerHotel() {
+        roomRepository.deleteAllInBatch();
+        Hotel aurora = hotelRepository.save(Hotel.builder().name("Aurora").address("Amsterdam").build());
+        Hotel empty = hotelRepository.save(Hotel.builder().name("Empty").address("Rotterdam").build());
+        roomRepository.save(Room.builder().hotelId(aurora.getId()).number("1").available(false).build());
+        roomRepository.save(Room.builder().hotelId(aurora.getId()).number("2").available(true).tempLocked(true).build());
+
+        List<HotelOccupancy> byHotel = roomRepository.countOccupancyByHotel();
+
+        assertEquals(List.of(
+                new HotelOccupancy(aurora.getId(), "Aurora", 2L, 1L, 1L),
+                new HotelOccupancy(empty.getId(), "Empty", 0L, 0L, 0L)), byHotel);
+    }
+
+    @Test
+    void search_FiltersInDatabase() {
+        List<Room> rooms = roomRepository.findAll(
+                RoomSpecifications.search(1L, true, "1_", 1, 2),
+                Sort.by("id"));
+
+        // "_" ищется буквально, а не как шаблон LIKE: номера 100..115 его не содержат
+        assertTrue(rooms.isEmpty());
+        assertEquals(List.of("104", "106", "108", "110"), roomRepository.findAll(
+                RoomSpecifications.search(1L, true, "1", 1, 2), Sort.by("id"))
+                .stream().map(Room::getNumber).toList());
+    }
+
+    @Test
+    void search_WithRoomIds_ReplacesNumberLike() {
+        List<Long> ids = roomRepository.findAll(RoomSpecifications.search(1L, true, "1", null, 1, 2), Sort.by("id"))
+                .stream().map(Room::getId).limit(2).toList();
+
+        // Образец не проверяется повторно: id уже найдены по нему индексом в памяти
+        List<Room> rooms = roomRepository.findAll(
+                RoomSpecifications.search(1L, true, "no-such-number", ids, 1, 2), Sort.by("id"));
+
+        assertEquals(ids, rooms.stream().map(Room::getId).toList());
+    }
+
+    @Test
+    void search_ScrollsKeysetPagesInSortOrder() {
+        Sort order = Sort.by(Sort.Order.desc("timesBooked"), Sort.Order.asc("id"));
+        Specification<Room> filter = RoomSpecifications.search(null, true, null, 0, 1000);
+        List<String> expected = roomRepository.findAll(filter, order).stream().map(Room::getNumber).toList();
+
+        List<String> scrolled = new ArrayList<>();
+        ScrollPosition position = ScrollPosition.keyset();
+        Window<Room> page;
+        do {
+            ScrollPosition from = position;
+            page = roomRepository.findBy(filter, query -> query.sortBy(order).limit(5).scroll(from));
+            assertTrue(page.size() <= 5);
+            page.forEach(room -> scrolled.add(room.getNumber()));
+            if (!page.isEmpty()) {
+                position = page.positionAt(page.size() - 1);
+            }
+        } while (page.hasNext());
+
+        assertEquals(expected, scrolled);
+        assertEquals(ALLOCATORS * 2, scrolled.size());
+    }
+
+    @Test
+    void findByAvailableTrue_WithKeyset_PagesByIdWithoutGaps() {
+        tx.executeWithoutResult(status -> roomRepository.findAll().stream()
+                .filter(room -> room.getNumber().equals("103"))
+                .forEach(room -> {
+                    room.setAvailable(false);
+                    roomRepository.save(room);
+                }));
+
+        List<String> numbers = new ArrayList<>();
+        ScrollPosition position = ScrollPosition.keyset();
+        Window<Room> page;
+        do {
+            page = roomRepository.findByAvailableTrue(position, Sort.by("id"), Limit.of(4));
+            page.forEach(room -> numbers.add(room.getNumber()));
+            position = page.isEmpty() ? position : page.positionAt(page.size() - 1);
+        } while (page.hasNext());
+
+        assertEquals(ALLOCATORS * 2 - 1, numbers.size());
+        assertFalse(numbers.contains("103"));
+        assertEquals(numbers.stream().sorted().toList(), numbers);
+    }
+
+    @Test
+    void streamAvailableRooms_ReadsAllAvailableRoomsInIdOrder() {
+        List<Long> streamed = tx.execute(status -> {
+            try (Stream<Room> rooms = roomRepository.streamAvailableRooms()) {
+                return rooms.map(Room::getId).toList();
+            }
+        });
+
+        assertEquals(roomRepository.findByAvailableTrue().stream().map(Room::getId).sorted().toList(), streamed);
+    }
+
+    /**
+     * Сравнение с прежним N+1 (count + countByAvailableFalse + findAll отелей + findByHotelId на каждый):
+     * число запросов агрегата не зависит от числа отелей.
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {10, 100, 300})
+    void countOccupancyByHotel_RunsSingleStatementAsHotelsGrow(int hotelCount) {
+        List<Hotel> hotels = hotelRepository.saveAll(IntStream.range(0, hotelCount)
+                .mapToObj(i -> Hotel.builder().name("Hotel " + i).address("Street " + i).build())
+                .toList());
+        roomRepository.saveAll(hotels.stream()
+                .flatMap(hotel -> IntStream.range(0, 4).mapToObj(i -> Room.builder()
+                        .hotelId(hotel.getId()).number(String.valueOf(i)).available(i % 2 == 0).build()))
+                .toList());
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        statistics.clear();
+        long start = System.nanoTime();
+        tx.executeWithoutResult(status -> {
+            roomRepository.count();
+            roomRepository.countByAvailableFalse();
+            hotelRepository.findAll().forEach(hotel -> roomRepository.findByHotelId(hotel.getId()).size());
+        });
+        long legacyNanos = System.nanoTime() - start;
+        long legacyStatements = statistics.getPrepareStatementCount();
+
+        statistics.clear();
+        start = System.nanoTime();
+        List<HotelOccupancy> byHotel = tx.execute(status -> roomRepository.countOccupancyByHotel());
+        long aggregateNanos = System.nanoTime() - start;
+        long aggregateStatements = statistics.getPrepareStatementCount();
+
+        log.info("hotels={} legacy: {} statements, {} ms; aggregate: {} statements, {} ms",
+                hotelCount, legacyStatements, legacyNanos / 1_000_000,
+                aggregateStatements, aggregateNanos / 1_000_000);
+        assertEquals(hotelCount, byHotel.size());
+        assertEquals(hotelCount + 3, legacyStatements);
+        assertEquals(1, aggregateStatements);
+    }
+
+    /**
+     * Каждый поток держит свою блокировку, пока все остальные не получат свою:
+     * если бы хоть один ждал чужую строку, барьер не был бы пройден.
+     */
+    @Test
+    void lockNextAvailableRoom_ParallelAllocatorsGetDistinctRoomsWithoutWaiting() throws Exception {
+        CyclicBarrier allLocked = new CyclicBarrier(ALLOCATORS);
+        ExecutorService pool = Executors.newFixedThreadPool(ALLOCATORS);
+        List<Future<Long>> results = new ArrayList<>();
+        for (int i = 0; i < ALLOCATORS; i++) {
+            results.add(pool.submit(() -> tx.execute(status -> {
+                Room room = roomRepository.lockNextAvailableRoom(null).orElseThrow();
+                try {
+                    allLocked.await(5, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    throw new IllegalStateException("Allocator was blocked by another transaction", e);
+                }
+                return room.getId();
+            })));
+        }
+        pool.shutdown();
+
+        Set<Long> ids = new HashSet<>();
+        for (Future<Long> result : results) {
+            ids.add(result.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(ALLOCATORS, ids.size());
+    }
+}
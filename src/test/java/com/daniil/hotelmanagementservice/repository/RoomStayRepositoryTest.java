@@ -0,0 +1,92 @@
+package com.daniil.hotelmanagementservice.repository;
+
+import com.daniil.hotelmanagementservice.entity.Room;
+import com.daniil.hotelmanagementservice.entity.RoomStay;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+class RoomStayRepositoryTest {
+
+    private static final LocalDate MARCH_1 = LocalDate.of(2026, 3, 1);
+
+    @Autowired
+    private RoomRepository roomRepository;
+
+    @Autowired
+    private RoomStayRepository stayRepository;
+
+    private Room busy;
+    private Room free;
+    private Room otherHotel;
+
+    @BeforeEach
+    void setUp() {
+        busy = roomRepository.save(Room.builder().hotelId(1L).number("101").available(true).timesBooked(0).build());
+        free = roomRepository.save(Room.builder().hotelId(1L).number("102").available(true).timesBooked(5).build());
+        roomRepository.save(Room.builder().hotelId(1L).number("103").available(false).build());
+        otherHotel = roomRepository.save(Room.builder().hotelId(2L).number("201").available(true).timesBooked(1).build());
+        stayRepository.save(RoomStay.builder().roomId(busy.getId()).hotelId(1L)
+                .checkIn(MARCH_1).checkOut(MARCH_1.plusDays(3)).owner("booking-1")
+                .holdExpiresAt(Instant.now().plusSeconds(600)).build());
+    }
+
+    @Test
+    void existsOverlapping_TreatsRangesAsHalfOpen() {
+        assertTrue(stayRepository.existsOverlapping(busy.getId(), MARCH_1.plusDays(2), MARCH_1.plusDays(5)));
+        assertTrue(stayRepository.existsOverlapping(busy.getId(), MARCH_1.minusDays(1), MARCH_1.plusDays(4)));
+        assertFalse(stayRepository.existsOverlapping(busy.getId(), MARCH_1.plusDays(3), MARCH_1.plusDays(5)));
+        assertFalse(stayRepository.existsOverlapping(busy.getId(), MARCH_1.minusDays(2), MARCH_1));
+    }
+
+    @Test
+    void findFreeRoomIds_SkipsBusyAndUnavailableRoomsOfHotel() {
+        List<Long> overlapping = stayRepository.findFreeRoomIds(1L, MARCH_1.plusDays(1), MARCH_1.plusDays(2), Limit.unlimited());
+        List<Long> later = stayRepository.findFreeRoomIds(1L, MARCH_1.plusDays(3), MARCH_1.plusDays(4), Limit.unlimited());
+        List<Long> first = stayRepository.findFreeRoomIds(1L, MARCH_1.plusDays(3), MARCH_1.plusDays(4), Limit.of(1));
+        List<Long> anyHotel = stayRepository.findFreeRoomIds(MARCH_1, MARCH_1.plusDays(1), Limit.unlimited());
+
+        assertEquals(List.of(free.getId()), overlapping);
+        assertEquals(List.of(busy.getId(), free.getId()), later);
+        assertEquals(List.of(busy.getId()), first);
+        assertEquals(List.of(otherHotel.getId(), free.getId()), anyHotel);
+    }
+
+    @Test
+    void confirmHold_And_DeleteStay_RequireOwnerAndExactDates() {
+        int foreign = stayRepository.confirmHold(busy.getId(), MARCH_1, MARCH_1.plusDays(3), "booking-2");
+        int otherDates = stayRepository.confirmHold(busy.getId(), MARCH_1, MARCH_1.plusDays(2), "booking-1");
+        int confirmed = stayRepository.confirmHold(busy.getId(), MARCH_1, MARCH_1.plusDays(3), "booking-1");
+        int again = stayRepository.confirmHold(busy.getId(), MARCH_1, MARCH_1.plusDays(3), "booking-1");
+
+        assertEquals(List.of(0, 0, 1, 0), List.of(foreign, otherDates, confirmed, again));
+        // подтверждённый интервал больше не удерживается до срока и не попадает к LeaseReaper
+        assertTrue(stayRepository.findAndLockExpiredHolds(Instant.now().plusSeconds(3600), PageRequest.of(0, 10)).isEmpty());
+        assertEquals(1, stayRepository.deleteStay(busy.getId(), MARCH_1, MARCH_1.plusDays(3), "booking-1"));
+        assertFalse(stayRepository.existsOverlapping(busy.getId(), MARCH_1, MARCH_1.plusDays(3)));
+    }
+
+    @Test
+    void deleteExpiredHolds_RemovesOnlyUnconfirmedExpiredHolds() {
+        Instant now = Instant.now();
+        RoomStay expired = stayRepository.save(RoomStay.builder().roomId(free.getId()).hotelId(1L)
+                .checkIn(MARCH_1).checkOut(MARCH_1.plusDays(1)).holdExpiresAt(now.minusSeconds(1)).build());
+
+        List<RoomStay> found = stayRepository.findAndLockExpiredHolds(now, PageRequest.of(0, 10));
+        int deleted = stayRepository.deleteExpiredHolds(found.stream().map(RoomStay::getId).toList(), now);
+
+        assertEquals(List.of(expired.getId()), found.stream().map(RoomStay::getId).toList());
+        assertEquals(1, deleted);
+        assertEquals(1, stayRepository.count());
+    }
+}
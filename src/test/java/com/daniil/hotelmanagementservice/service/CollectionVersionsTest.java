@@ -0,0 +1,115 @@
+package com.daniil.hotelmanagementservice.service;
+
+import com.daniil.hotelmanagementservice.repository.HotelRepository;
+import com.daniil.hotelmanagementservice.repository.RoomRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CollectionVersionsTest {
+
+    @Mock
+    private HotelRepository hotelRepository;
+
+    @Mock
+    private RoomRepository roomRepository;
+
+    @InjectMocks
+    private CollectionVersions versions;
+
+    @Test
+    void eTags_ChangeOnlyForTheChangedCollection() {
+        // Arrange
+        when(hotelRepository.contentStamp()).thenReturn("2-7");
+        when(roomRepository.contentStamp()).thenReturn("10-3", "10-4");
+        String hotels = versions.hotelsETag();
+        String rooms = versions.roomsETag();
+
+        // Act
+        versions.roomsChanged();
+
+        // Assert
+        assertEquals(hotels, versions.hotelsETag());
+        assertNotEquals(rooms, versions.roomsETag());
+        verify(hotelRepository, times(1)).contentStamp();
+    }
+
+    @Test
+    void eTag_WithoutChanges_IsNotReloaded() {
+        // Arrange
+        when(roomRepository.contentStamp()).thenReturn("10-3");
+
+        // Act
+        String first = versions.roomsETag();
+        String second = versions.roomsETag();
+
+        // Assert
+        assertEquals(first, second);
+        verify(roomRepository, times(1)).contentStamp();
+    }
+
+    @Test
+    void eTags_SameDataOnAnotherInstance_AreEqual() {
+        // Arrange
+        when(roomRepository.contentStamp()).thenReturn("10-3");
+        CollectionVersions other = new CollectionVersions(hotelRepository, roomRepository);
+
+        // Act & Assert
+        assertEquals(versions.roomsETag(), other.roomsETag());
+    }
+
+    @Test
+    void refresh_UnchangedData_KeepsETags() {
+        // Arrange
+        when(hotelRepository.contentStamp()).thenReturn("2-7");
+        when(roomRepository.contentStamp()).thenReturn("10-3");
+        String hotels = versions.hotelsETag();
+        String rooms = versions.roomsETag();
+
+        // Act
+        versions.refresh();
+
+        // Assert
+        assertEquals(hotels, versions.hotelsETag());
+        assertEquals(rooms, versions.roomsETag());
+    }
+
+    @Test
+    void refresh_DataChangedElsewhere_AdvancesETag() {
+        // Arrange
+        when(hotelRepository.contentStamp()).thenReturn("2-7");
+        when(roomRepository.contentStamp()).thenReturn("10-3", "11-3");
+        String rooms = versions.roomsETag();
+
+        // Act
+        versions.refresh();
+
+        // Assert
+        assertNotEquals(rooms, versions.roomsETag());
+    }
+
+    @Test
+    void eTag_LoadFails_RetriesOnNextRequest() {
+        // Arrange
+        when(roomRepository.contentStamp()).thenThrow(new IllegalStateException("db down")).thenReturn("10-3");
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, versions::roomsETag);
+        assertEquals("\"rooms-10-3\"", versions.roomsETag());
+    }
+
+    @Test
+    void eTag_IsQuotedStrongValidator() {
+        when(hotelRepository.contentStamp()).thenReturn("2-7");
+
+        String eTag = versions.hotelsETag();
+
+        assertTrue(eTag.startsWith("\"hotels-") && eTag.endsWith("\""));
+    }
+}
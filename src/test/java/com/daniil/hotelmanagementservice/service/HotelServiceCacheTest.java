@@ -0,0 +1,149 @@
+package com.daniil.hotelmanagementservice.service;
+
+import com.daniil.hotelmanagementservice.entity.Hotel;
+import com.daniil.hotelmanagementservice.repository.HotelRepository;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.cache.CacheType;
+import org.springframework.boot.test.autoconfigure.core.AutoConfigureCache;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Кэш отелей поверх реального репозитория: число SQL-запросов и статистика Caffeine
+ * (она накопительная, поэтому сравниваются разницы).
+ */
+@Slf4j
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureCache(cacheProvider = CacheType.CAFFEINE)
+@Import({HotelService.class, OccupancyCounters.class, CollectionVersions.class, HotelServiceCacheTest.CachingConfig.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class HotelServiceCacheTest {
+
+    private static final int CALLS = 2_000;
+
+    @EnableCaching
+    static class CachingConfig {
+    }
+
+    @Autowired
+    private HotelService hotelService;
+
+    @Autowired
+    private HotelRepository hotelRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        hotelRepository.saveAll(IntStream.range(0, 50)
+                .mapToObj(i -> Hotel.builder().name("Hotel " + i).address("Street " + i).build())
+                .toList());
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        hotelRepository.deleteAllInBatch();
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+    }
+
+    @Test
+    void getAllHotels_SecondCallIsServedFromCache() {
+        CacheStats before = nativeStats(HotelService.HOTELS_CACHE);
+
+        hotelService.getAllHotels();
+        hotelService.getAllHotels();
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        CacheStats stats = nativeStats(HotelService.HOTELS_CACHE).minus(before);
+        assertEquals(1, stats.hitCount());
+        assertEquals(1, stats.missCount());
+    }
+
+    @Test
+    void createHotel_InvalidatesListAndCachesNewHotel() {
+        assertEquals(50, hotelService.getAllHotels().size());
+
+        Hotel created = hotelService.createHotel(Hotel.builder().name("New").address("Square").build());
+        statistics.clear();
+
+        assertEquals(51, hotelService.getAllHotels().size());
+        assertEquals("New", hotelService.getHotel(created.getId()).orElseThrow().getName());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void importHotels_InvalidatesListAfterCommit() {
+        assertEquals(50, hotelService.getAllHotels().size());
+
+        hotelService.importHotels(Stream.of(Hotel.builder().name("Imported").address("Pier").build()));
+
+        assertEquals(51, hotelService.getAllHotels().size());
+    }
+
+    @Test
+    void getHotel_MissingHotelIsNotCached() {
+        assertTrue(hotelService.getHotel(-1L).isEmpty());
+        assertTrue(hotelService.getHotel(-1L).isEmpty());
+
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    /**
+     * Пропускная способность списка отелей без кэша (каждый вызов — findAll) и с кэшем.
+     */
+    @Test
+    void getAllHotels_ThroughputWithCacheOnAndOff() {
+        long start = System.nanoTime();
+        for (int i = 0; i < CALLS; i++) {
+            hotelRepository.findAll();
+        }
+        long uncachedNanos = System.nanoTime() - start;
+        long uncachedStatements = statistics.getPrepareStatementCount();
+
+        statistics.clear();
+        CacheStats before = nativeStats(HotelService.HOTELS_CACHE);
+        start = System.nanoTime();
+        for (int i = 0; i < CALLS; i++) {
+            hotelService.getAllHotels();
+        }
+        long cachedNanos = System.nanoTime() - start;
+        long cachedStatements = statistics.getPrepareStatementCount();
+
+        log.info("getAllHotels x{}: cache off {} ops/s ({} statements), cache on {} ops/s ({} statements)",
+                CALLS, CALLS * 1_000_000_000L / uncachedNanos, uncachedStatements,
+                CALLS * 1_000_000_000L / cachedNanos, cachedStatements);
+        assertEquals(CALLS, uncachedStatements);
+        assertEquals(1, cachedStatements);
+        assertEquals(CALLS - 1, nativeStats(HotelService.HOTELS_CACHE).minus(before).hitCount());
+    }
+
+    private CacheStats nativeStats(String cacheName) {
+        return ((CaffeineCache) cacheManager.getCache(cacheName)).getNativeCache().stats();
+    }
+}
@@ -4,15 +4,22 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import com.daniil.hotelmanagementservice.entity.Hotel;
 import com.daniil.hotelmanagementservice.repository.HotelRepository;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -24,6 +31,21 @@ class HotelServiceTest {
     @Mock
     private HotelRepository hotelRepository;
 
+    @Mock
+    private OccupancyCounters occupancyCounters;
+
+    @Mock
+    private CollectionVersions collectionVersions;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private CacheManager cacheManager;
+
+    @Mock
+    private Cache hotelsCache;
+
     @InjectMocks
     private HotelService hotelService;
 
@@ -72,6 +94,18 @@ class HotelServiceTest {
         verify(hotelRepository, times(1)).findAll();
     }
 
+    @Test
+    void getHotel_WhenExists_ReturnsHotel() {
+        // Arrange
+        when(hotelRepository.findById(1L)).thenReturn(Optional.of(testHotel1));
+
+        // Act
+        Optional<Hotel> hotel = hotelService.getHotel(1L);
+
+        // Assert
+        assertEquals(Optional.of(testHotel1), hotel);
+    }
+
     @Test
     void createHotel_WithValidHotel_ReturnsSavedHotel() {
         // Arrange
@@ -89,6 +123,7 @@ class HotelServiceTest {
         assertEquals("New Hotel", savedHotel.getName());
         assertEquals("789 Park Blvd", savedHotel.getAddress());
         verify(hotelRepository, times(1)).save(newHotel);
+        verify(collectionVersions).hotelsChanged();
     }
 
     @Test
@@ -150,4 +185,42 @@ class HotelServiceTest {
         verify(hotelRepository, times(1)).findAll();
         verifyNoMoreInteractions(hotelRepository);
     }
-}
\ No newline at end of file
+
+    @Test
+    void importHotels_PersistsInChunksAndRegistersHotels() {
+        // Arrange
+        Stream<Hotel> hotels = Stream.of(testHotel1, testHotel2);
+        when(cacheManager.getCache(HotelService.HOTELS_CACHE)).thenReturn(hotelsCache);
+
+        // Act
+        List<Hotel> imported = hotelService.importHotels(hotels);
+
+        // Assert
+        assertEquals(List.of(testHotel1, testHotel2), imported);
+        assertNull(testHotel1.getId());
+        verify(entityManager, times(2)).persist(any(Hotel.class));
+        verify(entityManager).flush();
+        verify(occupancyCounters).hotelCreated(testHotel1);
+        verify(occupancyCounters).hotelCreated(testHotel2);
+        verify(collectionVersions).hotelsChanged();
+        verify(hotelsCache).clear();
+    }
+
+    @Test
+    void importHotels_InTransaction_EvictsHotelListOnlyAfterCommit() {
+        // Arrange
+        when(cacheManager.getCache(HotelService.HOTELS_CACHE)).thenReturn(hotelsCache);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // Act
+            hotelService.importHotels(Stream.of(testHotel1));
+            verifyNoInteractions(hotelsCache);
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+            // Assert
+            verify(hotelsCache).clear();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+}
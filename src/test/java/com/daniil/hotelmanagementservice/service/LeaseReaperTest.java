@@ -0,0 +1,62 @@
+package com.daniil.hotelmanagementservice.service;
+
+import com.daniil.hotelmanagementservice.config.LeaseProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LeaseReaperTest {
+
+    @Mock
+    private RoomService roomService;
+
+    @Spy
+    private LeaseProperties leaseProperties = new LeaseProperties();
+
+    @InjectMocks
+    private LeaseReaper leaseReaper;
+
+    @Test
+    void reap_RepeatsWhileBatchesAreFull() {
+        // Arrange
+        leaseProperties.setReaperBatchSize(100);
+        when(roomService.reclaimExpiredLeases(100)).thenReturn(100, 100, 7);
+
+        // Act
+        leaseReaper.reap();
+
+        // Assert
+        verify(roomService, times(3)).reclaimExpiredLeases(100);
+    }
+
+    @Test
+    void reap_WhenNothingExpired_RunsSingleQuery() {
+        // Arrange
+        when(roomService.reclaimExpiredLeases(anyInt())).thenReturn(0);
+
+        // Act
+        leaseReaper.reap();
+
+        // Assert
+        verify(roomService, times(1)).reclaimExpiredLeases(500);
+    }
+
+    @Test
+    void reap_AlsoReclaimsExpiredHoldsOfStays() {
+        // Arrange
+        leaseProperties.setReaperBatchSize(100);
+        when(roomService.reclaimExpiredHolds(100)).thenReturn(100, 3);
+
+        // Act
+        leaseReaper.reap();
+
+        // Assert
+        verify(roomService, times(2)).reclaimExpiredHolds(100);
+    }
+}
@@ -0,0 +1,108 @@
+package com.daniil.hotelmanagementservice.service;
+
+import com.daniil.hotelmanagementservice.dto.HotelOccupancy;
+import com.daniil.hotelmanagementservice.dto.OccupancyStats;
+import com.daniil.hotelmanagementservice.entity.Hotel;
+import com.daniil.hotelmanagementservice.entity.Room;
+import com.daniil.hotelmanagementservice.repository.RoomRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OccupancyCountersTest {
+
+    @Mock
+    private RoomRepository roomRepository;
+
+    @InjectMocks
+    private OccupancyCounters occupancyCounters;
+
+    @BeforeEach
+    void setUp() {
+        when(roomRepository.countOccupancyByHotel()).thenReturn(List.of(
+                new HotelOccupancy(2L, "Empty Hotel", 4L, 0L, 0L),
+                new HotelOccupancy(1L, "Test Hotel", 6L, 4L, 1L)));
+        occupancyCounters.rebuild();
+    }
+
+    @Test
+    void snapshot_AfterRebuild_MatchesAggregateSortedByHotel() {
+        // Act
+        OccupancyStats stats = occupancyCounters.snapshot();
+
+        // Assert
+        assertEquals(10L, stats.totalRooms());
+        assertEquals(6L, stats.availableRooms());
+        assertEquals(4L, stats.occupiedRooms());
+        assertEquals(1L, stats.tempLockedRooms());
+        assertEquals(40.0, stats.occupancyRate(), 1e-9);
+        assertEquals(List.of(1L, 2L), stats.byHotel().stream().map(HotelOccupancy::hotelId).toList());
+    }
+
+    @Test
+    void snapshot_DoesNotQueryDatabase() {
+        // Act
+        occupancyCounters.snapshot();
+        occupancyCounters.snapshot();
+
+        // Assert
+        verify(roomRepository, times(1)).countOccupancyByHotel();
+    }
+
+    @Test
+    void mutations_UpdateCountersIncrementally() {
+        // Arrange
+        Hotel hotel = Hotel.builder().id(3L).name("New Hotel").build();
+
+        // Act
+        occupancyCounters.hotelCreated(hotel);
+        occupancyCounters.roomCreated(Room.builder().id(10L).hotelId(3L).available(true).build());
+        occupancyCounters.roomCreated(Room.builder().id(11L).hotelId(3L).available(false).build());
+        occupancyCounters.roomsLocked(3L, 1);
+        occupancyCounters.roomsLocked(1L, 2);
+        occupancyCounters.roomsUnlocked(1L, 3);
+
+        // Assert
+        OccupancyStats stats = occupancyCounters.snapshot();
+        HotelOccupancy created = stats.byHotel().get(2);
+        assertEquals(new HotelOccupancy(3L, "New Hotel", 2L, 1L, 1L), created);
+        assertEquals(0L, stats.byHotel().get(0).tempLocked());
+        assertEquals(12L, stats.totalRooms());
+        assertEquals(5L, stats.occupiedRooms());
+    }
+
+    @Test
+    void roomCreated_WithoutHotel_IsNotCounted() {
+        // Act
+        occupancyCounters.roomCreated(Room.builder().id(10L).available(false).build());
+
+        // Assert
+        assertEquals(10L, occupancyCounters.snapshot().totalRooms());
+    }
+
+    @Test
+    void rebuild_ReplacesDriftedCounters() {
+        // Arrange
+        occupancyCounters.roomsLocked(1L, 5);
+        when(roomRepository.countOccupancyByHotel()).thenReturn(List.of(
+                new HotelOccupancy(1L, "Test Hotel", 0L, 0L, 0L)));
+
+        // Act
+        occupancyCounters.rebuild();
+
+        // Assert
+        OccupancyStats stats = occupancyCounters.snapshot();
+        assertEquals(1, stats.byHotel().size());
+        assertEquals(0L, stats.tempLockedRooms());
+        assertEquals(0.0, stats.occupancyRate());
+    }
+}
@@ -0,0 +1,83 @@
+package com.daniil.hotelmanagementservice.service;
+
+import com.daniil.hotelmanagementservice.entity.Room;
+import com.daniil.hotelmanagementservice.dto.HotelOccupancy;
+import com.daniil.hotelmanagementservice.repository.RoomRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OccupancyGaugesTest {
+
+    @Mock
+    private RoomRepository roomRepository;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private OccupancyCounters occupancyCounters;
+
+    private OccupancyGauges occupancyGauges;
+
+    @BeforeEach
+    void setUp() {
+        when(roomRepository.countOccupancyByHotel()).thenReturn(List.of(
+                new HotelOccupancy(1L, "Test Hotel", 6L, 4L, 1L)));
+        occupancyCounters = new OccupancyCounters(roomRepository);
+        occupancyCounters.rebuild();
+        occupancyGauges = new OccupancyGauges(occupancyCounters, registry);
+    }
+
+    @Test
+    void refresh_RegistersStatesPerHotel() {
+        // Act
+        occupancyGauges.refresh();
+
+        // Assert
+        assertEquals(1.0, gauge("1", "free"));
+        assertEquals(1.0, gauge("1", "temp_locked"));
+        assertEquals(4.0, gauge("1", "occupied"));
+    }
+
+    @Test
+    void gauges_ReadLiveCountersWithoutRefresh() {
+        // Arrange
+        occupancyGauges.refresh();
+
+        // Act
+        occupancyCounters.roomsLocked(1L, 1);
+
+        // Assert
+        assertEquals(0.0, gauge("1", "free"));
+        assertEquals(2.0, gauge("1", "temp_locked"));
+    }
+
+    @Test
+    void refresh_PicksUpNewHotels() {
+        // Arrange
+        occupancyGauges.refresh();
+        occupancyCounters.roomCreated(Room.builder().id(10L).hotelId(2L).available(true).build());
+
+        // Act
+        occupancyGauges.refresh();
+
+        // Assert
+        assertEquals(1.0, gauge("2", "free"));
+        assertEquals(6, registry.find("hotel.rooms").gauges().size());
+    }
+
+    private double gauge(String hotel, String state) {
+        Gauge gauge = registry.find("hotel.rooms").tag("hotel", hotel).tag("state", state).gauge();
+        assertNotNull(gauge, hotel + "/" + state);
+        return gauge.value();
+    }
+}
@@ -0,0 +1,176 @@
+package com.daniil.hotelmanagementservice.service;
+
+import com.daniil.hotelmanagementservice.config.LeaseProperties;
+import com.daniil.hotelmanagementservice.entity.Room;
+import com.daniil.hotelmanagementservice.repository.ReactiveRoomRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveRoomServiceTest {
+
+    @Mock
+    private ReactiveRoomRepository roomRepository;
+
+    @Mock
+    private TransactionalOperator transactionalOperator;
+
+    @Spy
+    private LeaseProperties leaseProperties = new LeaseProperties();
+
+    @Mock
+    private LeaseMetrics leaseMetrics;
+
+    @Mock
+    private OccupancyCounters occupancyCounters;
+
+    @Mock
+    private CollectionVersions collectionVersions;
+
+    @Mock
+    private RoomFacetIndex facetIndex;
+
+    @Mock
+    private RoomNumberIndex numberIndex;
+
+    @Mock
+    private RoomService roomService;
+
+    @InjectMocks
+    private ReactiveRoomService reactiveRoomService;
+
+    private static Room room(long id, String owner) {
+        return Room.builder().id(id).hotelId(1L).number("10" + id).available(true)
+                .tempLocked(owner != null).leaseOwner(owner).build();
+    }
+
+    private void inTransaction() {
+        when(transactionalOperator.transactional(ArgumentMatchers.<Mono<Object>>any())).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    void allocateRoom_SkipsCandidatesTakenByOthers() {
+        // Arrange
+        when(roomRepository.findAllocationCandidates(null, ReactiveRoomService.CANDIDATE_BATCH))
+                .thenReturn(Flux.just(room(1L, null), room(2L, null)));
+        when(roomRepository.markTempLocked(eq(List.of(1L)), any(), eq("booking-1"))).thenReturn(Mono.just(0L));
+        when(roomRepository.markTempLocked(eq(List.of(2L)), any(), eq("booking-1"))).thenReturn(Mono.just(1L));
+
+        // Act & Assert
+        StepVerifier.create(reactiveRoomService.allocateRoom(null, "booking-1"))
+                .expectNextMatches(room -> room.getId() == 2L && room.isTempLocked() && "booking-1".equals(room.getLeaseOwner()))
+                .verifyComplete();
+        verify(occupancyCounters).roomsLocked(1L, 1);
+        verify(facetIndex).locked(List.of(2L));
+        verify(collectionVersions).roomsChanged();
+    }
+
+    @Test
+    void allocateRoom_AllCandidatesLost_ReadsNextBatch() {
+        // Arrange
+        when(roomRepository.findAllocationCandidates(5L, ReactiveRoomService.CANDIDATE_BATCH))
+                .thenReturn(Flux.just(room(1L, null)), Flux.just(room(3L, null)));
+        when(roomRepository.markTempLocked(eq(List.of(1L)), any(), any())).thenReturn(Mono.just(0L));
+        when(roomRepository.markTempLocked(eq(List.of(3L)), any(), any())).thenReturn(Mono.just(1L));
+
+        // Act & Assert
+        StepVerifier.create(reactiveRoomService.allocateRoom(5L, null))
+                .expectNextMatches(room -> room.getId() == 3L)
+                .verifyComplete();
+        verify(leaseMetrics, times(1)).created(1);
+        verify(occupancyCounters, times(1)).roomsLocked(1L, 1);
+        verify(collectionVersions, times(1)).roomsChanged();
+    }
+
+    @Test
+    void allocateRoom_NoCandidates_ReturnsEmpty() {
+        // Arrange
+        when(roomRepository.findAllocationCandidates(null, ReactiveRoomService.CANDIDATE_BATCH)).thenReturn(Flux.empty());
+
+        // Act & Assert
+        StepVerifier.create(reactiveRoomService.allocateRoom(null, null)).verifyComplete();
+        verify(roomRepository, never()).markTempLocked(any(), any(), any());
+        verifyNoInteractions(occupancyCounters);
+    }
+
+    @Test
+    void allocateRooms_NotEnoughRooms_LocksNothing() {
+        // Arrange
+        inTransaction();
+        when(roomRepository.findAndLockAllocationCandidates(null, 3)).thenReturn(Flux.just(room(1L, null), room(2L, null)));
+
+        // Act & Assert
+        StepVerifier.create(reactiveRoomService.allocateRooms(3, null, null))
+                .expectNext(List.of())
+                .verifyComplete();
+        verify(roomRepository, never()).markTempLocked(any(), any(), any());
+        verifyNoInteractions(occupancyCounters);
+    }
+
+    @Test
+    void allocateRooms_InvalidCount_Errors() {
+        StepVerifier.create(reactiveRoomService.allocateRooms(0, null, null))
+                .verifyError(IllegalArgumentException.class);
+        StepVerifier.create(reactiveRoomService.allocateRooms(Integer.MAX_VALUE, null, null))
+                .verifyError(IllegalArgumentException.class);
+        verifyNoInteractions(roomRepository);
+    }
+
+    @Test
+    void confirmBookings_OnlyOwnedRoomsAreConfirmed() {
+        // Arrange
+        inTransaction();
+        when(roomRepository.findAndLockAllById(List.of(1L, 2L)))
+                .thenReturn(Flux.just(room(1L, "booking-1"), room(2L, "booking-2")));
+        when(roomRepository.confirmAll(List.of(1L))).thenReturn(Mono.just(1L));
+
+        // Act & Assert
+        StepVerifier.create(reactiveRoomService.confirmBookings(List.of(1L, 2L), "booking-1")).verifyComplete();
+        verify(leaseMetrics).confirmed(1);
+        verify(occupancyCounters).roomsUnlocked(1L, 1);
+        verify(facetIndex).unlocked(List.of(1L));
+    }
+
+    @Test
+    void releaseRoom_LeasedByAnotherOwner_IsIgnored() {
+        // Arrange
+        inTransaction();
+        when(roomRepository.findAndLockAllById(List.of(1L))).thenReturn(Flux.just(room(1L, "booking-2")));
+
+        // Act & Assert
+        StepVerifier.create(reactiveRoomService.releaseRoom(1L, "booking-1")).verifyComplete();
+        verify(roomRepository, never()).releaseAll(any());
+        verify(occupancyCounters, never()).roomsUnlocked(any(), anyInt());
+    }
+
+    @Test
+    void createRoom_AddsRoomToInMemoryStructures() {
+        // Arrange
+        Room saved = room(5L, null);
+        when(roomRepository.insert(saved)).thenReturn(Mono.just(saved));
+
+        // Act & Assert
+        StepVerifier.create(reactiveRoomService.createRoom(saved)).expectNext(saved).verifyComplete();
+        InOrder order = inOrder(numberIndex, roomService);
+        order.verify(numberIndex).roomsPending();
+        order.verify(roomService).roomAdded(saved);
+        order.verify(numberIndex).roomsSettled();
+    }
+}
@@ -0,0 +1,191 @@
+package com.daniil.hotelmanagementservice.service;
+
+import com.daniil.hotelmanagementservice.config.AllocationProperties;
+import com.daniil.hotelmanagementservice.entity.Room;
+import com.daniil.hotelmanagementservice.repository.RoomRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RoomAllocationEngineTest {
+
+    @Mock
+    private RoomRepository roomRepository;
+
+    @Spy
+    private AllocationProperties allocationProperties = new AllocationProperties();
+
+    @InjectMocks
+    private RoomAllocationEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        when(roomRepository.findByAvailableTrueAndTempLockedFalse()).thenReturn(List.of(
+                room(1L, 3),
+                room(2L, 0),
+                room(3L, 0),
+                room(4L, 1)
+        ));
+        engine.rebuild();
+    }
+
+    private static Room room(Long id, int timesBooked) {
+        return room(id, 1L, timesBooked);
+    }
+
+    private static Room room(Long id, Long hotelId, int timesBooked) {
+        return Room.builder().id(id).hotelId(hotelId).number(String.valueOf(id))
+                .available(true).tempLocked(false).timesBooked(timesBooked).build();
+    }
+
+    @Test
+    void claim_ReturnsRoomsOrderedByTimesBookedThenId() {
+        assertEquals(2L, engine.claim(null).getAsLong());
+        assertEquals(3L, engine.claim(null).getAsLong());
+        assertEquals(4L, engine.claim(null).getAsLong());
+        assertEquals(1L, engine.claim(null).getAsLong());
+        assertTrue(engine.claim(null).isEmpty());
+    }
+
+    @Test
+    void release_ReoffersRoomWithNewTimesBooked() {
+        long first = engine.claim(null).getAsLong();
+
+        engine.release(first, 1L, 5);
+
+        assertEquals(List.of(3L, 4L, 1L, 2L), List.of(
+                engine.claim(null).getAsLong(),
+                engine.claim(null).getAsLong(),
+                engine.claim(null).getAsLong(),
+                engine.claim(null).getAsLong()));
+    }
+
+    @Test
+    void cancelClaim_ReturnsRoomToItsPreviousPosition() {
+        long first = engine.claim(null).getAsLong();
+
+        engine.cancelClaim(first);
+
+        assertEquals(first, engine.claim(null).getAsLong());
+    }
+
+    @Test
+    void evict_RemovesFreeRoomUntilReleased() {
+        engine.evict(2L);
+
+        assertEquals(3, engine.freeCount());
+        assertEquals(3L, engine.claim(null).getAsLong());
+
+        engine.release(2L, 1L, 0);
+        assertEquals(2L, engine.claim(null).getAsLong());
+    }
+
+    @Test
+    void rebuild_DropsRoomsLockedElsewhere() {
+        when(roomRepository.findByAvailableTrueAndTempLockedFalse()).thenReturn(List.of(room(1L, 3)));
+
+        engine.rebuild();
+
+        assertEquals(1L, engine.claim(null).getAsLong());
+        assertTrue(engine.claim(null).isEmpty());
+    }
+
+    @Test
+    void rebuild_KeepsRoomsFreedWhileReadingDatabase() {
+        // Arrange
+        long claimed = engine.claim(null).getAsLong();
+        when(roomRepository.findByAvailableTrueAndTempLockedFalse()).thenAnswer(invocation -> {
+            // снимок прочитан до того, как номер создали и освободили
+            engine.release(9L, 1L, 0);
+            engine.release(claimed, 1L, 1);
+            return List.of(room(1L, 3), room(3L, 0), room(4L, 1));
+        });
+
+        // Act
+        engine.rebuild();
+
+        // Assert
+        assertEquals(List.of(3L, 9L, claimed, 4L, 1L), List.of(
+                engine.claim(null).getAsLong(),
+                engine.claim(null).getAsLong(),
+                engine.claim(null).getAsLong(),
+                engine.claim(null).getAsLong(),
+                engine.claim(null).getAsLong()));
+    }
+
+    @Test
+    void claim_WithHotelId_ClaimsOnlyFromThatHotel() {
+        when(roomRepository.findByAvailableTrueAndTempLockedFalse()).thenReturn(List.of(
+                room(11L, 1L, 0),
+                room(12L, 2L, 5),
+                room(13L, 2L, 1)
+        ));
+        engine.rebuild();
+
+        assertEquals(13L, engine.claim(2L).getAsLong());
+        assertEquals(12L, engine.claim(2L).getAsLong());
+        assertTrue(engine.claim(2L).isEmpty());
+        assertTrue(engine.claim(99L).isEmpty());
+        assertEquals(1, engine.freeCount(1L));
+    }
+
+    @Test
+    void claim_WithoutHotelId_PicksLeastBookedAcrossHotels() {
+        when(roomRepository.findByAvailableTrueAndTempLockedFalse()).thenReturn(List.of(
+                room(11L, 1L, 2),
+                room(12L, 2L, 0),
+                room(13L, 3L, 1)
+        ));
+        engine.rebuild();
+
+        assertEquals(12L, engine.claim(null).getAsLong());
+        assertEquals(13L, engine.claim(null).getAsLong());
+        assertEquals(11L, engine.claim(null).getAsLong());
+    }
+
+    @Test
+    void claim_UnderContention_NeverHandsOutTheSameRoomTwice() throws Exception {
+        List<Room> rooms = IntStream.rangeClosed(1, 1000).mapToObj(i -> room(100L + i, (long) (i % 10), i % 7)).toList();
+        when(roomRepository.findByAvailableTrueAndTempLockedFalse()).thenReturn(rooms);
+        engine.rebuild();
+
+        Set<Long> claimed = ConcurrentHashMap.newKeySet();
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < 16; t++) {
+            // половина потоков берёт из своего отеля, половина — из любого
+            Long hotelId = t % 2 == 0 ? (long) (t % 10) : null;
+            pool.submit(() -> {
+                start.await();
+                OptionalLong id;
+                while ((id = engine.claim(hotelId)).isPresent() || (id = engine.claim(null)).isPresent()) {
+                    assertTrue(claimed.add(id.getAsLong()));
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(1000, claimed.size());
+    }
+}
@@ -0,0 +1,232 @@
+package com.daniil.hotelmanagementservice.service;
+
+import com.daniil.hotelmanagementservice.config.CalendarProperties;
+import com.daniil.hotelmanagementservice.entity.Room;
+import com.daniil.hotelmanagementservice.entity.RoomStay;
+import com.daniil.hotelmanagementservice.repository.RoomRepository;
+import com.daniil.hotelmanagementservice.repository.RoomStayRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RoomCalendarTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2026, 1, 1);
+
+    @Mock
+    private RoomRepository roomRepository;
+
+    @Mock
+    private RoomStayRepository stayRepository;
+
+    @Spy
+    private CalendarProperties calendarProperties = new CalendarProperties();
+
+    @InjectMocks
+    private RoomCalendar roomCalendar;
+
+    @BeforeEach
+    void setUp() {
+        calendarProperties.setHorizonDays(365);
+        when(roomRepository.findByAvailableTrue()).thenReturn(List.of(
+                room(1L, 1L, 3),
+                room(2L, 1L, 0),
+                room(3L, 2L, 0)));
+        when(stayRepository.findByCheckOutAfter(TODAY)).thenReturn(List.of(
+                stay(1L, TODAY.plusDays(10), TODAY.plusDays(13)),
+                // ночи до origin отбрасываются
+                stay(3L, TODAY.minusDays(2), TODAY.plusDays(1))));
+        roomCalendar.rebuild(TODAY);
+    }
+
+    @Test
+    void freeRooms_ExcludesOverlappingStaysAndSortsByTimesBooked() {
+        // Act
+        List<Long> overlapping = freeRooms(1L, TODAY.plusDays(12), TODAY.plusDays(20));
+        List<Long> disjoint = freeRooms(1L, TODAY.plusDays(20), TODAY.plusDays(25));
+
+        // Assert
+        assertEquals(List.of(2L), overlapping);
+        assertEquals(List.of(2L, 1L), disjoint);
+    }
+
+    @Test
+    void freeRooms_CheckOutDayIsFreeForNextCheckIn() {
+        // Act
+        List<Long> before = freeRooms(1L, TODAY.plusDays(5), TODAY.plusDays(10));
+        List<Long> after = freeRooms(1L, TODAY.plusDays(13), TODAY.plusDays(14));
+        List<Long> hotelTwo = freeRooms(2L, TODAY, TODAY.plusDays(1));
+
+        // Assert
+        assertEquals(List.of(2L, 1L), before);
+        assertEquals(List.of(2L, 1L), after);
+        assertEquals(List.of(), hotelTwo);
+    }
+
+    @Test
+    void reserveAndFree_UpdateRangesAcrossWordBoundaries() {
+        // Arrange
+        LocalDate checkIn = TODAY.plusDays(60);
+        LocalDate checkOut = TODAY.plusDays(200);
+
+        // Act
+        roomCalendar.reserve(2L, checkIn, checkOut);
+        List<Long> reserved = freeRooms(1L, TODAY.plusDays(127), TODAY.plusDays(129));
+        roomCalendar.free(2L, checkIn, checkOut);
+        List<Long> freed = freeRooms(1L, TODAY.plusDays(127), TODAY.plusDays(129));
+
+        // Assert
+        assertEquals(List.of(1L), reserved);
+        assertEquals(List.of(2L, 1L), freed);
+    }
+
+    @Test
+    void freeRooms_WithoutHotel_SearchesAllHotels() {
+        // Act
+        List<Long> rooms = freeRooms(null, TODAY.plusDays(1), TODAY.plusDays(2));
+
+        // Assert
+        assertEquals(List.of(2L, 3L, 1L), rooms);
+    }
+
+    @Test
+    void freeRooms_HotelSpanningSeveralWords_AndsNightsPerWord() {
+        // Arrange: 3 отеля по 150 номеров — диапазоны индексов пересекают границы слов
+        List<Room> rooms = LongStream.rangeClosed(1, 450)
+                .mapToObj(id -> room(id, 1 + (id - 1) / 150, 0))
+                .toList();
+        when(roomRepository.findByAvailableTrue()).thenReturn(rooms);
+        when(stayRepository.findByCheckOutAfter(TODAY)).thenReturn(List.of(
+                stay(151L, TODAY.plusDays(1), TODAY.plusDays(2)),
+                stay(230L, TODAY.plusDays(3), TODAY.plusDays(4)),
+                stay(300L, TODAY, TODAY.plusDays(30))));
+        roomCalendar.rebuild(TODAY);
+
+        // Act
+        List<Long> free = freeRooms(2L, TODAY, TODAY.plusDays(7));
+
+        // Assert
+        assertEquals(147, free.size());
+        assertEquals(152L, free.get(0));
+        assertEquals(299L, free.get(free.size() - 1));
+        assertFalse(free.contains(230L));
+        assertEquals(150, freeRooms(1L, TODAY, TODAY.plusDays(7)).size());
+    }
+
+    @Test
+    void freeRooms_WithLimit_ReturnsFirstInPlanningOrderAcrossHotels() {
+        // Arrange: timesBooked не совпадает с порядком индексов, часть номеров занята
+        List<Room> rooms = LongStream.rangeClosed(1, 450)
+                .mapToObj(id -> room(id, 1 + (id - 1) / 150, (int) ((id * 37) % 11)))
+                .toList();
+        when(roomRepository.findByAvailableTrue()).thenReturn(rooms);
+        when(stayRepository.findByCheckOutAfter(TODAY)).thenReturn(LongStream.rangeClosed(1, 450)
+                .filter(id -> id % 3 == 0)
+                .mapToObj(id -> stay(id, TODAY, TODAY.plusDays(2)))
+                .toList());
+        roomCalendar.rebuild(TODAY);
+        List<Long> expected = rooms.stream()
+                .filter(room -> room.getId() % 3 != 0)
+                .sorted(Comparator.comparingInt(Room::getTimesBooked).thenComparing(Room::getId))
+                .map(Room::getId)
+                .toList();
+
+        // Act
+        List<Long> first = roomCalendar.freeRooms(null, TODAY, TODAY.plusDays(1), 7);
+        List<Long> all = roomCalendar.freeRooms(null, TODAY, TODAY.plusDays(1), 1000);
+
+        // Assert
+        assertEquals(expected.subList(0, 7), first);
+        assertEquals(expected, all);
+        assertEquals(List.of(), roomCalendar.freeRooms(2L, TODAY, TODAY.plusDays(1), 0));
+    }
+
+    @Test
+    void roomAdded_BeyondReservedIndexes_GrowsWithoutReadingRepository() {
+        // Arrange: после пересборки 3 номеров в запасе 64 индекса
+        List<Room> added = LongStream.rangeClosed(100, 199).mapToObj(id -> room(id, 5L, 0)).toList();
+        roomCalendar.reserve(1L, TODAY.plusDays(20), TODAY.plusDays(21));
+        roomCalendar.booked(2L);
+
+        // Act
+        added.forEach(roomCalendar::roomAdded);
+        roomCalendar.reserve(150L, TODAY, TODAY.plusDays(1));
+
+        // Assert
+        assertEquals(99, freeRooms(5L, TODAY, TODAY.plusDays(1)).size());
+        // битсеты, счётчики и диапазоны отелей перенесены в расширенный снимок
+        assertEquals(List.of(2L), freeRooms(1L, TODAY.plusDays(20), TODAY.plusDays(21)));
+        assertEquals(List.of(), freeRooms(2L, TODAY, TODAY.plusDays(1)));
+        assertEquals(List.of(2L, 1L), freeRooms(1L, TODAY.plusDays(5), TODAY.plusDays(6)));
+        verify(roomRepository, times(1)).findByAvailableTrue();
+    }
+
+    @Test
+    void rebuild_ReplaysChangesMadeWhileReadingDatabase() {
+        // Arrange
+        when(roomRepository.findByAvailableTrue()).thenAnswer(invocation -> {
+            // бронь, отмена и новый номер закоммичены после чтения из БД
+            roomCalendar.reserve(2L, TODAY.plusDays(1), TODAY.plusDays(3));
+            roomCalendar.free(1L, TODAY.plusDays(10), TODAY.plusDays(13));
+            roomCalendar.roomAdded(room(4L, 1L, 0));
+            roomCalendar.reserve(4L, TODAY.plusDays(2), TODAY.plusDays(3));
+            return List.of(room(1L, 1L, 3), room(2L, 1L, 0), room(3L, 2L, 0));
+        });
+
+        // Act
+        roomCalendar.rebuild(TODAY);
+
+        // Assert
+        assertEquals(List.of(1L), freeRooms(1L, TODAY.plusDays(2), TODAY.plusDays(3)));
+        assertEquals(List.of(2L, 4L, 1L), freeRooms(1L, TODAY.plusDays(11), TODAY.plusDays(12)));
+    }
+
+    @Test
+    void covers_OnlyRangesInsideHorizon() {
+        // Act & Assert
+        assertTrue(roomCalendar.covers(TODAY, TODAY.plusDays(365)));
+        assertFalse(roomCalendar.covers(TODAY.minusDays(1), TODAY.plusDays(1)));
+        assertFalse(roomCalendar.covers(TODAY.plusDays(300), TODAY.plusDays(366)));
+    }
+
+    @Test
+    void roomAddedAndBooked_AreVisibleWithoutRebuild() {
+        // Act
+        roomCalendar.roomAdded(room(4L, 2L, 0));
+        roomCalendar.roomAdded(Room.builder().id(5L).hotelId(2L).available(false).build());
+        roomCalendar.booked(2L);
+        roomCalendar.booked(2L);
+
+        // Assert
+        assertEquals(List.of(4L), freeRooms(2L, TODAY, TODAY.plusDays(1)));
+        assertEquals(List.of(2L, 1L), freeRooms(1L, TODAY, TODAY.plusDays(1)));
+        roomCalendar.booked(2L);
+        roomCalendar.booked(2L);
+        assertEquals(List.of(1L, 2L), freeRooms(1L, TODAY, TODAY.plusDays(1)));
+    }
+
+    private static Room room(long id, long hotelId, int timesBooked) {
+        return Room.builder().id(id).hotelId(hotelId).available(true).timesBooked(timesBooked).build();
+    }
+
+    private List<Long> freeRooms(Long hotelId, LocalDate checkIn, LocalDate checkOut) {
+        return roomCalendar.freeRooms(hotelId, checkIn, checkOut, Integer.MAX_VALUE);
+    }
+
+    private static RoomStay stay(long roomId, LocalDate checkIn, LocalDate checkOut) {
+        return RoomStay.builder().roomId(roomId).checkIn(checkIn).checkOut(checkOut).confirmed(true).build();
+    }
+}
@@ -0,0 +1,181 @@
+package com.daniil.hotelmanagementservice.service;
+
+import com.daniil.hotelmanagementservice.config.SearchProperties;
+import com.daniil.hotelmanagementservice.dto.RoomFacets;
+import com.daniil.hotelmanagementservice.dto.RoomSearchAttributes;
+import com.daniil.hotelmanagementservice.entity.Room;
+import com.daniil.hotelmanagementservice.repository.RoomRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RoomFacetIndexTest {
+
+    @Mock
+    private RoomRepository roomRepository;
+
+    @Spy
+    private SearchProperties searchProperties = new SearchProperties();
+
+    @InjectMocks
+    private RoomFacetIndex facetIndex;
+
+    @BeforeEach
+    void setUp() {
+        Room locked = room(3L, 1L, "suite", 4, "250");
+        locked.setTempLocked(true);
+        Room unavailable = room(5L, 2L, "standard", 2, "99.99");
+        unavailable.setAvailable(false);
+        when(roomRepository.streamSearchAttributes()).thenReturn(attributes(
+                // курсор идёт по возрастанию id: в этом порядке назначаются индексы
+                room(1L, 1L, "standard", 2, "80"),
+                room(2L, 1L, "standard", 2, "120"),
+                locked,
+                room(4L, 2L, "suite", 3, "400"),
+                unavailable,
+                room(6L, 2L, null, null, null)));
+        facetIndex.rebuild();
+    }
+
+    @Test
+    void search_WithoutFilters_CountsAllRoomsPerAttributeValue() {
+        // Act
+        RoomFacets facets = facetIndex.search(null, null, null, null, false, 10);
+
+        // Assert
+        assertEquals(6, facets.total());
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L), facets.roomIds());
+        assertEquals(Map.of("standard", 3L, "suite", 2L), facets.byType());
+        assertEquals(Map.of(2, 3L, 3, 1L, 4, 1L), facets.byCapacity());
+        assertEquals(Map.of("0-100", 2L, "100-200", 1L, "200-400", 1L, "400+", 1L), facets.byPriceBand());
+        assertEquals(Map.of(1L, 3L, 2L, 3L), facets.byHotel());
+    }
+
+    @Test
+    void search_FreeRoomsOfHotel_CountsFreeRoomsPerType() {
+        // Act
+        RoomFacets facets = facetIndex.search(1L, null, null, null, true, 10);
+
+        // Assert
+        assertEquals(List.of(1L, 2L), facets.roomIds());
+        assertEquals(Map.of("standard", 2L), facets.byType());
+        // счётчик по отелям не учитывает фильтр по отелю
+        assertEquals(Map.of(1L, 2L, 2L, 2L), facets.byHotel());
+    }
+
+    @Test
+    void search_WithFilters_CountsEachDimensionWithoutItsOwnFilter() {
+        // Act
+        RoomFacets facets = facetIndex.search(null, "suite", 3, null, false, 10);
+
+        // Assert
+        assertEquals(2, facets.total());
+        assertEquals(List.of(3L, 4L), facets.roomIds());
+        assertEquals(Map.of("suite", 2L), facets.byType());
+        assertEquals(Map.of(3, 1L, 4, 1L), facets.byCapacity());
+        assertEquals(Map.of("200-400", 1L, "400+", 1L), facets.byPriceBand());
+    }
+
+    @Test
+    void search_ByPriceBand_UsesHalfOpenBounds() {
+        // Act
+        RoomFacets facets = facetIndex.search(null, null, null, "200-400", false, 10);
+
+        // Assert
+        assertEquals(List.of(3L), facets.roomIds());
+    }
+
+    @Test
+    void search_WithUnknownPriceBand_Throws() {
+        assertThrows(IllegalArgumentException.class, () -> facetIndex.search(null, null, null, "50-60", false, 10));
+    }
+
+    @Test
+    void search_WithLimit_ReturnsFirstIdsButFullTotal() {
+        // Act
+        RoomFacets facets = facetIndex.search(null, "standard", null, null, false, 2);
+
+        // Assert
+        assertEquals(3, facets.total());
+        assertEquals(List.of(1L, 2L), facets.roomIds());
+    }
+
+    @Test
+    void lockedAndUnlocked_UpdateFreeRooms() {
+        // Act
+        facetIndex.locked(List.of(1L));
+        facetIndex.unlocked(List.of(3L, 5L));
+        RoomFacets facets = facetIndex.search(null, null, null, null, true, 10);
+
+        // Assert
+        // недоступный номер не становится свободным после снятия аренды
+        assertEquals(List.of(2L, 3L, 4L, 6L), facets.roomIds());
+    }
+
+    @Test
+    void roomAdded_IndexesNewRoomsBeyondFirstWord() {
+        // Arrange
+        List<Long> added = new ArrayList<>();
+        LongStream.rangeClosed(100, 199).forEach(id -> {
+            facetIndex.roomAdded(room(id, 3L, "family", 5, "180"));
+            added.add(id);
+        });
+
+        // Act
+        RoomFacets facets = facetIndex.search(3L, "family", 5, "100-200", true, 500);
+
+        // Assert
+        assertEquals(100, facets.total());
+        assertEquals(added, facets.roomIds());
+        assertEquals(Map.of("family", 100L), facets.byType());
+    }
+
+    @Test
+    void rebuild_ReplaysChangesMadeWhileReadingDatabase() {
+        // Arrange
+        when(roomRepository.streamSearchAttributes()).thenAnswer(invocation -> {
+            // аренда и новый номер закоммичены после чтения из БД
+            facetIndex.locked(List.of(1L));
+            facetIndex.roomAdded(room(7L, 1L, "suite", 2, "150"));
+            return attributes(room(1L, 1L, "standard", 2, "80"), room(2L, 1L, "standard", 2, "120"));
+        });
+
+        // Act
+        facetIndex.rebuild();
+        RoomFacets facets = facetIndex.search(1L, null, null, null, true, 10);
+
+        // Assert
+        assertEquals(List.of(2L, 7L), facets.roomIds());
+    }
+
+    private static Stream<RoomSearchAttributes> attributes(Room... rooms) {
+        return Stream.of(rooms).map(RoomSearchAttributes::of);
+    }
+
+    private static Room room(long id, long hotelId, String type, Integer capacity, String price) {
+        return Room.builder()
+                .id(id)
+                .hotelId(hotelId)
+                .number(String.valueOf(id))
+                .available(true)
+                .roomType(type)
+                .capacity(capacity)
+                .price(price == null ? null : new BigDecimal(price))
+                .build();
+    }
+}
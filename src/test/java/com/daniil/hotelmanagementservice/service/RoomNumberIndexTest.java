@@ -0,0 +1,171 @@
+package com.daniil.hotelmanagementservice.service;
+
+import com.daniil.hotelmanagementservice.dto.RoomSearchAttributes;
+import com.daniil.hotelmanagementservice.entity.Room;
+import com.daniil.hotelmanagementservice.repository.RoomRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RoomNumberIndexTest {
+
+    @Mock
+    private RoomRepository roomRepository;
+
+    @InjectMocks
+    private RoomNumberIndex numberIndex;
+
+    @BeforeEach
+    void setUp() {
+        when(roomRepository.streamSearchAttributes()).thenReturn(attributes(
+                room(1L, 1L, "1010"),
+                room(2L, 1L, "2101"),
+                room(3L, 1L, "A-101"),
+                room(4L, 2L, "1010"),
+                room(5L, 2L, "99"),
+                room(6L, null, "1011")));
+        numberIndex.rebuild();
+    }
+
+    @Test
+    void find_WithHotel_ReturnsOnlyThatHotelsMatches() {
+        // Act
+        List<Long> found = numberIndex.find(1L, "101");
+
+        // Assert
+        assertEquals(List.of(1L, 2L, 3L), sorted(found));
+    }
+
+    @Test
+    void find_WithoutHotel_SearchesAllHotels() {
+        // Act
+        List<Long> found = numberIndex.find(null, "101");
+
+        // Assert
+        assertEquals(List.of(1L, 2L, 3L, 4L, 6L), sorted(found));
+    }
+
+    @Test
+    void find_LongerThanTrigram_ChecksWholeSubstring() {
+        // Act
+        // у "1010" есть обе триграммы образца "0101", но самого образца нет
+        List<Long> found = numberIndex.find(null, "1010");
+        List<Long> absent = numberIndex.find(null, "0101");
+
+        // Assert
+        assertEquals(List.of(1L, 4L), sorted(found));
+        assertTrue(absent.isEmpty());
+    }
+
+    @Test
+    void find_IsCaseSensitiveLikeDatabase() {
+        assertEquals(List.of(3L), numberIndex.find(1L, "A-1"));
+        assertTrue(numberIndex.find(1L, "a-1").isEmpty());
+    }
+
+    @Test
+    void find_WithShortPattern_Throws() {
+        assertFalse(numberIndex.covers("99"));
+        assertThrows(IllegalArgumentException.class, () -> numberIndex.find(2L, "99"));
+    }
+
+    @Test
+    void roomAdded_IndexesNewRoomsOnce() {
+        // Arrange
+        List<Long> added = new ArrayList<>();
+        LongStream.rangeClosed(100, 299).forEach(id -> {
+            numberIndex.roomAdded(room(id, 3L, "R-" + id));
+            added.add(id);
+        });
+        numberIndex.roomAdded(room(100L, 3L, "R-100"));
+
+        // Act
+        List<Long> found = numberIndex.find(3L, "R-1");
+        List<Long> one = numberIndex.find(3L, "R-250");
+
+        // Assert
+        assertEquals(added.subList(0, 100), sorted(found));
+        assertEquals(List.of(250L), one);
+    }
+
+    @Test
+    void isCurrent_FalseWhileRoomsArePending() {
+        // Act & Assert
+        assertTrue(numberIndex.isCurrent());
+        numberIndex.roomsPending();
+        assertFalse(numberIndex.isCurrent());
+        numberIndex.roomsSettled();
+        assertTrue(numberIndex.isCurrent());
+        verify(roomRepository, never()).count();
+    }
+
+    @Test
+    void checkAgainstDatabase_RoomsOfOtherInstance_MarkIndexStaleUntilRebuild() {
+        // Arrange
+        when(roomRepository.count()).thenReturn(6L, 7L);
+
+        // Act & Assert
+        numberIndex.checkAgainstDatabase();
+        assertTrue(numberIndex.isCurrent());
+        // номер другого инстанса ещё не попал в индекс
+        numberIndex.checkAgainstDatabase();
+        assertFalse(numberIndex.isCurrent());
+        when(roomRepository.streamSearchAttributes()).thenReturn(attributes(room(7L, 3L, "7007")));
+        numberIndex.rebuild();
+        assertTrue(numberIndex.isCurrent());
+    }
+
+    @Test
+    void checkAgainstDatabase_WhilePending_DoesNotMarkStale() {
+        // Arrange
+        when(roomRepository.count()).thenReturn(7L);
+        numberIndex.roomsPending();
+
+        // Act
+        numberIndex.checkAgainstDatabase();
+        numberIndex.roomsSettled();
+
+        // Assert
+        assertTrue(numberIndex.isCurrent());
+    }
+
+    @Test
+    void rebuild_KeepsRoomsAddedWhileReadingDatabase() {
+        // Arrange
+        when(roomRepository.streamSearchAttributes()).thenAnswer(invocation -> {
+            numberIndex.roomAdded(room(7L, 1L, "7007"));
+            return attributes(room(1L, 1L, "1010"));
+        });
+
+        // Act
+        numberIndex.rebuild();
+
+        // Assert
+        assertEquals(List.of(7L), numberIndex.find(1L, "700"));
+        assertEquals(List.of(1L), numberIndex.find(1L, "101"));
+    }
+
+    private static List<Long> sorted(List<Long> ids) {
+        return ids.stream().sorted().toList();
+    }
+
+    private static Stream<RoomSearchAttributes> attributes(Room... rooms) {
+        return Stream.of(rooms).map(RoomSearchAttributes::of);
+    }
+
+    private static Room room(long id, Long hotelId, String number) {
+        return Room.builder().id(id).hotelId(hotelId).number(number).available(true).build();
+    }
+}
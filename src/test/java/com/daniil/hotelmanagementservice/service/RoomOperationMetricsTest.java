@@ -0,0 +1,93 @@
+package com.daniil.hotelmanagementservice.service;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoomOperationMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private final RoomOperationMetrics metrics = new RoomOperationMetrics(registry);
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void timed_SplitsLockWaitFromExecution() {
+        // Act
+        metrics.timed("confirm", () -> {
+            metrics.waitFor("confirm", () -> sleep(50));
+            sleep(10);
+        });
+
+        // Assert
+        double total = timer("hotel.rooms.operation", "confirm").totalTime(TimeUnit.MILLISECONDS);
+        double lockWait = timer("hotel.rooms.lock.wait", "confirm").totalTime(TimeUnit.MILLISECONDS);
+        double execution = timer("hotel.rooms.execution", "confirm").totalTime(TimeUnit.MILLISECONDS);
+        assertTrue(lockWait >= 50, "lock wait " + lockWait);
+        assertTrue(execution >= 10 && execution < lockWait, "execution " + execution);
+        assertEquals(total, lockWait + execution, 1.0);
+    }
+
+    @Test
+    void timed_WhenBodyThrows_RecordsErrorOutcome() {
+        // Act
+        assertThrows(IllegalStateException.class, () -> metrics.timed("release", () -> {
+            throw new IllegalStateException("boom");
+        }));
+
+        // Assert
+        assertEquals(1, registry.get("hotel.rooms.operation").tag("outcome", "error").timer().count());
+        assertNull(registry.find("hotel.rooms.operation").tag("outcome", "success").timer());
+    }
+
+    @Test
+    void timed_InsideTransaction_RecordsOnCompletion() {
+        // Arrange
+        TransactionSynchronizationManager.initSynchronization();
+
+        // Act
+        String result = metrics.timed("search", () -> "page");
+
+        // Assert
+        assertEquals("page", result);
+        assertNull(registry.find("hotel.rooms.operation").timer());
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        assertEquals(1, registry.get("hotel.rooms.operation").tags("operation", "search", "outcome", "error").timer().count());
+    }
+
+    @Test
+    void allocationMissed_IncrementsCounter() {
+        // Act
+        metrics.allocationMissed();
+
+        // Assert
+        assertEquals(1.0, registry.get("hotel.rooms.allocation.misses").counter().count());
+    }
+
+    private Timer timer(String name, String operation) {
+        return registry.get(name).tag("operation", operation).timer();
+    }
+
+    private static Object sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+}
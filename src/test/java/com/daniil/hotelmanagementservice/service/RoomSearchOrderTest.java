@@ -0,0 +1,43 @@
+package com.daniil.hotelmanagementservice.service;
+
+import com.daniil.hotelmanagementservice.entity.Room;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.KeysetScrollPosition;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoomSearchOrderTest {
+
+    @Test
+    void cursorAfter_RoundTripsSortKeys() {
+        // Arrange
+        Room last = Room.builder().id(42L).number("10.1").timesBooked(7).build();
+
+        // Act
+        KeysetScrollPosition number = RoomSearchOrder.NUMBER.positionAfter(RoomSearchOrder.NUMBER.cursorAfter(last));
+        KeysetScrollPosition booked = RoomSearchOrder.TIMES_BOOKED_DESC
+                .positionAfter(RoomSearchOrder.TIMES_BOOKED_DESC.cursorAfter(last));
+
+        // Assert
+        assertEquals(Map.of("number", "10.1", "id", 42L), number.getKeys());
+        assertEquals(Map.of("timesBooked", 7, "id", 42L), booked.getKeys());
+    }
+
+    @Test
+    void positionAfter_WithCursorOfAnotherOrder_Throws() {
+        // Arrange
+        String cursor = RoomSearchOrder.ID.cursorAfter(Room.builder().id(1L).build());
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> RoomSearchOrder.NUMBER.positionAfter(cursor));
+        assertThrows(IllegalArgumentException.class, () -> RoomSearchOrder.ID.positionAfter("not a cursor"));
+    }
+
+    @Test
+    void of_UnknownSort_FallsBackToId() {
+        assertEquals(RoomSearchOrder.ID, RoomSearchOrder.of("unknown"));
+        assertEquals(RoomSearchOrder.TIMES_BOOKED_DESC, RoomSearchOrder.of("timesBooked_desc"));
+    }
+}
@@ -1,22 +1,54 @@
 package com.daniil.hotelmanagementservice.service;
 
+import com.daniil.hotelmanagementservice.config.AllocationProperties;
+import com.daniil.hotelmanagementservice.config.LeaseProperties;
+import com.daniil.hotelmanagementservice.config.SearchProperties;
+import com.daniil.hotelmanagementservice.dto.HotelOccupancy;
+import com.daniil.hotelmanagementservice.dto.OccupancyStats;
+import com.daniil.hotelmanagementservice.dto.RoomFacets;
+import com.daniil.hotelmanagementservice.dto.RoomSearchPage;
 import com.daniil.hotelmanagementservice.entity.Hotel;
 import com.daniil.hotelmanagementservice.entity.Room;
-import com.daniil.hotelmanagementservice.repository.HotelRepository;
+import com.daniil.hotelmanagementservice.entity.RoomStay;
 import com.daniil.hotelmanagementservice.repository.RoomRepository;
+import com.daniil.hotelmanagementservice.repository.RoomStayRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -26,7 +58,49 @@ class RoomServiceTest {
     private RoomRepository roomRepository;
 
     @Mock
-    private HotelRepository hotelRepository;
+    private RoomAllocationEngine allocationEngine;
+
+    @Spy
+    private AllocationProperties allocationProperties = new AllocationProperties();
+
+    @Spy
+    private LeaseProperties leaseProperties = new LeaseProperties();
+
+    @Mock
+    private LeaseMetrics leaseMetrics;
+
+    @Spy
+    private RoomOperationMetrics operationMetrics = new RoomOperationMetrics(new SimpleMeterRegistry());
+
+    @Mock
+    private OccupancyCounters occupancyCounters;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private CollectionVersions collectionVersions;
+
+    @Mock
+    private RoomStayRepository stayRepository;
+
+    @Mock
+    private RoomCalendar roomCalendar;
+
+    @Mock
+    private RoomFacetIndex facetIndex;
+
+    @Mock
+    private RoomNumberIndex numberIndex;
+
+    @Spy
+    private SearchProperties searchProperties = new SearchProperties();
+
+    @Mock
+    private TimesBookedBuffer timesBookedBuffer;
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
 
     @InjectMocks
     private RoomService roomService;
@@ -52,25 +126,29 @@ class RoomServiceTest {
     @Test
     void allocateRoom_WhenRoomsAvailable_ReturnsRoomAndLocksIt() {
         // Arrange
-        when(roomRepository.findAndLockAvailableRooms()).thenReturn(List.of(testRoom));
+        allocationProperties.setMode(AllocationProperties.Mode.PESSIMISTIC);
+        when(roomRepository.findAndLockAvailableRooms(Limit.of(1))).thenReturn(List.of(testRoom));
 
         // Act
-        Optional<Room> result = roomService.allocateRoom();
+        Optional<Room> result = roomService.allocateRoom(null, null);
 
         // Assert
         assertTrue(result.isPresent());
         assertEquals(testRoom, result.get());
         assertTrue(testRoom.isTempLocked());
-        verify(roomRepository).save(testRoom);
+        verify(roomRepository).markTempLocked(eq(List.of(1L)), any(Instant.class), isNull());
+        verify(roomRepository, never()).save(any());
+        verify(facetIndex).locked(List.of(1L));
     }
 
     @Test
     void allocateRoom_WhenNoRoomsAvailable_ReturnsEmpty() {
         // Arrange
-        when(roomRepository.findAndLockAvailableRooms()).thenReturn(Collections.emptyList());
+        allocationProperties.setMode(AllocationProperties.Mode.PESSIMISTIC);
+        when(roomRepository.findAndLockAvailableRooms(Limit.of(1))).thenReturn(Collections.emptyList());
 
         // Act
-        Optional<Room> result = roomService.allocateRoom();
+        Optional<Room> result = roomService.allocateRoom(null, null);
 
         // Assert
         assertFalse(result.isPresent());
@@ -78,116 +156,763 @@ class RoomServiceTest {
     }
 
     @Test
-    void confirmBooking_WhenRoomExists_IncrementsTimesBookedAndUnlocks() {
+    void allocateRoom_InMemory_LeasesClaimedRoomWithSingleUpdate() {
         // Arrange
-        when(roomRepository.findById(1L)).thenReturn(Optional.of(testRoom));
+        when(allocationEngine.claim(null)).thenReturn(OptionalLong.of(1L));
+        when(roomRepository.leaseIfAvailable(eq(1L), any(Instant.class), isNull())).thenReturn(Optional.of(testRoom));
 
         // Act
-        roomService.confirmBooking(1L);
+        Optional<Room> result = roomService.allocateRoom(null, null);
 
         // Assert
-        assertEquals(6, testRoom.getTimesBooked());
-        assertFalse(testRoom.isTempLocked());
-        verify(roomRepository).save(testRoom);
+        assertTrue(result.isPresent());
+        verify(roomRepository, never()).lockIfAvailable(any());
+        verify(roomRepository, never()).save(any());
+        verify(roomRepository, never()).findAndLockAvailableRooms(any());
+        verify(occupancyCounters).roomsLocked(1L, 1);
+    }
+
+    @Test
+    void allocateRoom_InMemory_WhenClaimedRoomIsTaken_EvictsAndTriesNext() {
+        // Arrange
+        when(allocationEngine.claim(null)).thenReturn(OptionalLong.of(2L), OptionalLong.of(1L));
+        when(roomRepository.leaseIfAvailable(eq(2L), any(Instant.class), isNull())).thenReturn(Optional.empty());
+        when(roomRepository.leaseIfAvailable(eq(1L), any(Instant.class), isNull())).thenReturn(Optional.of(testRoom));
+
+        // Act
+        Optional<Room> result = roomService.allocateRoom(null, null);
+
+        // Assert
+        assertEquals(testRoom, result.orElseThrow());
+        verify(allocationEngine).evict(2L);
+        verify(leaseMetrics, times(1)).created(1);
+    }
+
+    @Test
+    void allocateRoom_WithHotelId_Pessimistic_LocksOnlyThatHotel() {
+        // Arrange
+        allocationProperties.setMode(AllocationProperties.Mode.PESSIMISTIC);
+        when(roomRepository.findAndLockAvailableRoomsByHotelId(1L, Limit.of(1))).thenReturn(List.of(testRoom));
+
+        // Act
+        Optional<Room> result = roomService.allocateRoom(1L, null);
+
+        // Assert
+        assertEquals(testRoom, result.orElseThrow());
+        verify(roomRepository, never()).findAndLockAvailableRooms(any());
     }
 
     @Test
-    void confirmBooking_WhenRoomNotExists_DoesNothing() {
+    void allocateRoom_WithHotelId_InMemory_ClaimsFromHotelQueue() {
         // Arrange
-        when(roomRepository.findById(1L)).thenReturn(Optional.empty());
+        when(allocationEngine.claim(1L)).thenReturn(OptionalLong.of(1L));
+        when(roomRepository.leaseIfAvailable(eq(1L), any(Instant.class), isNull())).thenReturn(Optional.of(testRoom));
 
         // Act
-        roomService.confirmBooking(1L);
+        Optional<Room> result = roomService.allocateRoom(1L, null);
 
         // Assert
+        assertEquals(testRoom, result.orElseThrow());
+        verify(allocationEngine, never()).claim(null);
+    }
+
+    @Test
+    void allocateRoom_SkipLocked_LocksSingleRow() {
+        // Arrange
+        allocationProperties.setMode(AllocationProperties.Mode.SKIP_LOCKED);
+        when(roomRepository.lockNextAvailableRoom(1L)).thenReturn(Optional.of(testRoom));
+
+        // Act
+        Optional<Room> result = roomService.allocateRoom(1L, null);
+
+        // Assert
+        assertEquals(testRoom, result.orElseThrow());
+        assertTrue(testRoom.isTempLocked());
+        verify(roomRepository).markTempLocked(eq(List.of(1L)), any(Instant.class), isNull());
+        verify(roomRepository, never()).findAndLockAvailableRoomsByHotelId(any(), any());
+    }
+
+    @Test
+    void allocateRoom_SkipLocked_WhenNothingFree_ReturnsEmpty() {
+        // Arrange
+        allocationProperties.setMode(AllocationProperties.Mode.SKIP_LOCKED);
+        when(roomRepository.lockNextAvailableRoom(null)).thenReturn(Optional.empty());
+
+        // Act
+        Optional<Room> result = roomService.allocateRoom(null, null);
+
+        // Assert
+        assertFalse(result.isPresent());
+        verify(roomRepository, never()).save(any());
+    }
+
+    @Test
+    void allocateRoom_InMemory_WhenQueueEmpty_ReturnsEmpty() {
+        // Arrange
+        when(allocationEngine.claim(null)).thenReturn(OptionalLong.empty());
+
+        // Act
+        Optional<Room> result = roomService.allocateRoom(null, null);
+
+        // Assert
+        assertFalse(result.isPresent());
         verify(roomRepository, never()).save(any());
     }
 
     @Test
-    void releaseRoom_WhenRoomExists_UnlocksRoom() {
+    void allocateRoom_Optimistic_LeasesRandomCandidateFromTopK() {
         // Arrange
+        allocationProperties.setMode(AllocationProperties.Mode.OPTIMISTIC);
+        allocationProperties.getOptimistic().setTopK(3);
+        Room second = Room.builder().id(2L).hotelId(1L).number("102").available(true).build();
+        when(roomRepository.findAllocationCandidatesByHotelId(1L, Limit.of(3))).thenReturn(List.of(testRoom, second));
+        when(roomRepository.saveAndFlush(any(Room.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        Room result = roomService.allocateRoom(1L, "booking-1").orElseThrow();
+
+        // Assert
+        assertTrue(List.of(testRoom, second).contains(result));
+        assertTrue(result.isTempLocked());
+        assertEquals("booking-1", result.getLeaseOwner());
+        verify(roomRepository).saveAndFlush(result);
+        verify(roomRepository, never()).findAndLockAvailableRoomsByHotelId(any(), any());
+        verify(roomRepository, never()).lockNextAvailableRoom(any());
+    }
+
+    @Test
+    void allocateRoom_Optimistic_RetriesAfterVersionConflict() {
+        // Arrange
+        allocationProperties.setMode(AllocationProperties.Mode.OPTIMISTIC);
+        allocationProperties.getOptimistic().setBackoffBase(Duration.ZERO);
+        when(roomRepository.findAllocationCandidates(any(Limit.class))).thenReturn(List.of(testRoom));
+        when(roomRepository.saveAndFlush(testRoom))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Room.class, 1L))
+                .thenReturn(testRoom);
+
+        // Act
+        Optional<Room> result = roomService.allocateRoom(null, null);
+
+        // Assert
+        assertEquals(testRoom, result.orElseThrow());
+        verify(roomRepository, times(2)).findAllocationCandidates(any(Limit.class));
+        verify(operationMetrics).allocationConflict();
+        verify(leaseMetrics, times(1)).created(1);
+    }
+
+    @Test
+    void allocateRoom_Optimistic_AfterLastConflict_Throws() {
+        // Arrange
+        allocationProperties.setMode(AllocationProperties.Mode.OPTIMISTIC);
+        allocationProperties.getOptimistic().setMaxAttempts(3);
+        allocationProperties.getOptimistic().setBackoffBase(Duration.ZERO);
+        when(roomRepository.findAllocationCandidates(any(Limit.class))).thenReturn(List.of(testRoom));
+        when(roomRepository.saveAndFlush(testRoom)).thenThrow(new ObjectOptimisticLockingFailureException(Room.class, 1L));
+
+        // Act & Assert
+        assertThrows(OptimisticLockingFailureException.class, () -> roomService.allocateRoom(null, null));
+        verify(roomRepository, times(3)).saveAndFlush(testRoom);
+        verify(operationMetrics, times(3)).allocationConflict();
+        verify(leaseMetrics, never()).created(anyInt());
+    }
+
+    @Test
+    void allocateRooms_InMemory_LocksAllWithSingleUpdate() {
+        // Arrange
+        Room second = Room.builder().id(2L).hotelId(1L).available(true).build();
+        when(allocationEngine.claim(1L)).thenReturn(OptionalLong.of(1L), OptionalLong.of(2L));
+        when(roomRepository.lockIfAvailable(1L)).thenReturn(Optional.of(testRoom));
+        when(roomRepository.lockIfAvailable(2L)).thenReturn(Optional.of(second));
+
+        // Act
+        List<Long> result = roomService.allocateRooms(2, 1L, null);
+
+        // Assert
+        assertEquals(List.of(1L, 2L), result);
+        verify(roomRepository).markTempLocked(eq(List.of(1L, 2L)), any(Instant.class), isNull());
+        verify(roomRepository, never()).save(any());
+    }
+
+    @Test
+    void allocateRooms_WhenNotEnoughRooms_AllocatesNothing() {
+        // Arrange
+        when(allocationEngine.claim(null)).thenReturn(OptionalLong.of(1L), OptionalLong.empty());
+        when(roomRepository.lockIfAvailable(1L)).thenReturn(Optional.of(testRoom));
+
+        // Act
+        List<Long> result = roomService.allocateRooms(3, null, null);
+
+        // Assert
+        assertTrue(result.isEmpty());
+        verify(allocationEngine).cancelClaim(1L);
+        verify(roomRepository, never()).markTempLocked(any(), any(), any());
+        verifyNoInteractions(collectionVersions);
+    }
+
+    @Test
+    void allocateRooms_SkipLocked_LocksRequestedCount() {
+        // Arrange
+        allocationProperties.setMode(AllocationProperties.Mode.SKIP_LOCKED);
+        Room second = Room.builder().id(2L).hotelId(1L).available(true).build();
+        when(roomRepository.lockNextAvailableRooms(1L, 2)).thenReturn(List.of(testRoom, second));
+
+        // Act
+        List<Long> result = roomService.allocateRooms(2, 1L, null);
+
+        // Assert
+        assertEquals(List.of(1L, 2L), result);
+        verify(roomRepository).markTempLocked(eq(List.of(1L, 2L)), any(Instant.class), isNull());
+    }
+
+    @Test
+    void allocateRooms_Pessimistic_LocksOnlyRequestedCount() {
+        // Arrange
+        allocationProperties.setMode(AllocationProperties.Mode.PESSIMISTIC);
+        Room second = Room.builder().id(2L).hotelId(1L).available(true).build();
+        when(roomRepository.findAndLockAvailableRoomsByHotelId(1L, Limit.of(2))).thenReturn(List.of(testRoom, second));
+
+        // Act
+        List<Long> result = roomService.allocateRooms(2, 1L, null);
+
+        // Assert
+        assertEquals(List.of(1L, 2L), result);
+        verify(roomRepository).markTempLocked(eq(List.of(1L, 2L)), any(Instant.class), isNull());
+    }
+
+    @Test
+    void allocateRooms_WithNonPositiveCount_Throws() {
+        assertThrows(IllegalArgumentException.class, () -> roomService.allocateRooms(0, null, null));
+    }
+
+    @Test
+    void batchOperations_AboveMaxBatchSize_Throw() {
+        // Arrange
+        List<Long> tooMany = LongStream.rangeClosed(1, RoomService.MAX_BATCH_SIZE + 1).boxed().toList();
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> roomService.allocateRooms(Integer.MAX_VALUE, null, null));
+        assertThrows(IllegalArgumentException.class, () -> roomService.confirmBookings(tooMany, null));
+        assertThrows(IllegalArgumentException.class, () -> roomService.releaseRooms(tooMany, null));
+        verifyNoInteractions(allocationEngine);
+        verify(roomRepository, never()).findAndLockAllById(any());
+    }
+
+    @Test
+    void confirmBookings_UpdatesAllAndReoffersToEngine() {
+        // Arrange
+        testRoom.setTimesBooked(6);
         testRoom.setTempLocked(true);
+        when(allocationEngine.isEnabled()).thenReturn(true);
+        when(roomRepository.findAndLockAllById(List.of(1L))).thenReturn(List.of(testRoom));
+
+        // Act
+        roomService.confirmBookings(List.of(1L), null);
+
+        // Assert
+        verify(roomRepository).confirmAll(List.of(1L), null);
+        verify(allocationEngine).release(1L, 1L, 7);
+        verify(facetIndex).unlocked(List.of(1L));
+    }
+
+    @Test
+    void confirmBookings_UnleasedRoom_IsNotCountedOrReoffered() {
+        // Arrange
+        testRoom.setTimesBooked(6);
+        when(roomRepository.findAndLockAllById(List.of(1L))).thenReturn(List.of(testRoom));
+
+        // Act
+        roomService.confirmBookings(List.of(1L), null);
+
+        // Assert
+        assertEquals(6, testRoom.getTimesBooked());
+        verify(allocationEngine, never()).release(anyLong(), any(), anyInt());
+        verify(facetIndex).unlocked(List.of());
+        verifyNoInteractions(occupancyCounters);
+    }
+
+    @Test
+    void releaseRooms_UpdatesAllWithSingleStatement() {
+        // Act
+        roomService.releaseRooms(List.of(1L, 2L), null);
+
+        // Assert
+        verify(roomRepository).releaseAll(List.of(1L, 2L), null);
+        verify(roomRepository, never()).save(any());
+    }
+
+    @Test
+    void releaseRooms_UnlocksCountersOnlyForOwnedTempLockedRooms() {
+        // Arrange
+        testRoom.setTempLocked(true);
+        testRoom.setLeaseOwner("booking-1");
+        Room foreign = Room.builder().id(2L).hotelId(1L).tempLocked(true).leaseOwner("booking-2").build();
+        Room free = Room.builder().id(3L).hotelId(2L).tempLocked(false).build();
+        when(roomRepository.findAndLockAllById(List.of(1L, 2L, 3L))).thenReturn(List.of(testRoom, foreign, free));
+
+        // Act
+        roomService.releaseRooms(List.of(1L, 2L, 3L), "booking-1");
+
+        // Assert
+        verify(occupancyCounters).roomsUnlocked(1L, 1);
+        verifyNoMoreInteractions(occupancyCounters);
+    }
+
+    @Test
+    void allocateRooms_CountsLockedRoomsPerHotel() {
+        // Arrange
+        allocationProperties.setMode(AllocationProperties.Mode.SKIP_LOCKED);
+        Room second = Room.builder().id(2L).hotelId(1L).available(true).build();
+        Room third = Room.builder().id(3L).hotelId(2L).available(true).build();
+        when(roomRepository.lockNextAvailableRooms(null, 3)).thenReturn(List.of(testRoom, second, third));
+
+        // Act
+        roomService.allocateRooms(3, null, null);
+
+        // Assert
+        verify(occupancyCounters).roomsLocked(1L, 2);
+        verify(occupancyCounters).roomsLocked(2L, 1);
+    }
+
+    @Test
+    void allocateRoom_ForDates_HoldsFirstCandidateWithoutOverlap() {
+        // Arrange
+        LocalDate checkIn = LocalDate.of(2026, 3, 1);
+        LocalDate checkOut = LocalDate.of(2026, 3, 4);
+        Room taken = Room.builder().id(2L).hotelId(1L).available(true).build();
+        when(roomCalendar.covers(checkIn, checkOut)).thenReturn(true);
+        when(roomCalendar.freeRooms(1L, checkIn, checkOut, RoomService.STAY_CANDIDATES)).thenReturn(List.of(2L, 1L));
+        when(roomRepository.findById(2L)).thenReturn(Optional.of(taken));
         when(roomRepository.findById(1L)).thenReturn(Optional.of(testRoom));
+        // календарь отстал: номер 2 уже занят по данным БД
+        when(stayRepository.existsOverlapping(2L, checkIn, checkOut)).thenReturn(true);
 
         // Act
-        roomService.releaseRoom(1L);
+        Optional<Room> result = roomService.allocateRoom(1L, "booking-1", checkIn, checkOut);
 
         // Assert
-        assertFalse(testRoom.isTempLocked());
-        verify(roomRepository).save(testRoom);
+        assertEquals(testRoom, result.orElseThrow());
+        verify(stayRepository).save(argThat(stay -> stay.getRoomId() == 1L && stay.getHotelId() == 1L
+                && stay.getCheckIn().equals(checkIn) && stay.getCheckOut().equals(checkOut)
+                && "booking-1".equals(stay.getOwner()) && !stay.isConfirmed() && stay.getHoldExpiresAt() != null));
+        verify(roomCalendar).reserve(1L, checkIn, checkOut);
+        verify(roomRepository, never()).markTempLocked(any(), any(), any());
+    }
+
+    @Test
+    void allocateRoom_ForDatesBeyondHorizon_QueriesDatabase() {
+        // Arrange
+        LocalDate checkIn = LocalDate.of(2030, 3, 1);
+        LocalDate checkOut = LocalDate.of(2030, 3, 2);
+        when(roomCalendar.covers(checkIn, checkOut)).thenReturn(false);
+        when(stayRepository.findFreeRoomIds(checkIn, checkOut, Limit.of(RoomService.STAY_CANDIDATES))).thenReturn(List.of());
+
+        // Act
+        Optional<Room> result = roomService.allocateRoom(null, null, checkIn, checkOut);
+
+        // Assert
+        assertTrue(result.isEmpty());
+        verify(roomCalendar, never()).freeRooms(any(), any(), any(), anyInt());
+        verify(stayRepository, never()).save(any(RoomStay.class));
+    }
+
+    @Test
+    void allocateRoom_WithInvertedDates_Throws() {
+        LocalDate day = LocalDate.of(2026, 3, 1);
+
+        assertThrows(IllegalArgumentException.class, () -> roomService.allocateRoom(1L, null, day, day));
+        assertThrows(IllegalArgumentException.class, () -> roomService.findFreeRooms(1L, day, null, 10));
+        assertThrows(IllegalArgumentException.class,
+                () -> roomService.findFreeRooms(1L, day, day.plusDays(1), RoomService.MAX_SEARCH_PAGE_SIZE + 1));
+    }
+
+    @Test
+    void confirmBooking_ForDates_ConfirmsHoldAndIncrementsTimesBooked() {
+        // Arrange
+        LocalDate checkIn = LocalDate.of(2026, 3, 1);
+        LocalDate checkOut = LocalDate.of(2026, 3, 4);
+        when(stayRepository.confirmHold(1L, checkIn, checkOut, "booking-1")).thenReturn(1);
+
+        // Act
+        boolean confirmed = roomService.confirmBooking(1L, "booking-1", checkIn, checkOut);
+
+        // Assert
+        assertTrue(confirmed);
+        verify(roomRepository).incrementTimesBooked(1L);
+        verify(roomCalendar).booked(1L);
+        verify(roomRepository, never()).confirmLease(any(), any());
+    }
+
+    @Test
+    void confirmBooking_ForDates_WriteBehind_DoesNotUpdateRoomRow() {
+        // Arrange
+        LocalDate checkIn = LocalDate.of(2026, 3, 1);
+        LocalDate checkOut = LocalDate.of(2026, 3, 4);
+        when(timesBookedBuffer.isEnabled()).thenReturn(true);
+        when(stayRepository.confirmHold(1L, checkIn, checkOut, "booking-1")).thenReturn(1);
+
+        // Act
+        boolean confirmed = roomService.confirmBooking(1L, "booking-1", checkIn, checkOut);
+
+        // Assert
+        assertTrue(confirmed);
+        verify(timesBookedBuffer).increment(List.of(1L));
+        verifyNoInteractions(roomRepository);
+    }
+
+    @Test
+    void releaseRoom_ForDates_WhenNoStay_DoesNotTouchCalendar() {
+        // Arrange
+        LocalDate checkIn = LocalDate.of(2026, 3, 1);
+        LocalDate checkOut = LocalDate.of(2026, 3, 4);
+        when(stayRepository.deleteStay(1L, checkIn, checkOut, "booking-2")).thenReturn(0);
+
+        // Act
+        boolean released = roomService.releaseRoom(1L, "booking-2", checkIn, checkOut);
+
+        // Assert
+        assertFalse(released);
+        verifyNoInteractions(roomCalendar);
     }
 
     @Test
-    void releaseRoom_WhenRoomNotExists_DoesNothing() {
+    void reclaimExpiredHolds_DeletesBatchAndFreesCalendar() {
         // Arrange
-        when(roomRepository.findById(1L)).thenReturn(Optional.empty());
+        RoomStay expired = RoomStay.builder().id(7L).roomId(1L)
+                .checkIn(LocalDate.of(2026, 3, 1)).checkOut(LocalDate.of(2026, 3, 4)).build();
+        when(stayRepository.findAndLockExpiredHolds(any(Instant.class), eq(PageRequest.of(0, 10))))
+                .thenReturn(List.of(expired));
+        when(stayRepository.deleteExpiredHolds(eq(List.of(7L)), any(Instant.class))).thenReturn(1);
 
         // Act
-        roomService.releaseRoom(1L);
+        int found = roomService.reclaimExpiredHolds(10);
 
         // Assert
+        assertEquals(1, found);
+        verify(leaseMetrics).reclaimed(1);
+        verify(roomCalendar).free(1L, expired.getCheckIn(), expired.getCheckOut());
+    }
+
+    @Test
+    void allocateAndConfirm_RecordLockWaitPerOperation() {
+        // Arrange
+        allocationProperties.setMode(AllocationProperties.Mode.PESSIMISTIC);
+        when(roomRepository.findAndLockAvailableRooms(Limit.of(1))).thenReturn(List.of(testRoom));
+        when(roomRepository.confirmLease(1L, null)).thenReturn(Optional.of(testRoom));
+
+        // Act
+        roomService.allocateRoom(null, null);
+        roomService.confirmBooking(1L, null);
+
+        // Assert
+        verify(operationMetrics).waitFor(eq("allocate"), any());
+        verify(operationMetrics).waitFor(eq("confirm"), any());
+    }
+
+    @Test
+    void confirmBooking_WhenLeased_ConfirmsWithSingleUpdate() {
+        // Arrange
+        testRoom.setTimesBooked(6);
+        when(roomRepository.confirmLease(1L, null)).thenReturn(Optional.of(testRoom));
+
+        // Act
+        boolean confirmed = roomService.confirmBooking(1L, null);
+
+        // Assert
+        assertTrue(confirmed);
+        verify(roomRepository, never()).findById(any());
         verify(roomRepository, never()).save(any());
+        verify(leaseMetrics).confirmed(1);
+        verify(occupancyCounters).roomsUnlocked(1L, 1);
+        verify(allocationEngine).release(1L, 1L, 6);
+        verify(collectionVersions).roomsChanged();
+    }
+
+    @Test
+    void confirmBooking_WriteBehind_OnlyClearsLeaseAndBuffersIncrement() {
+        // Arrange
+        // UPDATE снял аренду, не трогая счётчик: в БД 5, ещё 2 приращения ждут выгрузки
+        when(timesBookedBuffer.isEnabled()).thenReturn(true);
+        when(timesBookedBuffer.pending(1L)).thenReturn(2L);
+        when(roomRepository.releaseLease(1L, "booking-1")).thenReturn(Optional.of(testRoom));
+
+        // Act
+        boolean confirmed = roomService.confirmBooking(1L, "booking-1");
+
+        // Assert
+        assertTrue(confirmed);
+        verify(roomRepository, never()).confirmLease(any(), any());
+        verify(timesBookedBuffer).increment(List.of(1L));
+        verify(leaseMetrics).confirmed(1);
+        verify(allocationEngine).release(1L, 1L, 8);
     }
 
     @Test
-    void getAllAvailableRooms_ReturnsOnlyAvailableRooms() {
+    void confirmBookings_WriteBehind_ReleasesAllAndBuffersIncrements() {
         // Arrange
-        Room unavailableRoom = new Room();
-        unavailableRoom.setAvailable(false);
-        when(roomRepository.findByAvailableTrue()).thenReturn(List.of(testRoom));
+        testRoom.setTempLocked(true);
+        when(timesBookedBuffer.isEnabled()).thenReturn(true);
+        when(roomRepository.findAndLockAllById(List.of(1L))).thenReturn(List.of(testRoom));
+        when(roomRepository.releaseAll(List.of(1L), null)).thenReturn(1);
 
         // Act
-        List<Room> result = roomService.getAllAvailableRooms();
+        roomService.confirmBookings(List.of(1L), null);
 
         // Assert
-        assertEquals(1, result.size());
-        assertEquals(testRoom, result.get(0));
+        verify(roomRepository, never()).confirmAll(any(), any());
+        verify(timesBookedBuffer).increment(List.of(1L));
+        verify(leaseMetrics).confirmed(1);
+        assertEquals(6, testRoom.getTimesBooked());
     }
 
     @Test
-    void getOccupancyStats_ReturnsCorrectStats() {
+    void confirmBookings_WriteBehind_BuffersOnlyLeasedRooms() {
         // Arrange
-        when(roomRepository.count()).thenReturn(10L);
-        when(roomRepository.countByAvailableFalse()).thenReturn(4L);
-        when(hotelRepository.findAll()).thenReturn(List.of(testHotel));
-        when(roomRepository.findByHotelId(testHotel.getId())).thenReturn(List.of(testRoom));
+        testRoom.setTempLocked(true);
+        Room unleased = Room.builder().id(2L).hotelId(1L).available(true).timesBooked(3).build();
+        when(timesBookedBuffer.isEnabled()).thenReturn(true);
+        when(roomRepository.findAndLockAllById(List.of(1L, 2L))).thenReturn(List.of(testRoom, unleased));
+        when(roomRepository.releaseAll(List.of(1L, 2L), null)).thenReturn(1);
 
         // Act
-        Map<String, Object> stats = roomService.getOccupancyStats();
+        roomService.confirmBookings(List.of(1L, 2L), null);
 
         // Assert
-        assertEquals(10L, stats.get("totalRooms"));
-        assertEquals(6L, stats.get("availableRooms"));
-        assertEquals(4L, stats.get("occupiedRooms"));
+        verify(timesBookedBuffer).increment(List.of(1L));
+        assertEquals(3, unleased.getTimesBooked());
+    }
+
+    @Test
+    void allocateRoom_CreatesLeaseWithOwnerAndExpiry() {
+        // Arrange
+        when(allocationEngine.claim(null)).thenReturn(OptionalLong.of(1L));
+        when(roomRepository.leaseIfAvailable(eq(1L), any(Instant.class), eq("booking-42"))).thenReturn(Optional.of(testRoom));
+
+        // Act
+        roomService.allocateRoom(null, "booking-42");
+
+        // Assert
+        verify(roomRepository).leaseIfAvailable(eq(1L), argThat(expiresAt -> expiresAt.isAfter(Instant.now())), eq("booking-42"));
+        verify(leaseMetrics).created(1);
+    }
+
+    @Test
+    void confirmBooking_WhenUpdateMatchesNoRow_IsIgnored() {
+        // Arrange
+        when(roomRepository.confirmLease(1L, "booking-2")).thenReturn(Optional.empty());
+
+        // Act
+        boolean confirmed = roomService.confirmBooking(1L, "booking-2");
 
-        @SuppressWarnings("unchecked")
-        Map<String, Object> hotelStats = (Map<String, Object>) stats.get("byHotel");
-        assertEquals(1, hotelStats.size());
-        assertTrue(hotelStats.containsKey("Test Hotel"));
+        // Assert
+        assertFalse(confirmed);
+        verifyNoInteractions(leaseMetrics, occupancyCounters, collectionVersions);
+        verify(allocationEngine, never()).release(anyLong(), any(), anyInt());
     }
 
 
     @Test
-    void searchRooms_WithNullFilters_ReturnsAllRooms() {
+    void reclaimExpiredLeases_ReleasesBatchAndReportsMetrics() {
+        // Arrange
+        testRoom.setTempLocked(true);
+        Room second = Room.builder().id(2L).hotelId(1L).tempLocked(true).build();
+        when(roomRepository.findAndLockExpiredLeases(any(Instant.class), any())).thenReturn(List.of(testRoom, second));
+        when(roomRepository.releaseExpired(eq(List.of(1L, 2L)), any(Instant.class))).thenReturn(2);
+
+        // Act
+        int found = roomService.reclaimExpiredLeases(10);
+
+        // Assert
+        assertEquals(2, found);
+        verify(leaseMetrics).expired(2);
+        verify(leaseMetrics).reclaimed(2);
+        verify(occupancyCounters).roomsUnlocked(1L, 2);
+    }
+
+    @Test
+    void reclaimExpiredLeases_WhenNothingExpired_DoesNotUpdate() {
         // Arrange
-        when(roomRepository.findAll()).thenReturn(List.of(testRoom));
+        when(roomRepository.findAndLockExpiredLeases(any(Instant.class), any())).thenReturn(List.of());
 
         // Act
-        List<Room> result = roomService.searchRooms(
-                null,   // hotelId
-                null,   // available
-                null,   // numberPattern
-                0,      // minTimesBooked
-                100,    // maxTimesBooked
-                "id"    // sortBy
-        );
+        int found = roomService.reclaimExpiredLeases(10);
 
         // Assert
-        assertEquals(1, result.size());
-        assertEquals(testRoom, result.get(0));
+        assertEquals(0, found);
+        verify(roomRepository, never()).releaseExpired(any(), any());
     }
 
 
+    @Test
+    void releaseRoom_WhenLeased_ReleasesWithSingleUpdate() {
+        // Arrange
+        when(roomRepository.releaseLease(1L, "booking-1")).thenReturn(Optional.of(testRoom));
+
+        // Act
+        boolean released = roomService.releaseRoom(1L, "booking-1");
+
+        // Assert
+        assertTrue(released);
+        verify(roomRepository, never()).save(any());
+        verify(occupancyCounters).roomsUnlocked(1L, 1);
+        verify(allocationEngine).release(1L, 1L, 5);
+    }
+
+    @Test
+    void releaseRoom_WhenNotLeased_DoesNothing() {
+        // Arrange
+        when(roomRepository.releaseLease(1L, null)).thenReturn(Optional.empty());
+
+        // Act
+        boolean released = roomService.releaseRoom(1L, null);
+
+        // Assert
+        assertFalse(released);
+        verifyNoInteractions(occupancyCounters, collectionVersions);
+    }
+
+    @Test
+    void getAvailableRooms_ReturnsPageAndCursorAfterLastRoom() {
+        // Arrange
+        when(roomRepository.findByAvailableTrue(any(ScrollPosition.class), any(Sort.class), eq(Limit.of(1))))
+                .thenReturn(Window.from(List.of(testRoom), ScrollPosition::offset, true));
+
+        // Act
+        RoomSearchPage result = roomService.getAvailableRooms(1, null);
+
+        // Assert
+        assertEquals(List.of(testRoom), result.rooms());
+        assertEquals(RoomSearchOrder.ID.cursorAfter(testRoom), result.nextCursor());
+    }
+
+    @Test
+    void forEachAvailableRoom_DetachesEachRoomAfterProcessing() {
+        // Arrange
+        Room second = Room.builder().id(2L).available(true).build();
+        when(roomRepository.streamAvailableRooms()).thenReturn(Stream.of(testRoom, second));
+        List<Long> seen = new ArrayList<>();
+
+        // Act
+        roomService.forEachAvailableRoom(room -> seen.add(room.getId()));
+
+        // Assert
+        assertEquals(List.of(1L, 2L), seen);
+        verify(entityManager).detach(testRoom);
+        verify(entityManager).detach(second);
+    }
+
+    @Test
+    void getOccupancyStats_ReturnsSnapshotWithoutQueryingDatabase() {
+        // Arrange
+        OccupancyStats expected = OccupancyStats.of(List.of(
+                new HotelOccupancy(1L, "Test Hotel", 6L, 4L, 1L),
+                new HotelOccupancy(2L, "Empty Hotel", 4L, 0L, 0L)));
+        when(occupancyCounters.snapshot()).thenReturn(expected);
+
+        // Act
+        OccupancyStats stats = roomService.getOccupancyStats();
+
+        // Assert
+        assertEquals(expected, stats);
+        verifyNoInteractions(roomRepository);
+    }
+
+    @Test
+    void searchRooms_QueriesDatabaseInsteadOfLoadingAllRooms() {
+        // Arrange
+        when(roomRepository.findBy(any(Specification.class), any()))
+                .thenReturn(new SliceImpl<>(List.of(testRoom), PageRequest.of(0, 1), true));
+
+        // Act
+        RoomSearchPage result = roomService.searchRooms(null, null, null, 0, 100, "number", 0, 1, null);
+
+        // Assert
+        assertEquals(List.of(testRoom), result.rooms());
+        assertNotNull(result.nextCursor());
+        verify(roomRepository, never()).findAll();
+    }
+
+    @Test
+    void searchRooms_OnLastPage_ReturnsNoCursor() {
+        // Arrange
+        when(roomRepository.findBy(any(Specification.class), any()))
+                .thenReturn(new SliceImpl<>(List.of(testRoom), PageRequest.of(0, 10), false));
+
+        // Act
+        RoomSearchPage result = roomService.searchRooms(1L, true, "10", 0, 100, "id", 0, 10, null);
+
+        // Assert
+        assertNull(result.nextCursor());
+    }
+
+    @Test
+    void searchRooms_WithNumberPattern_FiltersByIdsFromIndex() {
+        // Arrange
+        when(numberIndex.covers("101")).thenReturn(true);
+        when(numberIndex.isCurrent()).thenReturn(true);
+        when(numberIndex.find(1L, "101")).thenReturn(List.of(1L));
+        when(roomRepository.findBy(any(Specification.class), any()))
+                .thenReturn(new SliceImpl<>(List.of(testRoom), PageRequest.of(0, 10), false));
+
+        // Act
+        RoomSearchPage result = roomService.searchRooms(1L, true, "101", 0, 100, "id", 0, 10, null);
+
+        // Assert
+        assertEquals(List.of(testRoom), result.rooms());
+        verify(numberIndex).find(1L, "101");
+    }
+
+    @Test
+    void searchRooms_WhenIndexFindsNoNumber_SkipsDatabase() {
+        // Arrange
+        when(numberIndex.covers("999")).thenReturn(true);
+        when(numberIndex.isCurrent()).thenReturn(true);
+        when(numberIndex.find(null, "999")).thenReturn(List.of());
+
+        // Act
+        RoomSearchPage result = roomService.searchRooms(null, null, "999", 0, 100, "id", 0, 10, null);
+
+        // Assert
+        assertTrue(result.rooms().isEmpty());
+        assertNull(result.nextCursor());
+        verifyNoInteractions(roomRepository);
+    }
+
+    @Test
+    void searchRooms_WhenIndexIsBehindDatabase_LeavesFilterToDatabase() {
+        // Arrange
+        when(numberIndex.covers("999")).thenReturn(true);
+        when(numberIndex.isCurrent()).thenReturn(false);
+        when(roomRepository.findBy(any(Specification.class), any()))
+                .thenReturn(new SliceImpl<>(List.of(testRoom), PageRequest.of(0, 10), false));
+
+        // Act
+        RoomSearchPage result = roomService.searchRooms(1L, null, "999", 0, 100, "id", 0, 10, null);
+
+        // Assert
+        assertEquals(List.of(testRoom), result.rooms());
+        verify(numberIndex, never()).find(any(), any());
+    }
+
+    @Test
+    void searchRooms_WithShortNumberPattern_LeavesFilterToDatabase() {
+        // Arrange
+        when(roomRepository.findBy(any(Specification.class), any()))
+                .thenReturn(new SliceImpl<>(List.of(testRoom), PageRequest.of(0, 10), false));
+
+        // Act
+        roomService.searchRooms(null, null, "1", 0, 100, "id", 0, 10, null);
+
+        // Assert
+        verify(numberIndex, never()).find(any(), any());
+        verify(roomRepository).findBy(any(Specification.class), any());
+    }
+
+    @Test
+    void searchRooms_WithOversizedPage_Throws() {
+        assertThrows(IllegalArgumentException.class,
+                () -> roomService.searchRooms(null, null, null, 0, 100, "id", 0, RoomService.MAX_SEARCH_PAGE_SIZE + 1, null));
+    }
+
     @Test
     void createRoom_SavesAndReturnsRoom() {
         // Arrange
@@ -199,22 +924,50 @@ class RoomServiceTest {
         // Assert
         assertEquals(testRoom, result);
         verify(roomRepository).save(testRoom);
+        verify(facetIndex).roomAdded(testRoom);
+        verify(numberIndex).roomAdded(testRoom);
+    }
+
+    @Test
+    void facetSearch_AnswersFromIndexWithoutQueryingDatabase() {
+        // Arrange
+        RoomFacets facets = new RoomFacets(1, List.of(1L), Map.of("suite", 1L), Map.of(), Map.of(), Map.of(1L, 1L));
+        when(facetIndex.search(1L, "suite", null, null, true, 20)).thenReturn(facets);
+
+        // Act
+        RoomFacets result = roomService.facetSearch(1L, "suite", null, null, true, 20);
+
+        // Assert
+        assertEquals(facets, result);
+        verifyNoInteractions(roomRepository);
+    }
+
+    @Test
+    void facetSearch_WithOversizedPage_Throws() {
+        assertThrows(IllegalArgumentException.class,
+                () -> roomService.facetSearch(null, null, null, null, false, RoomService.MAX_SEARCH_PAGE_SIZE + 1));
     }
 
     @Test
-    void getOccupancyStats_WhenNoRooms_ReturnsZeroRates() {
+    void importRooms_FlushesAndClearsEveryChunk() {
         // Arrange
-        when(roomRepository.count()).thenReturn(0L);
-        when(roomRepository.countByAvailableFalse()).thenReturn(0L);
-        when(hotelRepository.findAll()).thenReturn(List.of(testHotel));
-        when(roomRepository.findByHotelId(testHotel.getId())).thenReturn(Collections.emptyList());
+        Stream<Room> rooms = IntStream.range(0, RoomService.IMPORT_CHUNK * 2 + 1)
+                .mapToObj(i -> Room.builder().id(99L).hotelId(1L).number(String.valueOf(i)).available(true)
+                        .tempLocked(true).leaseOwner("stale").build());
 
         // Act
-        Map<String, Object> stats = roomService.getOccupancyStats();
+        long imported = roomService.importRooms(rooms);
 
         // Assert
-        assertEquals(0L, stats.get("totalRooms"));
-        assertEquals(0L, stats.get("availableRooms"));
-        assertEquals(0L, stats.get("occupiedRooms"));
+        assertEquals(RoomService.IMPORT_CHUNK * 2 + 1, imported);
+        verify(entityManager, times(RoomService.IMPORT_CHUNK * 2 + 1))
+                .persist(argThat(room -> ((Room) room).getId() == null && !((Room) room).isTempLocked()));
+        verify(entityManager, times(3)).flush();
+        verify(entityManager, times(3)).clear();
+        verify(occupancyCounters).rebuild();
+        verify(allocationEngine).rebuild();
+        verify(roomCalendar).rebuild();
+        verify(facetIndex).rebuild();
+        verify(numberIndex).rebuild();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,114 @@
+package com.daniil.hotelmanagementservice.service;
+
+import com.daniil.hotelmanagementservice.config.TimesBookedProperties;
+import com.daniil.hotelmanagementservice.repository.RoomRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TimesBookedBufferTest {
+
+    @Mock
+    private RoomRepository roomRepository;
+
+    @Mock
+    private CollectionVersions collectionVersions;
+
+    private final TimesBookedProperties properties = new TimesBookedProperties();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private TimesBookedBuffer buffer;
+
+    @BeforeEach
+    void setUp() {
+        properties.setMode(TimesBookedProperties.Mode.WRITE_BEHIND);
+        buffer = new TimesBookedBuffer(roomRepository,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), properties, collectionVersions, registry);
+    }
+
+    @Test
+    void increment_AccumulatesPerRoomAndReportsUnflushed() {
+        // Act
+        buffer.increment(List.of(1L, 2L));
+        buffer.increment(List.of(1L));
+
+        // Assert
+        assertEquals(2, buffer.pending(1L));
+        assertEquals(1, buffer.pending(2L));
+        assertEquals(0, buffer.pending(3L));
+        assertEquals(3, registry.get("hotel.rooms.booked.unflushed").gauge().value());
+    }
+
+    @Test
+    void flush_GroupsRoomsByDeltaIntoSingleUpdates() {
+        // Arrange
+        buffer.increment(List.of(1L, 2L, 3L));
+        buffer.increment(List.of(3L));
+
+        // Act
+        int flushed = buffer.flush();
+
+        // Assert
+        assertEquals(3, flushed);
+        verify(roomRepository).addTimesBooked(argThat(ids -> ids.size() == 2 && ids.containsAll(List.of(1L, 2L))), eq(1));
+        verify(roomRepository).addTimesBooked(List.of(3L), 2);
+        assertEquals(0, buffer.unflushed());
+        assertEquals(0, buffer.pending(3L));
+        verify(collectionVersions).roomsChanged();
+    }
+
+    @Test
+    void flush_SplitsLargeGroupsIntoBatches() {
+        // Arrange
+        properties.setFlushBatchSize(100);
+        buffer.increment(LongStream.rangeClosed(1, 250).boxed().toList());
+
+        // Act
+        buffer.flush();
+
+        // Assert
+        verify(roomRepository, times(3)).addTimesBooked(anyCollection(), eq(1));
+    }
+
+    @Test
+    void flush_WhenNothingPending_DoesNotUpdate() {
+        // Act
+        int flushed = buffer.flush();
+
+        // Assert
+        assertEquals(0, flushed);
+        verifyNoInteractions(roomRepository, collectionVersions);
+    }
+
+    @Test
+    void flush_WhenUpdateFails_KeepsIncrementsForNextFlush() {
+        // Arrange
+        buffer.increment(List.of(1L));
+        when(roomRepository.addTimesBooked(List.of(1L), 1))
+                .thenThrow(new DataAccessResourceFailureException("connection refused"))
+                .thenReturn(1);
+
+        // Act
+        int failed = buffer.flush();
+        long pendingAfterFailure = buffer.pending(1L);
+        int retried = buffer.flush();
+
+        // Assert
+        assertEquals(0, failed);
+        assertEquals(1, pendingAfterFailure);
+        assertEquals(1, retried);
+        assertEquals(0, buffer.unflushed());
+    }
+}